@@ -1,17 +1,83 @@
 package hubertmap;
 
 import hubertmap.controller.Controller;
+import hubertmap.server.BatchRouter;
+import hubertmap.server.RoutingServer;
+import java.io.IOException;
+import java.util.Arrays;
 
 /** The App class calling the main functions of the application */
 public class App {
 
+    /** The option asking for the contraction hierarchy */
+    private static final String HIERARCHY_OPTION = "--hierarchy";
+
     /**
-     * The main method of this class and application.
+     * The main method of this class and application. Without arguments, the graphical user
+     * interface is shown. With "--server [port]", the network is served over HTTP instead, see
+     * {@link RoutingServer}. With "--batch input output [--json] [--threads n]", a file of trips is
+     * routed, see {@link BatchRouter}. Paths are found by a plain Dijkstra search, unless the
+     * option "--hierarchy" asks for the contraction hierarchy, built on the first run and after
+     * every change of the data, then loaded from its file.
      *
-     * @param args an array of command-line arguments (unused in this implementation)
+     * @param args an array of command-line arguments
      */
     public static void main(String[] args) {
+        boolean hierarchy = Arrays.asList(args).contains(HIERARCHY_OPTION);
+        if (hierarchy) {
+            args =
+                    Arrays.stream(args)
+                            .filter(arg -> !arg.equals(HIERARCHY_OPTION))
+                            .toArray(String[]::new);
+        }
+        if (args.length > 0 && args[0].equals("--batch")) {
+            batch(args, hierarchy);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--server")) {
+            try {
+                int port = args.length > 1 ? Integer.parseInt(args[1]) : RoutingServer.DEFAULT_PORT;
+                RoutingServer.run(port, hierarchy);
+            } catch (NumberFormatException e) {
+                System.out.println("Port invalide : " + args[1]);
+            } catch (IOException e) {
+                System.out.println("Le serveur n'a pas pu démarrer : " + e.getMessage());
+            }
+            return;
+        }
+
+        new Controller(hierarchy);
+    }
 
-        new Controller();
+    /**
+     * Routes a file of trips with the options given on the command line.
+     *
+     * @param args the command-line arguments, starting with "--batch"
+     * @param hierarchy true to route with the contraction hierarchy
+     */
+    private static void batch(String[] args, boolean hierarchy) {
+        if (args.length < 3) {
+            System.out.println(
+                    "Usage : --batch entrée sortie [--json] [--threads n] [--hierarchy]");
+            return;
+        }
+        BatchRouter.Format format = BatchRouter.Format.CSV;
+        int threads = Runtime.getRuntime().availableProcessors();
+        try {
+            for (int i = 3; i < args.length; i++) {
+                if (args[i].equals("--json")) format = BatchRouter.Format.JSON;
+                else if (args[i].equals("--threads")) threads = Integer.parseInt(args[++i]);
+                else System.out.println("Option inconnue : " + args[i]);
+            }
+            if (threads < 1) {
+                System.out.println("Nombre de threads invalide");
+                return;
+            }
+            BatchRouter.run(args[1], args[2], format, threads, hierarchy);
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            System.out.println("Nombre de threads invalide");
+        } catch (IOException e) {
+            System.out.println("Erreur : " + e.getMessage());
+        }
     }
 }
@@ -1,16 +1,24 @@
 package hubertmap.controller;
 
-import edu.uci.ics.jung.graph.util.Pair;
 import hubertmap.model.Time;
 import hubertmap.model.parser.Parser;
-import hubertmap.model.transport.EdgeTransport;
+import hubertmap.model.routing.Leg;
+import hubertmap.model.routing.PathLeg;
+import hubertmap.model.transport.Departure;
 import hubertmap.model.transport.Network;
+import hubertmap.model.transport.Point;
 import hubertmap.model.transport.Station;
+import hubertmap.model.transport.StationSearchIndex;
 import hubertmap.model.transport.VertexTransport;
 import hubertmap.view.GraphData;
 import hubertmap.view.View;
+import java.io.File;
 import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * The Controller class is responsible for managing the interaction between the Model and the View
@@ -27,24 +35,93 @@ public class Controller {
 
     static GraphData graphView;
 
-    /** Constructs a new Controller instance, creates Network and View */
-    public Controller() {
+    /* The points shown on the map, the ends of the last path shown. */
+    private static final List<VertexTransport> markers = new ArrayList<>();
+
+    /* Runs the searches one at a time, away from the Event Dispatch Thread. */
+    private static final ExecutorService searches =
+            Executors.newSingleThreadExecutor(
+                    task -> {
+                        Thread thread = new Thread(task, "searches");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+
+    /**
+     * Constructs a new Controller instance, creates Network and View
+     *
+     * @param hierarchy true to find the paths with the contraction hierarchy, false for a plain
+     *     Dijkstra search that needs no preprocessing before the window opens
+     */
+    public Controller(boolean hierarchy) {
         Parser parser = new Parser(true);
         network = parser.getEdges();
+        if (hierarchy) network.useContractionHierarchy(new File("ressource/network.ch"));
         graphView = new GraphData(network.getGraph(), network.getLines());
         view = new View(graphView);
     }
 
     /**
-     * Calculates the shortest path between two stations and updates the view accordingly.
+     * Calculates the shortest path between two stations or points in the background. The search
+     * waits in line behind the previous ones and is skipped if the future is cancelled before it
+     * starts.
+     *
+     * @param start the starting station or point
+     * @param end the destination station or point
+     * @return the future legs of the path, completed away from the Event Dispatch Thread
+     */
+    public static CompletableFuture<List<PathLeg>> searchShortestPath(
+            VertexTransport start, VertexTransport end) {
+        return CompletableFuture.supplyAsync(() -> network.route(start, end), searches);
+    }
+
+    /**
+     * Shows a shortest path in the view, with a marker on its ends that are points. The markers of
+     * the previous path are removed. It must be called on the Event Dispatch Thread.
      *
      * @param time start time of travel
-     * @param station1Name the name of the starting station
-     * @param station2Name the name of the destination station
+     * @param shortestPath the legs of the path
+     */
+    public static void setShortestPath(LocalTime time, List<PathLeg> shortestPath) {
+        for (VertexTransport marker : markers) view.vertexRemoved(marker);
+        markers.clear();
+        if (shortestPath != null && !shortestPath.isEmpty()) {
+            VertexTransport start = shortestPath.get(0).getFrom();
+            VertexTransport end = shortestPath.get(shortestPath.size() - 1).getTo();
+            if (start instanceof Point) markers.add(start);
+            if (end instanceof Point) markers.add(end);
+        }
+        for (VertexTransport marker : markers) view.vertexAdded(marker);
+        view.setShortestPath(time, shortestPath);
+    }
+
+    /**
+     * Returns the station with the given name.
+     *
+     * @param name the name of the station in lower case
+     * @return the station, or null if it is unknown
+     */
+    public static VertexTransport getStation(String name) {
+        return network.getStation(name);
+    }
+
+    /**
+     * Returns the vertex described by a text typed by the user, a station or a point.
+     *
+     * @param text the station name or the "x,y" coordinates
+     * @return the station or a new point, or null if the station is unknown
      */
-    public static void setShortestPath(LocalTime time, String station1Name, String station2Name) {
-        var shortestPath = network.shortestPath(station1Name, station2Name);
-        if (shortestPath != null) view.setShortestPath(time, shortestPath);
+    public static VertexTransport findVertex(String text) {
+        return network.findVertex(text);
+    }
+
+    /**
+     * Returns the index of the station names, shared by the search fields.
+     *
+     * @return the search index of the station names
+     */
+    public static StationSearchIndex getSearchIndex() {
+        return network.getSearchIndex();
     }
 
     /**
@@ -75,42 +152,37 @@ public class Controller {
     }
 
     /**
-     * Creates a point defined by the coordinates provided by the user and updates view
+     * Creates a point defined by the coordinates provided by the user. The network and the view are
+     * left unchanged, the point only exists for the searches it is given to.
      *
      * @param x x coordinate
      * @param y y coordinate
-     * @return name of created point
+     * @return the created point
      */
-    public static String createPoint(double x, double y) {
-
-        String pointName = network.createPoint(x, y);
-
-        graphView = new GraphData(network.getGraph(), network.getLines());
-        view.updateView(graphView);
-
-        return pointName;
+    public static VertexTransport createPoint(double x, double y) {
+        return network.createPoint(x, y);
     }
 
-    /** Deletes all user points from the graph. */
-    public static void deleteUserPoints() {
-        network.deleteUserPoints();
+    /**
+     * Calculates the timed legs of a path.
+     *
+     * @param shortestPath Shortest path.
+     * @param departure The time at which the traveller starts.
+     * @return The legs of the itinerary, one per line ridden or walk.
+     */
+    public static List<Leg> getItinerary(List<PathLeg> shortestPath, Time departure) {
+        return network.getItinerary(shortestPath, departure);
     }
 
     /**
-     * Calculates the departure and arrival time for two vetrexes.
+     * Returns the next departures from a station.
      *
-     * @param shortestPath Shortest path.
-     * @param vertexTransport1 The name of the starting vetrex.
-     * @param vertexTransport2 The name of the ending vetrex.
-     * @param currentTime The current time as a Time object.
-     * @return A Pair object containing the departure time and the arrival time as Time objects, or
-     *     null if the calculation failed.
+     * @param station The station.
+     * @param from The time after which the departures are listed.
+     * @param limit The maximum number of departures.
+     * @return The departures sorted by time.
      */
-    public static Pair<Time> getTimes(
-            List<EdgeTransport> shortestPath,
-            VertexTransport vertexTransport1,
-            VertexTransport vertexTransport2,
-            Time currentTime) {
-        return network.getTimes(shortestPath, vertexTransport1, vertexTransport2, currentTime);
+    public static List<Departure> getDepartures(Station station, Time from, int limit) {
+        return network.departures(station, from, limit);
     }
 }
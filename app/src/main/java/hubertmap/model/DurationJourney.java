@@ -6,14 +6,14 @@ package hubertmap.model;
  ** In this file we're not going to worry about tenths of a second
  ** because user doesn't need to have such precision
  */
-/** The DurationJourney class represents a duration in minutes and secondes */
+/**
+ * The DurationJourney class represents a duration in minutes and secondes. The duration is kept in
+ * seconds, so it can be added to a {@link ServiceTime} value without conversion.
+ */
 public class DurationJourney {
 
-    /** The minute component of the duration */
-    private int minute;
-
-    /** The seconde component of the duration */
-    private int seconde;
+    /** The duration in seconds */
+    private int seconds;
 
     /**
      * Constructs a DurationJourney object with the specified minute and seconde.
@@ -22,21 +22,16 @@ public class DurationJourney {
      * @param rightTimeOperator the seconde component
      */
     public DurationJourney(String leftTimeOperator, String rightTimeOperator) {
-        if (leftTimeOperator.length() == 2) {
-            minute = Character.getNumericValue(leftTimeOperator.charAt(0));
-            seconde =
-                    Integer.parseInt(
-                            String.valueOf(leftTimeOperator.charAt(1))
-                                    .concat(String.valueOf(rightTimeOperator.charAt(0))));
-        } else {
-            minute = 0;
-            seconde =
-                    Integer.parseInt(
-                            String.valueOf(leftTimeOperator.charAt(0))
-                                    .concat(String.valueOf(rightTimeOperator.charAt(0))));
+        int tens = Character.digit(leftTimeOperator.charAt(leftTimeOperator.length() - 1), 10);
+        int units = Character.digit(rightTimeOperator.charAt(0), 10);
+        if (tens < 0 || units < 0) {
+            throw new NumberFormatException(leftTimeOperator + ":" + rightTimeOperator);
         }
-        this.minute += this.seconde / 60;
-        this.seconde %= 60;
+        int minute =
+                leftTimeOperator.length() == 2
+                        ? Character.getNumericValue(leftTimeOperator.charAt(0))
+                        : 0;
+        this.seconds = minute * 60 + tens * 10 + units;
     }
 
     /**
@@ -49,8 +44,7 @@ public class DurationJourney {
         if (seconds < 0) {
             throw new IllegalArgumentException("seconds must be positive");
         }
-        this.minute = seconds / 60;
-        this.seconde = seconds % 60;
+        this.seconds = seconds;
     }
 
     /**
@@ -59,7 +53,7 @@ public class DurationJourney {
      * @return the seconde propery
      */
     public int getSeconde() {
-        return seconde;
+        return seconds % 60;
     }
 
     /**
@@ -68,7 +62,7 @@ public class DurationJourney {
      * @param seconde the seconde property
      */
     public void setSeconde(int seconde) {
-        this.seconde = seconde;
+        this.seconds = getMinute() * 60 + seconde;
     }
 
     /**
@@ -77,7 +71,7 @@ public class DurationJourney {
      * @return the minute property
      */
     public int getMinute() {
-        return minute;
+        return seconds / 60;
     }
 
     /**
@@ -86,7 +80,7 @@ public class DurationJourney {
      * @param minute the minute property
      */
     public void setMinute(int minute) {
-        this.minute = minute;
+        this.seconds = minute * 60 + getSeconde();
     }
 
     /**
@@ -96,14 +90,14 @@ public class DurationJourney {
      */
     @Override
     public String toString() {
-        return String.format("(minutes : %d, secondes : %d)", minute, seconde);
+        return String.format("(minutes : %d, secondes : %d)", getMinute(), getSeconde());
     }
 
     /**
      * @return value of duration in seconds
      */
     public int toSeconds() {
-        return minute * 60 + seconde;
+        return seconds;
     }
 
     /**
@@ -112,7 +106,7 @@ public class DurationJourney {
      * @return DurationJourney new object
      */
     public DurationJourney copy() {
-        return new DurationJourney(this.toSeconds());
+        return new DurationJourney(seconds);
     }
 
     /**
@@ -123,10 +117,7 @@ public class DurationJourney {
      * @return DurationJourney new object
      */
     public DurationJourney add(DurationJourney d) {
-        seconde += d.seconde;
-        minute += d.minute + (seconde / 60);
-        seconde %= 60;
-
+        seconds += d.seconds;
         return this;
     }
 }
@@ -0,0 +1,89 @@
+package hubertmap.model;
+
+/**
+ * The ServiceTime class works on times packed in a single int: the number of seconds since the
+ * start of the service day. A value may go past 24:00 for trips running after midnight, {@link
+ * #timeOfDay(int)} brings it back to the clock. The methods don't allocate, so they can be used in
+ * loops over schedules and paths; {@link Time} and {@link DurationJourney} are views of such values
+ * for the user interface.
+ */
+public final class ServiceTime {
+
+    /** The number of seconds in a day. */
+    public static final int SECONDS_PER_DAY = 24 * 60 * 60;
+
+    private ServiceTime() {}
+
+    /**
+     * Returns the packed value of a time.
+     *
+     * @param hour the hours since the start of the service day, possibly 24 or more
+     * @param minute the minutes
+     * @param second the seconds
+     * @return the number of seconds since the start of the service day
+     */
+    public static int of(int hour, int minute, int second) {
+        return hour * 3600 + minute * 60 + second;
+    }
+
+    /**
+     * Returns the time reached after a duration.
+     *
+     * @param time the packed time
+     * @param seconds the duration in seconds
+     * @return the packed time, which is not brought back to the clock
+     */
+    public static int plus(int time, int seconds) {
+        return time + seconds;
+    }
+
+    /**
+     * Returns the time on the clock, between 00:00:00 and 23:59:59.
+     *
+     * @param time the packed time
+     * @return the number of seconds since midnight
+     */
+    public static int timeOfDay(int time) {
+        return Math.floorMod(time, SECONDS_PER_DAY);
+    }
+
+    /**
+     * Returns the hours of a packed time, 24 or more after midnight.
+     *
+     * @param time the packed time
+     * @return the hours
+     */
+    public static int hour(int time) {
+        return time / 3600;
+    }
+
+    /**
+     * Returns the minutes of a packed time.
+     *
+     * @param time the packed time
+     * @return the minutes, between 0 and 59
+     */
+    public static int minute(int time) {
+        return time / 60 % 60;
+    }
+
+    /**
+     * Returns the seconds of a packed time.
+     *
+     * @param time the packed time
+     * @return the seconds, between 0 and 59
+     */
+    public static int second(int time) {
+        return time % 60;
+    }
+
+    /**
+     * Returns a packed time in the format "HH:MM:SS".
+     *
+     * @param time the packed time
+     * @return the formatted time
+     */
+    public static String toString(int time) {
+        return String.format("%02d:%02d:%02d", hour(time), minute(time), second(time));
+    }
+}
@@ -1,15 +1,12 @@
 package hubertmap.model;
 
-/** The Time class represents a time of day in hours and minutes. */
+/**
+ * The Time class represents a time of day in hours and minutes. It is a mutable view of a {@link
+ * ServiceTime} value, used by the user interface; the model works on the packed value directly.
+ */
 public class Time implements Comparable<Time> {
-    /** The hour component of the time. */
-    private int hour;
-
-    /** The minute component of the time. */
-    private int minute;
-
-    /** The minute component of the time. */
-    private int seconde;
+    /** The number of seconds since the start of the service day. */
+    private int seconds;
 
     /**
      * Constructs a Time object with the specified hour and minute.
@@ -19,10 +16,7 @@ public class Time implements Comparable<Time> {
      * @param seconde the seconde component of the time
      */
     public Time(int hour, int minute, int seconde) {
-
-        this.hour = hour;
-        this.minute = minute;
-        this.seconde = seconde;
+        this.seconds = ServiceTime.of(hour, minute, seconde);
     }
 
     /**
@@ -31,11 +25,19 @@ public class Time implements Comparable<Time> {
      * @param time the Time object to copy
      */
     public Time(Time time) {
+        this.seconds = time.seconds;
+    }
 
-        this.hour = time.hour;
-        this.minute = time.minute;
-        this.seconde = time.seconde;
+    /**
+     * Constructs a Time object from a number of seconds since midnight. Values past the end of the
+     * day wrap around, like {@link #increaseByHours(int)} does.
+     *
+     * @param seconds the number of seconds since midnight
+     */
+    public Time(int seconds) {
+        this.seconds = ServiceTime.timeOfDay(seconds);
     }
+
     /**
      * Increases the time by the specified duration journey.
      *
@@ -43,9 +45,8 @@ public class Time implements Comparable<Time> {
      * @return a new Time object with the time increased by the specified duration journey
      */
     public Time increaseWithADurationJourney(DurationJourney dj) {
-        this.increaseBySeconde(dj.getSeconde());
-        this.increaseByMinute(dj.getMinute());
-        return new Time(this.hour, this.minute, this.seconde);
+        this.increaseBySeconde(dj.toSeconds());
+        return new Time(this);
     }
 
     /**
@@ -54,7 +55,7 @@ public class Time implements Comparable<Time> {
      * @return the hour component of the time
      */
     public int getHour() {
-        return hour;
+        return ServiceTime.hour(seconds);
     }
 
     /**
@@ -63,7 +64,7 @@ public class Time implements Comparable<Time> {
      * @param hour the hour component of the time
      */
     public void setHour(int hour) {
-        this.hour = hour;
+        this.seconds = ServiceTime.of(hour, getMinute(), getSeconde());
     }
     /**
      * Increases the time by a given number of hours.
@@ -71,7 +72,7 @@ public class Time implements Comparable<Time> {
      * @param hour the number of hours to add to the time
      */
     public void increaseByHours(int hour) {
-        this.hour = (this.hour + hour) % 24;
+        this.seconds = ServiceTime.timeOfDay(ServiceTime.plus(seconds, hour * 3600));
     }
 
     /**
@@ -80,7 +81,7 @@ public class Time implements Comparable<Time> {
      * @return the minute component of the time
      */
     public int getMinute() {
-        return minute;
+        return ServiceTime.minute(seconds);
     }
 
     /**
@@ -89,7 +90,7 @@ public class Time implements Comparable<Time> {
      * @param minute the minute component of the time
      */
     public void setMinute(int minute) {
-        this.minute = minute;
+        this.seconds = ServiceTime.of(getHour(), minute, getSeconde());
     }
 
     /**
@@ -98,7 +99,7 @@ public class Time implements Comparable<Time> {
      * @return the seconde component of the time
      */
     public int getSeconde() {
-        return hour;
+        return ServiceTime.second(seconds);
     }
     /**
      * Increases the time object by a specified number of minutes.
@@ -106,11 +107,7 @@ public class Time implements Comparable<Time> {
      * @param minute the number of minutes to add to the time object
      */
     public void increaseByMinute(int minute) {
-        this.minute += minute;
-        while (this.minute > 59) {
-            this.minute -= 60;
-            this.increaseByHours(1);
-        }
+        this.seconds = ServiceTime.timeOfDay(ServiceTime.plus(seconds, minute * 60));
     }
 
     /**
@@ -119,7 +116,7 @@ public class Time implements Comparable<Time> {
      * @param seconde the seconde component of the time
      */
     public void setSeconde(int seconde) {
-        this.seconde = seconde;
+        this.seconds = ServiceTime.of(getHour(), getMinute(), seconde);
     }
 
     /**
@@ -129,11 +126,16 @@ public class Time implements Comparable<Time> {
      * @param seconde The number of seconds to add to the time.
      */
     public void increaseBySeconde(int seconde) {
-        this.seconde += seconde;
-        while (this.seconde > 59) {
-            this.seconde -= 60;
-            this.increaseByMinute(1);
-        }
+        this.seconds = ServiceTime.timeOfDay(ServiceTime.plus(seconds, seconde));
+    }
+
+    /**
+     * Returns the number of seconds since midnight
+     *
+     * @return value of time in seconds
+     */
+    public int toSeconds() {
+        return seconds;
     }
 
     /**
@@ -143,7 +145,7 @@ public class Time implements Comparable<Time> {
      */
     @Override
     public String toString() {
-        return String.format("%02d:%02d:%02d", hour, minute, seconde);
+        return ServiceTime.toString(seconds);
     }
 
     /**
@@ -157,15 +159,6 @@ public class Time implements Comparable<Time> {
      */
     @Override
     public int compareTo(Time other) {
-        if (this.hour != other.hour) {
-            return this.hour - other.hour;
-        }
-        if (this.minute != other.minute) {
-            return this.minute - other.minute;
-        }
-        if (this.seconde != other.seconde) {
-            return this.seconde - other.seconde;
-        }
-        return 0;
+        return Integer.compare(seconds, other.seconds);
     }
 }
@@ -0,0 +1,296 @@
+package hubertmap.model.parser;
+
+import hubertmap.model.DurationJourney;
+import hubertmap.model.Time;
+import hubertmap.model.transport.EdgeTransport;
+import hubertmap.model.transport.Line;
+import hubertmap.model.transport.Network;
+import hubertmap.model.transport.ScheduleStore;
+import hubertmap.model.transport.Station;
+import hubertmap.model.transport.VertexTransport;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * The NetworkSnapshot class saves a fully built network (stations, lines, edges and schedules) in a
+ * compact binary file, and loads it back by mapping the file in memory. The file starts with a
+ * version number and the checksum of the CSV files it was built from, so a snapshot made by another
+ * version of the application or from other data is ignored.
+ */
+class NetworkSnapshot {
+
+    /** Identifies snapshot files. */
+    private static final int MAGIC = 0x48424d4e;
+
+    /** Incremented every time the layout of the file changes. */
+    static final int VERSION = 3;
+
+    private final Network network;
+    private final List<Station> stations;
+    private final Map<Line, ArrayList<DurationJourney>> dataLine;
+
+    private NetworkSnapshot(
+            Network network,
+            List<Station> stations,
+            Map<Line, ArrayList<DurationJourney>> dataLine) {
+        this.network = network;
+        this.stations = stations;
+        this.dataLine = dataLine;
+    }
+
+    /**
+     * Returns the network loaded from the snapshot.
+     *
+     * @return the network
+     */
+    Network getNetwork() {
+        return network;
+    }
+
+    /**
+     * Returns the stations loaded from the snapshot, in parsing order.
+     *
+     * @return the list of stations
+     */
+    List<Station> getStations() {
+        return stations;
+    }
+
+    /**
+     * Returns the lines loaded from the snapshot with the duration of the journey between their
+     * stations.
+     *
+     * @return the lines with their durations
+     */
+    Map<Line, ArrayList<DurationJourney>> getDataLine() {
+        return dataLine;
+    }
+
+    /**
+     * Computes the checksum of the content of the given files.
+     *
+     * @param files the source files of the network
+     * @return the checksum of the files
+     * @throws IOException if a file can't be read
+     */
+    static long checksum(File... files) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[1 << 16];
+        for (File file : files) {
+            try (InputStream in = new FileInputStream(file)) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    crc.update(buffer, 0, read);
+                }
+            }
+            crc.update(0);
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Saves the network in the given file. The file is written next to its final location and then
+     * renamed, so an interrupted write never leaves a truncated snapshot.
+     *
+     * @param file the snapshot file
+     * @param checksum the checksum of the source files
+     * @param network the network to save
+     * @param stations the stations of the network, in parsing order
+     * @param dataLine the lines of the network with their durations
+     * @throws IOException if the file can't be written
+     */
+    static void write(
+            File file,
+            long checksum,
+            Network network,
+            List<Station> stations,
+            Map<Line, ArrayList<DurationJourney>> dataLine)
+            throws IOException {
+        Map<VertexTransport, Integer> ids = new HashMap<>();
+        for (Station station : stations) {
+            ids.put(station, ids.size());
+        }
+
+        File temporary = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out =
+                new DataOutputStream(
+                        new BufferedOutputStream(new FileOutputStream(temporary), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(checksum);
+
+            out.writeInt(stations.size());
+            for (Station station : stations) {
+                writeString(out, station.getName());
+                out.writeFloat(station.getX());
+                out.writeFloat(station.getY());
+                out.writeBoolean(station.isMultiLine());
+                // the edges are saved in hash order, the station found by its name is kept
+                out.writeBoolean(network.getStation(station.getName().toLowerCase()) == station);
+                out.writeInt(station.getAllLines().size());
+                for (String line : station.getAllLines()) {
+                    writeString(out, line);
+                }
+                ScheduleStore schedules = station.getSchedules();
+                out.writeInt(schedules.getLines().size());
+                for (int id = 0; id < schedules.getLines().size(); id++) {
+                    writeString(out, schedules.getLines().get(id));
+                    int[] times = schedules.times(id);
+                    out.writeInt(times.length);
+                    for (int time : times) {
+                        out.writeInt(time);
+                    }
+                }
+            }
+
+            out.writeInt(dataLine.size());
+            for (Map.Entry<Line, ArrayList<DurationJourney>> entry : dataLine.entrySet()) {
+                Line line = entry.getKey();
+                writeString(out, line.getName());
+                out.writeInt(ids.get(line.getTerminalStationDeparture()));
+                Station arrival = line.getTerminalStationArrival();
+                out.writeInt(arrival == null ? -1 : ids.get(arrival));
+                out.writeInt(line.getAllStations().size());
+                for (Station station : line.getAllStations()) {
+                    out.writeInt(ids.get(station));
+                }
+                out.writeInt(line.starts.size());
+                for (Time start : line.starts) {
+                    out.writeInt(start.toSeconds());
+                }
+                out.writeInt(entry.getValue().size());
+                for (DurationJourney duration : entry.getValue()) {
+                    out.writeInt(duration.toSeconds());
+                }
+            }
+
+            out.writeInt(network.getGraph().getEdgeCount());
+            for (EdgeTransport edge : network.getGraph().getEdges()) {
+                out.writeInt(ids.get(edge.getStartingStation()));
+                out.writeInt(ids.get(edge.getEndingStation()));
+                out.writeInt(edge.getDurationJourney().toSeconds());
+                out.writeFloat(edge.getDistance());
+                writeString(out, edge.getLineName());
+            }
+        }
+        Files.move(
+                temporary.toPath(),
+                file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads the network saved in the given file.
+     *
+     * @param file the snapshot file
+     * @param checksum the checksum of the current source files
+     * @return the snapshot, or null if the file doesn't exist, is from another version, was built
+     *     from other source files or is corrupted
+     */
+    static NetworkSnapshot read(File file, long checksum) {
+        if (!file.isFile()) return null;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.getInt() != MAGIC || in.getInt() != VERSION || in.getLong() != checksum) {
+                return null;
+            }
+
+            int stationCount = in.getInt();
+            List<Station> stations = new ArrayList<>(stationCount);
+            List<Station> named = new ArrayList<>();
+            for (int i = 0; i < stationCount; i++) {
+                String name = readString(in);
+                float x = in.getFloat();
+                float y = in.getFloat();
+                boolean multiLine = in.get() != 0;
+                boolean isNamed = in.get() != 0;
+                int lineCount = in.getInt();
+                Station station = new Station(name, readString(in), x, y);
+                if (isNamed) named.add(station);
+                for (int l = 1; l < lineCount; l++) {
+                    station.getAllLines().add(readString(in));
+                }
+                station.setMultiLine(multiLine);
+                int scheduleCount = in.getInt();
+                for (int s = 0; s < scheduleCount; s++) {
+                    String line = readString(in);
+                    station.getSchedules().addLine(line);
+                    int size = in.getInt();
+                    for (int t = 0; t < size; t++) {
+                        station.getSchedules().add(line, in.getInt());
+                    }
+                }
+                stations.add(station);
+            }
+
+            int lineCount = in.getInt();
+            Map<Line, ArrayList<DurationJourney>> dataLine = new HashMap<>();
+            for (int l = 0; l < lineCount; l++) {
+                Line line = new Line(readString(in), stations.get(in.getInt()));
+                int arrival = in.getInt();
+                if (arrival >= 0) line.setTerminalStationArrival(stations.get(arrival));
+                int size = in.getInt();
+                for (int i = 0; i < size; i++) {
+                    line.allStations.add(stations.get(in.getInt()));
+                }
+                size = in.getInt();
+                for (int i = 0; i < size; i++) {
+                    line.addStart(new Time(in.getInt()));
+                }
+                size = in.getInt();
+                ArrayList<DurationJourney> durations = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    durations.add(new DurationJourney(in.getInt()));
+                }
+                dataLine.put(line, durations);
+            }
+
+            Network network = new Network();
+            int edgeCount = in.getInt();
+            for (int e = 0; e < edgeCount; e++) {
+                Station start = stations.get(in.getInt());
+                Station end = stations.get(in.getInt());
+                DurationJourney duration = new DurationJourney(in.getInt());
+                float distance = in.getFloat();
+                network.addEdge(new EdgeTransport(start, end, duration, distance, readString(in)));
+            }
+            for (Station station : named) {
+                network.nameStation(station);
+            }
+            network.setDataLine(dataLine);
+            return new NetworkSnapshot(network, stations, dataLine);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
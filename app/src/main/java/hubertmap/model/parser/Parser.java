@@ -1,11 +1,15 @@
 package hubertmap.model.parser;
 
 import hubertmap.model.DurationJourney;
+import hubertmap.model.ServiceTime;
 import hubertmap.model.Time;
 import hubertmap.model.transport.EdgeTransport;
 import hubertmap.model.transport.Line;
 import hubertmap.model.transport.Network;
+import hubertmap.model.transport.Registry;
 import hubertmap.model.transport.Station;
+import hubertmap.model.transport.StopPatternIndex.StopPattern;
+import hubertmap.model.transport.TripTable;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
@@ -13,11 +17,16 @@ import java.util.*;
 /** The Parser class parses the input CSV files */
 public class Parser {
 
+    /** The file where the parsed network is saved between two starts. */
+    private static final String SNAPSHOT_PATH = "ressource/network.bin";
+
     Network network;
     /** The list of all stations in the database. */
     private List<Station> stations = new ArrayList<>();
     /** The list of all lines in the database with their starting times. */
     private Map<Line, ArrayList<DurationJourney>> dataLine = new HashMap<>();
+    /** The index of the stations and lines above. */
+    private Registry registry = new Registry();
 
     /**
      * The constructor of the Parser class. It calls the parseStations() and parseLines() methods to
@@ -30,8 +39,13 @@ public class Parser {
     public Parser(boolean parseAtCreation) {
         if (parseAtCreation) {
             try {
-                parseStations(openFile("ressource/map_data.csv"));
-                parseLines(openFile("ressource/timetables.csv"));
+                File mapData = openFile("ressource/map_data.csv");
+                File timetables = openFile("ressource/timetables.csv");
+                if (!loadSnapshot(mapData, timetables)) {
+                    parseStations(mapData);
+                    parseLines(timetables);
+                    saveSnapshot(mapData, timetables);
+                }
             } catch (FileNotFoundException e) {
                 System.out.println("Le fichier n'a pas été trouvé : " + e.getMessage());
             } catch (Exception e) {
@@ -40,6 +54,47 @@ public class Parser {
         }
     }
 
+    /**
+     * Loads the network from the snapshot file if it was built from the given files.
+     *
+     * @param mapData the CSV file of the stations
+     * @param timetables the CSV file of the schedules
+     * @return true if the network was loaded from the snapshot
+     * @throws IOException if the CSV files can't be read
+     */
+    private boolean loadSnapshot(File mapData, File timetables) throws IOException {
+        NetworkSnapshot snapshot =
+                NetworkSnapshot.read(
+                        openFile(SNAPSHOT_PATH), NetworkSnapshot.checksum(mapData, timetables));
+        if (snapshot == null) return false;
+        setNetwork(snapshot.getNetwork());
+        stations = snapshot.getStations();
+        dataLine = snapshot.getDataLine();
+        // the snapshot stations are new, they are registered in the registry still empty
+        updateRegistry();
+        return true;
+    }
+
+    /**
+     * Saves the parsed network in the snapshot file so the next start doesn't parse the CSV files
+     * again. A failure only prints an error message, the parsed network stays usable.
+     *
+     * @param mapData the CSV file of the stations
+     * @param timetables the CSV file of the schedules
+     */
+    private void saveSnapshot(File mapData, File timetables) {
+        try {
+            NetworkSnapshot.write(
+                    openFile(SNAPSHOT_PATH),
+                    NetworkSnapshot.checksum(mapData, timetables),
+                    getNetwork(),
+                    stations,
+                    dataLine);
+        } catch (IOException e) {
+            System.out.println("Le réseau n'a pas pu être sauvegardé : " + e.getMessage());
+        }
+    }
+
     Network getNetwork() {
         return network;
     }
@@ -79,20 +134,17 @@ public class Parser {
     }
 
     /**
-     * Checks if a line with the given name already exists in the database. If it does, it returns
-     * the line object. If it doesn't, it throws an Exception with an error message.
-     *
-     * @param name the name of the line to check.
-     * @return the line object if it already exists.
-     * @throws Exception if the line doesn't already exist in the database.
+     * Registers the stations and lines that were added to the database without going through the
+     * registry, then gives the registry to the network.
      */
-    private Line lineAlreadyExist(String name) throws Exception {
-        for (Map.Entry<Line, ArrayList<DurationJourney>> entry : dataLine.entrySet()) {
-            if (entry.getKey().getName().equals(name)) {
-                return entry.getKey();
-            }
+    private void updateRegistry() {
+        for (int i = registry.getStationCount(); i < stations.size(); i++) {
+            registry.add(stations.get(i));
+        }
+        for (Line line : dataLine.keySet()) {
+            registry.add(line);
         }
-        throw new Exception("Line doesn't already exist in database");
+        if (getNetwork() != null) getNetwork().setRegistry(registry);
     }
 
     /**
@@ -107,29 +159,21 @@ public class Parser {
      */
     private Station createStation(String stationName, String lineName, float lat, float lon) {
         String simplelineName = lineName.split(" ")[0];
-        Object[] sameStations =
-                getStations().stream()
-                        .filter(station -> station.getName().equals(stationName))
-                        .toArray();
-
-        if (sameStations.length > 0) {
-            Station s = (Station) (sameStations[0]);
-            lat = s.getX();
-            lon = s.getY();
+        Station existing = registry.getStation(stationName, simplelineName);
+        if (existing != null) {
+            existing.addLine(lineName);
+            return existing;
         }
 
-        for (Object obj : sameStations) {
-            Station st = (Station) obj;
-            if (st.getSimpleLineName().equals(simplelineName)) {
-                st.addLine(lineName);
-                return st;
-            }
+        List<Station> sameStations = registry.getStations(stationName);
+        if (!sameStations.isEmpty()) {
+            lat = sameStations.get(0).getX();
+            lon = sameStations.get(0).getY();
         }
 
         Station newStation = new Station(stationName, lineName, lat, lon);
 
-        for (Object obj : sameStations) {
-            Station st = (Station) obj;
+        for (Station st : sameStations) {
             st.setMultiLine(true);
             newStation.setMultiLine(true);
             EdgeTransport e =
@@ -138,6 +182,7 @@ public class Parser {
         }
 
         getStations().add(newStation);
+        registry.add(newStation);
         return newStation;
     }
 
@@ -155,6 +200,7 @@ public class Parser {
         BufferedReader reader = new BufferedReader(isr);
         String line;
         setNetwork(new Network());
+        updateRegistry();
         ArrayList<DurationJourney> durationJourneys = new ArrayList<>();
         String lastLineName = null;
         Station lastStation = null;
@@ -162,16 +208,17 @@ public class Parser {
         while ((line = reader.readLine()) != null) {
             String[] values = line.split(";");
 
-            String station1Name = values[0].trim();
-            float station1Lat = Float.parseFloat(values[1].trim().split(",")[0]);
-            float station1Lon = Float.parseFloat(values[1].trim().split(",")[1]);
-            String station2Name = values[2].trim();
-            float station2Lat = Float.parseFloat(values[3].trim().split(",")[0]);
-            float station2Lon = Float.parseFloat(values[3].trim().split(",")[1]);
-            String lineName = values[4].trim();
-            String timeString = values[5].trim();
-            DurationJourney time =
-                    new DurationJourney(timeString.split(":")[0], timeString.split(":")[1]);
+            String station1Name = registry.intern(values[0].trim());
+            String[] station1Coordinates = values[1].trim().split(",");
+            float station1Lat = Float.parseFloat(station1Coordinates[0]);
+            float station1Lon = Float.parseFloat(station1Coordinates[1]);
+            String station2Name = registry.intern(values[2].trim());
+            String[] station2Coordinates = values[3].trim().split(",");
+            float station2Lat = Float.parseFloat(station2Coordinates[0]);
+            float station2Lon = Float.parseFloat(station2Coordinates[1]);
+            String lineName = registry.intern(values[4].trim());
+            String[] timeValues = values[5].trim().split(":");
+            DurationJourney time = new DurationJourney(timeValues[0], timeValues[1]);
             durationJourneys.add(time);
 
             float distance = Float.parseFloat(values[6].trim());
@@ -188,6 +235,7 @@ public class Parser {
                 lastLineName = lineName;
                 currentLine = new Line(lineName, station1);
                 dataLine.put(currentLine, durationJourneys);
+                registry.add(currentLine);
             }
 
             boolean isNewLine = !lastLineName.equals(lineName);
@@ -197,6 +245,7 @@ public class Parser {
                 durationJourneys.remove(durationJourneys.size() - 1);
                 durationJourneys = new ArrayList<>();
                 dataLine.put(currentLine, durationJourneys);
+                registry.add(currentLine);
                 lastLineName = lineName;
                 durationJourneys.add(time);
             }
@@ -219,66 +268,73 @@ public class Parser {
     /**
      * Parses a file containing information about the lines and their schedules, and fills in the
      * schedule information for each station on each line. This method reads a CSV file, with each
-     * line containing information about a line's schedule.
+     * line containing information about a line's schedule. The file is parsed in parallel by {@link
+     * TimetableReader}, the starts are then added to the lines in file order.
      *
      * @param file the CSV file containing the lines and schedules information
      * @throws Exception if there is an error reading or parsing the file, or if the data given
      *     doesn't match
      */
     void parseLines(File file) throws Exception {
-        FileInputStream fis = new FileInputStream(file);
-        InputStreamReader isr = new InputStreamReader(fis, StandardCharsets.UTF_8);
-        try (BufferedReader reader = new BufferedReader(isr)) {
-            String csvLine;
-
-            while ((csvLine = reader.readLine()) != null) {
-                String[] values = csvLine.split(";");
-                String terminus = values[1];
-
-                String completeNameLine = values[0] + " variant " + values[3];
-                Time start =
-                        new Time(
-                                Integer.parseInt(values[2].split(":")[0]),
-                                Integer.parseInt(values[2].split(":")[1]),
-                                0);
-
-                Line currentLine = lineAlreadyExist(completeNameLine);
-                if (!terminus.equals(currentLine.getTerminalStationDeparture().getName())) {
-                    throw new Exception(
-                            "Data given doesn't match\nThis line had "
-                                    + currentLine.getTerminalStationDeparture().getName()
-                                    + " as terminus start. The file has given "
-                                    + terminus
-                                    + " as terminus start station");
-                } else {
-                    currentLine.addStart(start);
+        updateRegistry();
+        Map<TimetableReader.Route, Line> lines = new IdentityHashMap<>();
+        for (TimetableReader.Chunk chunk : TimetableReader.read(file)) {
+            for (int row = 0; row < chunk.size(); row++) {
+                TimetableReader.Route route = chunk.route(row);
+                Line currentLine = lines.get(route);
+                if (currentLine == null) {
+                    currentLine = checkedLine(route);
+                    lines.put(route, currentLine);
                 }
+                int minutes = chunk.minutes(row);
+                currentLine.addStart(new Time(minutes / 60, minutes % 60, 0));
             }
-            reader.close();
         }
         this.fillStationsSchedulesFromTerminusLineStart();
     }
 
+    /**
+     * Returns the line of a timetable route, after checking that it starts from the same terminus.
+     *
+     * @param route the line, terminus and variant read from the timetable file
+     * @return the line of the route
+     * @throws Exception if the line doesn't exist in the database or has another terminus
+     */
+    private Line checkedLine(TimetableReader.Route route) throws Exception {
+        Line line = registry.getLine(route.getLineName());
+        if (line == null) {
+            throw new Exception("Line doesn't already exist in database");
+        }
+        String terminus = route.getTerminusName();
+        if (!terminus.equals(line.getTerminalStationDeparture().getName())) {
+            throw new Exception(
+                    "Data given doesn't match\nThis line had "
+                            + line.getTerminalStationDeparture().getName()
+                            + " as terminus start. The file has given "
+                            + terminus
+                            + " as terminus start station");
+        }
+        return line;
+    }
+
     /**
      * Fills in the schedule information for each station on each line, based on the start times and
-     * duration journeys between stations specified in the dataLine map.
+     * duration journeys between stations specified in the dataLine map. Every start of a line is a
+     * trip of the {@link TripTable} of the network, whose times at each station are added to the
+     * schedules. The network keeps the table for its searches, so it is built only once.
      */
     private void fillStationsSchedulesFromTerminusLineStart() {
-        Time timeToFillStationsSchedules = null;
-        int i = 0;
-        for (Line line : dataLine.keySet()) {
-            for (Time time : line.starts) {
-                timeToFillStationsSchedules = time;
-                i = 0;
-                for (DurationJourney dj : dataLine.get(line)) {
-                    line.allStations
-                            .get(i)
-                            .addSchedule(line, new Time(timeToFillStationsSchedules));
-                    timeToFillStationsSchedules =
-                            timeToFillStationsSchedules.increaseWithADurationJourney(dj);
-                    i++;
+        if (getNetwork() == null) setNetwork(new Network());
+        // the starts were added after the lines were given, the network drops what it built
+        getNetwork().setDataLine(dataLine);
+        TripTable trips = getNetwork().getTrips();
+        for (TripTable.PatternTrips patternTrips : trips.getPatterns()) {
+            StopPattern pattern = patternTrips.getPattern();
+            for (int trip = 0; trip < patternTrips.size(); trip++) {
+                for (int i = 0; i < pattern.size(); i++) {
+                    int seconds = ServiceTime.timeOfDay(patternTrips.departure(trip, i));
+                    pattern.getStation(i).addSchedule(pattern.getLine(), seconds);
                 }
-                line.allStations.get(i).addSchedule(line, new Time(timeToFillStationsSchedules));
             }
         }
     }
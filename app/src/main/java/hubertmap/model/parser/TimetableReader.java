@@ -0,0 +1,266 @@
+package hubertmap.model.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Reads the rows of a timetable file in parallel. The file is cut into byte ranges ending on a line
+ * break, and every range is tokenized directly from the bytes: a row only produces a string the
+ * first time its line, terminus and variant are met in the range, the departure time is parsed as a
+ * number of minutes.
+ *
+ * <p>The ranges are returned in file order, so reading them one after the other gives the rows in
+ * the same order as a sequential read.
+ */
+final class TimetableReader {
+
+    /** Ranges smaller than this are not worth a task of their own. */
+    private static final int MIN_CHUNK_SIZE = 64 * 1024;
+
+    private TimetableReader() {}
+
+    /**
+     * Returns the rows of the given file, grouped by byte range in file order.
+     *
+     * @param file the CSV file of the schedules
+     * @return the parsed ranges
+     * @throws IOException if the file can't be read
+     */
+    static List<Chunk> read(File file) throws IOException {
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        int[] bounds = split(bytes, Runtime.getRuntime().availableProcessors() * 4);
+        return IntStream.range(0, bounds.length - 1)
+                .parallel()
+                .mapToObj(i -> parse(bytes, bounds[i], bounds[i + 1]))
+                .toList();
+    }
+
+    /**
+     * Returns the limits of at most {@code count} ranges covering the bytes, every range but the
+     * last ending right after a line break.
+     */
+    private static int[] split(byte[] bytes, int count) {
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, bytes.length / Math.max(1, count) + 1);
+        int[] bounds = new int[bytes.length / chunkSize + 2];
+        int size = 1;
+        int position = 0;
+        while (position < bytes.length) {
+            int end = Math.min(bytes.length, position + chunkSize);
+            while (end < bytes.length && bytes[end - 1] != '\n') end++;
+            bounds[size++] = end;
+            position = end;
+        }
+        return Arrays.copyOf(bounds, size);
+    }
+
+    /** Parses the rows between {@code start} and {@code end}. */
+    private static Chunk parse(byte[] bytes, int start, int end) {
+        Chunk chunk = new Chunk();
+        int position = start;
+        while (position < end) {
+            int lineEnd = position;
+            while (lineEnd < end && bytes[lineEnd] != '\n') lineEnd++;
+            int next = lineEnd + 1;
+            if (lineEnd > position && bytes[lineEnd - 1] == '\r') lineEnd--;
+            if (lineEnd > position) chunk.parseRow(bytes, position, lineEnd);
+            position = next;
+        }
+        return chunk;
+    }
+
+    /** Returns the position of the next separator from {@code from}, or {@code end}. */
+    private static int field(byte[] bytes, int from, int end) {
+        while (from < end && bytes[from] != ';') from++;
+        return from;
+    }
+
+    /** The rows of one byte range. */
+    static final class Chunk {
+
+        private final List<Route> routes = new ArrayList<>();
+        /** The index plus one of the routes by hash, with linear probing. */
+        private int[] table = new int[64];
+
+        private int[] routeOf = new int[1024];
+        private int[] minuteOf = new int[1024];
+        private int size;
+
+        /**
+         * Returns the number of rows in the range.
+         *
+         * @return the number of rows
+         */
+        int size() {
+            return size;
+        }
+
+        /**
+         * Returns the line, terminus and variant of a row.
+         *
+         * @param row the index of the row in the range
+         * @return the route of the row
+         */
+        Route route(int row) {
+            return routes.get(routeOf[row]);
+        }
+
+        /**
+         * Returns the departure time of a row, in minutes since midnight.
+         *
+         * @param row the index of the row in the range
+         * @return the departure time of the row
+         */
+        int minutes(int row) {
+            return minuteOf[row];
+        }
+
+        /** Parses the row {@code line;terminus;hh:mm;variant}. */
+        private void parseRow(byte[] bytes, int start, int end) {
+            int lineEnd = field(bytes, start, end);
+            int terminusEnd = field(bytes, lineEnd + 1, end);
+            int timeEnd = field(bytes, terminusEnd + 1, end);
+            int variantEnd = field(bytes, timeEnd + 1, end);
+            if (timeEnd >= end) {
+                String row = new String(bytes, start, end - start, StandardCharsets.UTF_8);
+                throw new IllegalArgumentException("Ligne incomplète : " + row);
+            }
+            if (size == routeOf.length) {
+                routeOf = Arrays.copyOf(routeOf, size * 2);
+                minuteOf = Arrays.copyOf(minuteOf, size * 2);
+            }
+            routeOf[size] = routeIndex(bytes, start, lineEnd, terminusEnd, timeEnd + 1, variantEnd);
+            minuteOf[size] = parseMinutes(bytes, terminusEnd + 1, timeEnd);
+            size++;
+        }
+
+        /** Returns the index of the route of a row, adding it the first time it's met. */
+        private int routeIndex(
+                byte[] bytes,
+                int lineStart,
+                int lineEnd,
+                int terminusEnd,
+                int variantStart,
+                int variantEnd) {
+            int hash =
+                    hash(bytes, lineStart, terminusEnd) * 31
+                            + hash(bytes, variantStart, variantEnd);
+            int slot = hash & (table.length - 1);
+            for (int index = table[slot] - 1; index >= 0; index = table[slot] - 1) {
+                Route route = routes.get(index);
+                if (route.hash == hash
+                        && route.matches(
+                                bytes, lineStart, lineEnd, terminusEnd, variantStart, variantEnd)) {
+                    return index;
+                }
+                slot = (slot + 1) & (table.length - 1);
+            }
+            routes.add(
+                    new Route(
+                            hash,
+                            Arrays.copyOfRange(bytes, lineStart, lineEnd),
+                            Arrays.copyOfRange(bytes, lineEnd + 1, terminusEnd),
+                            Arrays.copyOfRange(bytes, variantStart, variantEnd)));
+            table[slot] = routes.size();
+            if (routes.size() * 2 > table.length) rehash();
+            return routes.size() - 1;
+        }
+
+        /** Doubles the hash table of the routes. */
+        private void rehash() {
+            table = new int[table.length * 2];
+            for (int index = 0; index < routes.size(); index++) {
+                int slot = routes.get(index).hash & (table.length - 1);
+                while (table[slot] != 0) slot = (slot + 1) & (table.length - 1);
+                table[slot] = index + 1;
+            }
+        }
+
+        private static int hash(byte[] bytes, int start, int end) {
+            int hash = 1;
+            for (int i = start; i < end; i++) hash = hash * 31 + bytes[i];
+            return hash;
+        }
+
+        /** Parses {@code h:mm} or {@code hh:mm} into minutes since midnight. */
+        private static int parseMinutes(byte[] bytes, int start, int end) {
+            int hours = 0;
+            int position = start;
+            while (position < end && bytes[position] != ':') {
+                hours = hours * 10 + digit(bytes, position++);
+            }
+            int minutes = 0;
+            for (position++; position < end; position++) {
+                minutes = minutes * 10 + digit(bytes, position);
+            }
+            return hours * 60 + minutes;
+        }
+
+        private static int digit(byte[] bytes, int position) {
+            int digit = bytes[position] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Horaire invalide à l'octet " + position);
+            }
+            return digit;
+        }
+    }
+
+    /** The line, terminus and variant shared by many rows. */
+    static final class Route {
+
+        private final int hash;
+        private final byte[] line;
+        private final byte[] terminus;
+        private final byte[] variant;
+        private final String lineName;
+        private final String terminusName;
+
+        private Route(int hash, byte[] line, byte[] terminus, byte[] variant) {
+            this.hash = hash;
+            this.line = line;
+            this.terminus = terminus;
+            this.variant = variant;
+            this.lineName =
+                    new String(line, StandardCharsets.UTF_8)
+                            + " variant "
+                            + new String(variant, StandardCharsets.UTF_8);
+            this.terminusName = new String(terminus, StandardCharsets.UTF_8);
+        }
+
+        /** Returns true if the route has the given line, terminus and variant. */
+        private boolean matches(
+                byte[] bytes,
+                int lineStart,
+                int lineEnd,
+                int terminusEnd,
+                int variantStart,
+                int variantEnd) {
+            return Arrays.equals(line, 0, line.length, bytes, lineStart, lineEnd)
+                    && Arrays.equals(terminus, 0, terminus.length, bytes, lineEnd + 1, terminusEnd)
+                    && Arrays.equals(variant, 0, variant.length, bytes, variantStart, variantEnd);
+        }
+
+        /**
+         * Returns the complete name of the line, with its variant.
+         *
+         * @return the name of the line
+         */
+        String getLineName() {
+            return lineName;
+        }
+
+        /**
+         * Returns the name of the terminus the line starts from.
+         *
+         * @return the name of the terminus
+         */
+        String getTerminusName() {
+            return terminusName;
+        }
+    }
+}
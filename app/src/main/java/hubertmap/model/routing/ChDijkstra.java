@@ -0,0 +1,219 @@
+package hubertmap.model.routing;
+
+import hubertmap.model.transport.VertexTransport;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The ChDijkstra class answers shortest path queries on a {@link ContractionHierarchy}. Two
+ * searches climb the hierarchy, one from each end of the path, and the path goes through the vertex
+ * where they meet at the lowest cost. Its shortcuts are then unpacked to the edges of the network.
+ * As with {@link CsrDijkstra}, an instance keeps its search state between queries and must not be
+ * used by two threads at the same time.
+ */
+public final class ChDijkstra {
+
+    private final ContractionHierarchy hierarchy;
+    private final Search forward;
+    private final Search backward;
+
+    /**
+     * Constructs the search state for the given hierarchy.
+     *
+     * @param hierarchy the hierarchy to search
+     */
+    public ChDijkstra(ContractionHierarchy hierarchy) {
+        this.hierarchy = hierarchy;
+        int n = hierarchy.getGraph().size();
+        forward = new Search(n);
+        backward = new Search(n);
+    }
+
+    /**
+     * Returns the hierarchy searched by this instance.
+     *
+     * @return the hierarchy searched
+     */
+    public ContractionHierarchy getHierarchy() {
+        return hierarchy;
+    }
+
+    /**
+     * Calculates the shortest path between two vertices of the graph.
+     *
+     * @param from the starting vertex
+     * @param to the destination vertex
+     * @return the legs of the path in travel order, or an empty list if there is none
+     */
+    public List<PathLeg> shortestPath(VertexTransport from, VertexTransport to) {
+        return shortestPath(from, Collections.emptyList(), to, Collections.emptyList());
+    }
+
+    /**
+     * Calculates the shortest path between two vertices that may be outside of the graph, linked to
+     * it by legs only used for this query, as {@link CsrDijkstra#shortestPath(VertexTransport,
+     * List, VertexTransport, List)} does.
+     *
+     * @param from the starting vertex
+     * @param access the legs from the starting vertex, ignored if it is in the graph
+     * @param to the destination vertex
+     * @param egress the legs to the destination vertex, ignored if it is in the graph
+     * @return the legs of the path in travel order, or an empty list if there is none
+     */
+    public List<PathLeg> shortestPath(
+            VertexTransport from, List<PathLeg> access, VertexTransport to, List<PathLeg> egress) {
+        List<PathLeg> path = new ArrayList<>();
+        if (from == to) return path;
+        CsrGraph graph = hierarchy.getGraph();
+        int source = graph.idOf(from);
+        int target = graph.idOf(to);
+        PathLeg[] sourceLegs = source == -1 ? CsrDijkstra.legsByVertex(graph, access, true) : null;
+        PathLeg[] targetLegs = target == -1 ? CsrDijkstra.legsByVertex(graph, egress, false) : null;
+        if ((source == -1 && sourceLegs == null) || (target == -1 && targetLegs == null)) {
+            return path;
+        }
+        forward.seed(source, sourceLegs);
+        backward.seed(target, targetLegs);
+
+        float best = Float.POSITIVE_INFINITY;
+        int meeting = -1;
+        while (true) {
+            float forwardMin = forward.minKey();
+            float backwardMin = backward.minKey();
+            if (Math.min(forwardMin, backwardMin) >= best) break;
+            Search search = forwardMin <= backwardMin ? forward : backward;
+            Search other = search == forward ? backward : forward;
+            int v = search.pop();
+            float d = search.distance[v];
+            if (other.reached(v) && d + other.distance[v] < best) {
+                best = d + other.distance[v];
+                meeting = v;
+            }
+            search.relax(v, d);
+        }
+        if (meeting == -1) return path;
+
+        // climbs back from the meeting vertex to the source, then down to the target
+        List<PathLeg> climb = new ArrayList<>();
+        int v = meeting;
+        for (; forward.parent[v] != -1; v = forward.parent[v]) {
+            List<PathLeg> arc = new ArrayList<>();
+            int parent = forward.parent[v];
+            hierarchy.unpack(parent, v, hierarchy.upMiddle(forward.parentArc[v]), arc);
+            Collections.reverse(arc);
+            climb.addAll(arc);
+        }
+        if (sourceLegs != null) climb.add(sourceLegs[v]);
+        Collections.reverse(climb);
+        path.addAll(climb);
+        for (v = meeting; backward.parent[v] != -1; v = backward.parent[v]) {
+            int parent = backward.parent[v];
+            hierarchy.unpack(v, parent, hierarchy.upMiddle(backward.parentArc[v]), path);
+        }
+        if (targetLegs != null) path.add(targetLegs[v]);
+        return path;
+    }
+
+    /** The state of the search from one end of the path. */
+    private final class Search {
+        private final float[] distance;
+        private final int[] parent;
+        private final int[] parentArc;
+        private final int[] stamp;
+        private int currentStamp;
+        private int[] heapVertices = new int[64];
+        private float[] heapKeys = new float[64];
+        private int heapSize;
+
+        Search(int n) {
+            distance = new float[n];
+            parent = new int[n];
+            parentArc = new int[n];
+            stamp = new int[n];
+        }
+
+        /** Starts a new search from a vertex of the graph or from the given legs. */
+        void seed(int vertex, PathLeg[] legs) {
+            currentStamp++;
+            if (currentStamp == Integer.MAX_VALUE) {
+                Arrays.fill(stamp, 0);
+                currentStamp = 1;
+            }
+            heapSize = 0;
+            if (legs == null) {
+                reach(vertex, 0f, -1, -1);
+            } else {
+                for (int v = 0; v < legs.length; v++) {
+                    if (legs[v] != null) reach(v, CsrDijkstra.weight(legs[v]), -1, -1);
+                }
+            }
+        }
+
+        boolean reached(int v) {
+            return stamp[v] == currentStamp;
+        }
+
+        /** Returns the key of the next vertex to settle, skipping outdated heap entries. */
+        float minKey() {
+            while (heapSize > 0 && heapKeys[0] > distance[heapVertices[0]]) {
+                pop();
+            }
+            return heapSize > 0 ? heapKeys[0] : Float.POSITIVE_INFINITY;
+        }
+
+        /** Relaxes the upward arcs of a settled vertex. */
+        void relax(int v, float d) {
+            for (int arc = hierarchy.upStart(v); arc < hierarchy.upEnd(v); arc++) {
+                int w = hierarchy.upTarget(arc);
+                float candidate = d + hierarchy.upWeight(arc);
+                if (!reached(w) || candidate < distance[w]) {
+                    reach(w, candidate, v, arc);
+                }
+            }
+        }
+
+        private void reach(int v, float d, int from, int arc) {
+            stamp[v] = currentStamp;
+            distance[v] = d;
+            parent[v] = from;
+            parentArc[v] = arc;
+            push(v, d);
+        }
+
+        private void push(int v, float key) {
+            if (heapSize == heapVertices.length) {
+                heapVertices = Arrays.copyOf(heapVertices, heapSize * 2);
+                heapKeys = Arrays.copyOf(heapKeys, heapSize * 2);
+            }
+            int i = heapSize++;
+            while (i > 0 && heapKeys[(i - 1) >>> 1] > key) {
+                heapVertices[i] = heapVertices[(i - 1) >>> 1];
+                heapKeys[i] = heapKeys[(i - 1) >>> 1];
+                i = (i - 1) >>> 1;
+            }
+            heapVertices[i] = v;
+            heapKeys[i] = key;
+        }
+
+        int pop() {
+            int top = heapVertices[0];
+            int v = heapVertices[--heapSize];
+            float key = heapKeys[heapSize];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= heapSize) break;
+                if (child + 1 < heapSize && heapKeys[child + 1] < heapKeys[child]) child++;
+                if (heapKeys[child] >= key) break;
+                heapVertices[i] = heapVertices[child];
+                heapKeys[i] = heapKeys[child];
+                i = child;
+            }
+            heapVertices[i] = v;
+            heapKeys[i] = key;
+            return top;
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package hubertmap.model.routing;
+
+import hubertmap.model.DurationJourney;
+import hubertmap.model.Time;
+import hubertmap.model.transport.Line;
+import hubertmap.model.transport.Network;
+import hubertmap.model.transport.Station;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The ConnectionScan class answers earliest arrival queries on the timetable of a network with the
+ * Connection Scan Algorithm. Every departure of every line between two consecutive stations is a
+ * connection, and all the connections are stored in one array sorted by departure time, so that a
+ * query is a single linear scan starting at the requested departure time.
+ */
+public class ConnectionScan {
+
+    /** Number of ints used to store one connection. */
+    private static final int FIELDS = 5;
+
+    private static final int DEP_STOP = 0;
+    private static final int ARR_STOP = 1;
+    private static final int DEP_TIME = 2;
+    private static final int ARR_TIME = 3;
+    private static final int TRIP = 4;
+
+    /** The arrival time at a stop that can't be reached. */
+    static final int UNREACHED = Integer.MAX_VALUE;
+
+    private final StopIndex stops;
+
+    /** The connections sorted by departure time, FIELDS ints per connection. */
+    private final int[] connections;
+
+    private final int connectionCount;
+
+    /** The line variant of every trip. */
+    private final Line[] tripLines;
+
+    /**
+     * Constructs the connection array from the lines of the network, their starting times and the
+     * duration of the journey between their stations.
+     *
+     * @param network the network with its lines and timetables
+     */
+    public ConnectionScan(Network network) {
+        stops = new StopIndex(network);
+
+        List<Line> trips = new ArrayList<>();
+        int[] unsorted = new int[FIELDS * 1024];
+        int count = 0;
+        for (Line line : StopIndex.sortedLines(network)) {
+            List<DurationJourney> durations = network.getDataLine().get(line);
+            List<Station> lineStations = line.getAllStations();
+            int hops = Math.min(durations.size(), lineStations.size() - 1);
+            for (Time start : line.starts) {
+                int trip = trips.size();
+                trips.add(line);
+                int time = start.toSeconds();
+                for (int i = 0; i < hops; i++) {
+                    int arrival = time + durations.get(i).toSeconds();
+                    if (unsorted.length < (count + 1) * FIELDS) {
+                        unsorted = Arrays.copyOf(unsorted, unsorted.length * 2);
+                    }
+                    int c = count * FIELDS;
+                    unsorted[c + DEP_STOP] = stops.idOf(lineStations.get(i));
+                    unsorted[c + ARR_STOP] = stops.idOf(lineStations.get(i + 1));
+                    unsorted[c + DEP_TIME] = time;
+                    unsorted[c + ARR_TIME] = arrival;
+                    unsorted[c + TRIP] = trip;
+                    count++;
+                    time = arrival;
+                }
+            }
+        }
+
+        // sorting by departure then by creation order keeps the connections of a trip in order
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = ((long) unsorted[i * FIELDS + DEP_TIME] << 32) | i;
+        }
+        Arrays.sort(keys);
+        connections = new int[count * FIELDS];
+        for (int i = 0; i < count; i++) {
+            int from = (int) keys[i] * FIELDS;
+            System.arraycopy(unsorted, from, connections, i * FIELDS, FIELDS);
+        }
+        connectionCount = count;
+        tripLines = trips.toArray(new Line[0]);
+    }
+
+    /**
+     * Returns the number of connections in the timetable.
+     *
+     * @return the number of connections
+     */
+    public int getConnectionCount() {
+        return connectionCount;
+    }
+
+    /**
+     * Computes the journey arriving the earliest at the destination station when leaving the
+     * departure station at the given time. Every platform of a station with the given name can be
+     * used, and changing platform at the extremities of the journey is free.
+     *
+     * @param from name of the departure station
+     * @param to name of the destination station
+     * @param departure the time at which the traveller is at the departure station
+     * @return the journey, or null if a station is unknown or the destination can't be reached
+     */
+    public Journey earliestArrival(String from, String to, Time departure) {
+        int[] origins = stops.idsNamed(from);
+        int[] targets = stops.idsNamed(to);
+        if (origins == null || targets == null) return null;
+        return earliestArrival(origins, targets, departure.toSeconds());
+    }
+
+    /**
+     * Runs the scan from the given stops and builds the journey to the best target stop.
+     *
+     * @param origins ids of the stops where the traveller is at the departure time
+     * @param targets ids of the stops where the traveller wants to go
+     * @param departure the departure time in seconds since midnight
+     * @return the journey, or null if no target can be reached
+     */
+    Journey earliestArrival(int[] origins, int[] targets, int departure) {
+        int n = stops.size();
+        int[] arrival = new int[n];
+        int[] inConnection = new int[n];
+        int[] boardConnection = new int[n];
+        int[] inTransfer = new int[n];
+        int[] tripBoarded = new int[tripLines.length];
+        boolean[] target = new boolean[n];
+        Arrays.fill(arrival, UNREACHED);
+        Arrays.fill(inConnection, -1);
+        Arrays.fill(inTransfer, -1);
+        Arrays.fill(tripBoarded, -1);
+
+        int best = UNREACHED;
+        for (int t : targets) {
+            target[t] = true;
+        }
+        for (int o : origins) {
+            arrival[o] = departure;
+            if (target[o]) best = departure;
+        }
+
+        for (int c = firstConnectionAfter(departure); c < connectionCount; c++) {
+            int base = c * FIELDS;
+            int depTime = connections[base + DEP_TIME];
+            if (depTime >= best) break;
+
+            int trip = connections[base + TRIP];
+            if (tripBoarded[trip] == -1) {
+                if (arrival[connections[base + DEP_STOP]] > depTime) continue;
+                tripBoarded[trip] = c;
+            }
+
+            int arrStop = connections[base + ARR_STOP];
+            int arrTime = connections[base + ARR_TIME];
+            if (arrTime < arrival[arrStop]) {
+                arrival[arrStop] = arrTime;
+                inConnection[arrStop] = c;
+                boardConnection[arrStop] = tripBoarded[trip];
+                inTransfer[arrStop] = -1;
+                if (target[arrStop]) best = Math.min(best, arrTime);
+
+                for (int i = stops.transferStart(arrStop); i < stops.transferEnd(arrStop); i++) {
+                    int other = stops.transferTarget(i);
+                    int time = arrTime + stops.transferSeconds(i);
+                    if (time < arrival[other]) {
+                        arrival[other] = time;
+                        inConnection[other] = -1;
+                        inTransfer[other] = arrStop;
+                        if (target[other]) best = Math.min(best, time);
+                    }
+                }
+            }
+        }
+
+        if (best == UNREACHED) return null;
+        int stop = -1;
+        for (int t : targets) {
+            if (arrival[t] == best) {
+                stop = t;
+                break;
+            }
+        }
+
+        List<Leg> legs = new ArrayList<>();
+        while ((inConnection[stop] != -1 || inTransfer[stop] != -1) && legs.size() <= n) {
+            if (inTransfer[stop] != -1) {
+                int previous = inTransfer[stop];
+                legs.add(
+                        new Leg(
+                                Leg.CHANGE,
+                                null,
+                                stops.station(previous),
+                                stops.station(stop),
+                                arrival[previous],
+                                arrival[stop]));
+                stop = previous;
+            } else {
+                int board = boardConnection[stop] * FIELDS;
+                int alight = inConnection[stop] * FIELDS;
+                Line line = tripLines[connections[board + TRIP]];
+                int boardStop = connections[board + DEP_STOP];
+                legs.add(
+                        new Leg(
+                                line.getName().split(" ")[0],
+                                line,
+                                stops.station(boardStop),
+                                stops.station(stop),
+                                connections[board + DEP_TIME],
+                                connections[alight + ARR_TIME]));
+                stop = boardStop;
+            }
+        }
+        Collections.reverse(legs);
+        return new Journey(legs, departure, best);
+    }
+
+    /**
+     * Returns the number of stops of the timetable.
+     *
+     * @return the number of stops
+     */
+    int getStopCount() {
+        return stops.size();
+    }
+
+    /**
+     * Returns the number of trips of the timetable.
+     *
+     * @return the number of trips
+     */
+    int getTripCount() {
+        return tripLines.length;
+    }
+
+    /**
+     * Returns the ids of every platform of the station with the given name.
+     *
+     * @param name the name of the station, case insensitive
+     * @return the ids of the platforms, or null if no station has this name
+     */
+    int[] stopsNamed(String name) {
+        return stops.idsNamed(name);
+    }
+
+    /**
+     * Returns the id of a station.
+     *
+     * @param station the station to look up
+     * @return the id of the station, or -1 if it is not served by any line
+     */
+    int stopOf(Station station) {
+        return stops.idOf(station);
+    }
+
+    /**
+     * Returns the station with the given id.
+     *
+     * @param stop the id of the station
+     * @return the station
+     */
+    Station stationOf(int stop) {
+        return stops.station(stop);
+    }
+
+    /**
+     * Runs the scan from the stops already reached until the earliest arrival time at every target
+     * stop is known, without building any journey. Unlike {@link #earliestArrival(int[], int[],
+     * int)}, the scan only stops once every target is reached and the next connections leave after
+     * the latest of their arrival times at that moment, or at the limit. This bound is computed
+     * once, so the scan stays linear in the number of connections whatever the number of targets.
+     *
+     * @param departure the departure time in seconds since midnight
+     * @param limit the time from which connections are ignored, {@link #UNREACHED} for none
+     * @param arrival the arrival time at every stop, set for the origins and {@link #UNREACHED}
+     *     elsewhere, which receives the earliest arrival times
+     * @param target true for the stops whose arrival time is needed, or null for every stop
+     * @param boarded one flag per trip, all false, set for the trips that could be boarded
+     */
+    void arrivalsFrom(
+            int departure, int limit, int[] arrival, boolean[] target, boolean[] boarded) {
+        int unreached = 0;
+        if (target != null) {
+            for (int s = 0; s < target.length; s++) {
+                if (target[s] && arrival[s] == UNREACHED) unreached++;
+            }
+        }
+        // once the targets are all reached, their arrival times only decrease, so a connection
+        // leaving after the latest of them can't improve any of them
+        boolean bounded = target != null && unreached == 0;
+        int latest = bounded ? Math.min(limit, latestArrival(arrival, target)) : limit;
+
+        for (int c = firstConnectionAfter(departure); c < connectionCount; c++) {
+            int base = c * FIELDS;
+            int depTime = connections[base + DEP_TIME];
+            if (depTime >= latest) break;
+
+            int trip = connections[base + TRIP];
+            if (!boarded[trip]) {
+                if (arrival[connections[base + DEP_STOP]] > depTime) continue;
+                boarded[trip] = true;
+            }
+
+            int arrStop = connections[base + ARR_STOP];
+            int arrTime = connections[base + ARR_TIME];
+            if (arrTime < arrival[arrStop]) {
+                if (target != null && target[arrStop] && arrival[arrStop] == UNREACHED) {
+                    unreached--;
+                }
+                arrival[arrStop] = arrTime;
+                for (int i = stops.transferStart(arrStop); i < stops.transferEnd(arrStop); i++) {
+                    int other = stops.transferTarget(i);
+                    int time = arrTime + stops.transferSeconds(i);
+                    if (time < arrival[other]) {
+                        if (target != null && target[other] && arrival[other] == UNREACHED) {
+                            unreached--;
+                        }
+                        arrival[other] = time;
+                    }
+                }
+                if (!bounded && target != null && unreached == 0) {
+                    bounded = true;
+                    latest = Math.min(limit, latestArrival(arrival, target));
+                }
+            }
+        }
+    }
+
+    /** Returns the latest arrival time at the target stops. */
+    private static int latestArrival(int[] arrival, boolean[] target) {
+        int latest = 0;
+        for (int s = 0; s < target.length; s++) {
+            if (target[s]) latest = Math.max(latest, arrival[s]);
+        }
+        return latest;
+    }
+
+    /**
+     * Returns the index of the first connection leaving at or after the given time.
+     *
+     * @param time the time in seconds since midnight
+     * @return the index of the first connection, or the number of connections if there is none
+     */
+    private int firstConnectionAfter(int time) {
+        int low = 0;
+        int high = connectionCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (connections[mid * FIELDS + DEP_TIME] < time) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+}
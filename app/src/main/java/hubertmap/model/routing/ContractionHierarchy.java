@@ -0,0 +1,600 @@
+package hubertmap.model.routing;
+
+import hubertmap.model.transport.VertexTransport;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+
+/**
+ * The ContractionHierarchy class is a preprocessed copy of a {@link CsrGraph} answering shortest
+ * path queries by only searching upwards. Vertices are contracted one after the other, from the
+ * least to the most important; contracting a vertex adds a shortcut between two of its neighbours
+ * when it lay on their only shortest path. Each vertex then keeps its arcs towards the vertices
+ * contracted after it, and a shortest path always climbs from both of its ends to a common vertex.
+ *
+ * <p>Contraction works in rounds: every round contracts in parallel a set of vertices that are not
+ * neighbours and whose priority is lower than the one of all their neighbours.
+ */
+public final class ContractionHierarchy {
+
+    /** Identifies hierarchy files. */
+    private static final int MAGIC = 0x48424348;
+
+    /** Incremented every time the layout of the file changes. */
+    static final int VERSION = 1;
+
+    /** The number of vertices a witness search settles before giving up and adding a shortcut. */
+    private static final int WITNESS_SETTLE_LIMIT = 500;
+
+    private final CsrGraph graph;
+
+    /** The upward arcs of vertex v are stored from upStart[v] to upStart[v + 1]. */
+    private final int[] upStart;
+
+    private final int[] upTarget;
+    private final float[] upWeight;
+
+    /** The vertex skipped by every upward arc, or -1 if the arc is an arc of the graph. */
+    private final int[] upMiddle;
+
+    private ContractionHierarchy(
+            CsrGraph graph, int[] upStart, int[] upTarget, float[] upWeight, int[] upMiddle) {
+        this.graph = graph;
+        this.upStart = upStart;
+        this.upTarget = upTarget;
+        this.upWeight = upWeight;
+        this.upMiddle = upMiddle;
+    }
+
+    /**
+     * Contracts the given graph using all available cores.
+     *
+     * @param graph the graph to preprocess
+     * @return the hierarchy of the graph
+     */
+    public static ContractionHierarchy build(CsrGraph graph) {
+        return new Contraction(graph).run();
+    }
+
+    /**
+     * Loads the hierarchy of the graph from the given file, or builds it and saves it in the file
+     * if the file is missing or was made for another graph. A failed save only prints an error
+     * message.
+     *
+     * @param graph the graph to preprocess
+     * @param file the hierarchy file
+     * @return the hierarchy of the graph
+     */
+    public static ContractionHierarchy loadOrBuild(CsrGraph graph, File file) {
+        ContractionHierarchy hierarchy = read(file, graph);
+        if (hierarchy == null) {
+            hierarchy = build(graph);
+            try {
+                hierarchy.write(file);
+            } catch (IOException e) {
+                System.out.println("La hiérarchie n'a pas pu être sauvegardée : " + e.getMessage());
+            }
+        }
+        return hierarchy;
+    }
+
+    /**
+     * Returns the graph this hierarchy was built from.
+     *
+     * @return the graph of the hierarchy
+     */
+    public CsrGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Returns the number of shortcuts added by the contraction.
+     *
+     * @return the number of shortcuts
+     */
+    public int getShortcutCount() {
+        int count = 0;
+        for (int middle : upMiddle) {
+            if (middle != -1) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the first upward arc of a vertex.
+     *
+     * @param v the id of the vertex
+     * @return the index of its first upward arc
+     */
+    int upStart(int v) {
+        return upStart[v];
+    }
+
+    /**
+     * Returns the index following the last upward arc of a vertex.
+     *
+     * @param v the id of the vertex
+     * @return the end of its upward arcs
+     */
+    int upEnd(int v) {
+        return upStart[v + 1];
+    }
+
+    /**
+     * Returns the vertex an upward arc leads to.
+     *
+     * @param arc the index of the arc
+     * @return the id of the target vertex
+     */
+    int upTarget(int arc) {
+        return upTarget[arc];
+    }
+
+    /**
+     * Returns the weight of an upward arc.
+     *
+     * @param arc the index of the arc
+     * @return the weight of the arc
+     */
+    float upWeight(int arc) {
+        return upWeight[arc];
+    }
+
+    /**
+     * Returns the vertex skipped by an upward arc.
+     *
+     * @param arc the index of the arc
+     * @return the id of the skipped vertex, or -1 if the arc is an arc of the graph
+     */
+    int upMiddle(int arc) {
+        return upMiddle[arc];
+    }
+
+    /**
+     * Adds to the list the legs of the graph making up the arc between two vertices.
+     *
+     * @param from the id of the vertex the arc is travelled from
+     * @param to the id of the vertex the arc is travelled to
+     * @param middle the vertex skipped by the arc, or -1 if it is an arc of the graph
+     * @param legs the list to add the legs to, in travel order
+     */
+    void unpack(int from, int to, int middle, List<PathLeg> legs) {
+        if (middle == -1) {
+            int best = -1;
+            for (int arc = graph.arcStart(from); arc < graph.arcEnd(from); arc++) {
+                if (graph.arcTarget(arc) == to
+                        && (best == -1 || graph.arcWeight(arc) < graph.arcWeight(best))) {
+                    best = arc;
+                }
+            }
+            legs.add(new PathLeg(graph.arcEdge(best), graph.vertex(from), graph.vertex(to)));
+        } else {
+            // the skipped vertex was contracted first, both halves are among its upward arcs
+            unpack(from, middle, middleBetween(middle, from), legs);
+            unpack(middle, to, middleBetween(middle, to), legs);
+        }
+    }
+
+    private int middleBetween(int lower, int higher) {
+        for (int arc = upStart[lower]; arc < upStart[lower + 1]; arc++) {
+            if (upTarget[arc] == higher) return upMiddle[arc];
+        }
+        throw new IllegalStateException("Missing arc " + lower + " - " + higher);
+    }
+
+    /**
+     * Saves the hierarchy in the given file. The file is written next to its final location and
+     * then renamed, so an interrupted write never leaves a truncated file.
+     *
+     * @param file the hierarchy file
+     * @throws IOException if the file can't be written
+     */
+    public void write(File file) throws IOException {
+        File temporary = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out =
+                new DataOutputStream(
+                        new BufferedOutputStream(new FileOutputStream(temporary), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(fingerprint(graph));
+            out.writeInt(upStart.length - 1);
+            out.writeInt(upTarget.length);
+            for (int v = 1; v < upStart.length; v++) {
+                out.writeInt(upStart[v]);
+            }
+            for (int arc = 0; arc < upTarget.length; arc++) {
+                out.writeInt(upTarget[arc]);
+                out.writeFloat(upWeight[arc]);
+                out.writeInt(upMiddle[arc]);
+            }
+        }
+        Files.move(
+                temporary.toPath(),
+                file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads the hierarchy of the graph saved in the given file.
+     *
+     * @param file the hierarchy file
+     * @param graph the graph the hierarchy must have been built from
+     * @return the hierarchy, or null if the file doesn't exist, is from another version, was built
+     *     from another graph or is corrupted
+     */
+    public static ContractionHierarchy read(File file, CsrGraph graph) {
+        if (file == null || !file.isFile()) return null;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.getInt() != MAGIC
+                    || in.getInt() != VERSION
+                    || in.getLong() != fingerprint(graph)
+                    || in.getInt() != graph.size()) {
+                return null;
+            }
+            int n = graph.size();
+            int m = in.getInt();
+            int[] upStart = new int[n + 1];
+            for (int v = 1; v <= n; v++) {
+                upStart[v] = in.getInt();
+            }
+            int[] upTarget = new int[m];
+            float[] upWeight = new float[m];
+            int[] upMiddle = new int[m];
+            for (int arc = 0; arc < m; arc++) {
+                upTarget[arc] = in.getInt();
+                upWeight[arc] = in.getFloat();
+                upMiddle[arc] = in.getInt();
+            }
+            return new ContractionHierarchy(graph, upStart, upTarget, upWeight, upMiddle);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns a checksum of the vertices and arcs of the graph, independent of the order of the
+     * arcs of each vertex.
+     */
+    private static long fingerprint(CsrGraph graph) {
+        CRC32 crc = new CRC32();
+        for (int v = 0; v < graph.size(); v++) {
+            VertexTransport vertex = graph.vertex(v);
+            crc.update(vertex.getName().getBytes(StandardCharsets.UTF_8));
+            long arcs = 0;
+            for (int arc = graph.arcStart(v); arc < graph.arcEnd(v); arc++) {
+                long bits = graph.arcTarget(arc) * 31L + Float.floatToIntBits(graph.arcWeight(arc));
+                arcs += bits * 0x9E3779B97F4A7C15L ^ (bits >>> 17);
+            }
+            for (int i = 0; i < 8; i++) {
+                crc.update((int) (arcs >>> (8 * i)));
+            }
+        }
+        return crc.getValue();
+    }
+
+    /** The state of the contraction of a graph. */
+    private static final class Contraction {
+
+        private final CsrGraph graph;
+        private final int n;
+
+        /** The neighbours of every vertex, with the weight and skipped vertex of the arc. */
+        private final int[][] neighbours;
+
+        private final float[][] weights;
+        private final int[][] middles;
+        private final int[] degree;
+
+        private final boolean[] contracted;
+        private final boolean[] contracting;
+        private final int[] contractedNeighbours;
+        private final float[] priority;
+
+        private final int[][] upArcs;
+        private final float[][] upWeights;
+        private final int[][] upMiddles;
+
+        private final ThreadLocal<WitnessSearch> witnessSearches;
+
+        Contraction(CsrGraph graph) {
+            this.graph = graph;
+            n = graph.size();
+            neighbours = new int[n][];
+            weights = new float[n][];
+            middles = new int[n][];
+            degree = new int[n];
+            for (int v = 0; v < n; v++) {
+                int size = graph.arcEnd(v) - graph.arcStart(v);
+                neighbours[v] = new int[Math.max(4, size)];
+                weights[v] = new float[neighbours[v].length];
+                middles[v] = new int[neighbours[v].length];
+                for (int arc = graph.arcStart(v); arc < graph.arcEnd(v); arc++) {
+                    if (graph.arcTarget(arc) != v) {
+                        connect(v, graph.arcTarget(arc), graph.arcWeight(arc), -1);
+                    }
+                }
+            }
+            contracted = new boolean[n];
+            contracting = new boolean[n];
+            contractedNeighbours = new int[n];
+            priority = new float[n];
+            upArcs = new int[n][];
+            upWeights = new float[n][];
+            upMiddles = new int[n][];
+            witnessSearches = ThreadLocal.withInitial(() -> new WitnessSearch(n));
+        }
+
+        /** Contracts every vertex and returns the resulting hierarchy. */
+        ContractionHierarchy run() {
+            IntStream.range(0, n).parallel().forEach(this::updatePriority);
+            int[] remaining = IntStream.range(0, n).toArray();
+            while (remaining.length > 0) {
+                int[] set =
+                        IntStream.of(remaining).parallel().filter(this::isLocalMinimum).toArray();
+                for (int v : set) {
+                    contracting[v] = true;
+                }
+                List<List<Shortcut>> shortcuts =
+                        IntStream.of(set)
+                                .parallel()
+                                .mapToObj(v -> shortcuts(v, true))
+                                .collect(Collectors.toList());
+
+                for (int v : set) {
+                    keepUpwardArcs(v);
+                }
+                for (int i = 0; i < set.length; i++) {
+                    contracted[set[i]] = true;
+                    contracting[set[i]] = false;
+                    for (Shortcut shortcut : shortcuts.get(i)) {
+                        connect(shortcut.from, shortcut.to, shortcut.weight, set[i]);
+                        connect(shortcut.to, shortcut.from, shortcut.weight, set[i]);
+                    }
+                }
+                boolean[] touched = new boolean[n];
+                for (int v : set) {
+                    for (int i = 0; i < degree[v]; i++) {
+                        int u = neighbours[v][i];
+                        if (!contracted[u]) {
+                            contractedNeighbours[u]++;
+                            touched[u] = true;
+                        }
+                    }
+                }
+                IntStream.range(0, n)
+                        .parallel()
+                        .filter(v -> touched[v])
+                        .forEach(this::updatePriority);
+                remaining = IntStream.of(remaining).filter(v -> !contracted[v]).toArray();
+            }
+            return toHierarchy();
+        }
+
+        /** Returns true if the vertex is more urgent to contract than all its neighbours. */
+        private boolean isLocalMinimum(int v) {
+            for (int i = 0; i < degree[v]; i++) {
+                int u = neighbours[v][i];
+                if (contracted[u]) continue;
+                if (priority[u] < priority[v] || priority[u] == priority[v] && u < v) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /** Sets the priority of a vertex from the edge difference of its contraction. */
+        private void updatePriority(int v) {
+            int active = 0;
+            for (int i = 0; i < degree[v]; i++) {
+                if (!contracted[neighbours[v][i]]) active++;
+            }
+            priority[v] = shortcuts(v, false).size() - active + contractedNeighbours[v];
+        }
+
+        /**
+         * Returns the shortcuts needed to contract a vertex.
+         *
+         * @param v the vertex to contract
+         * @param skipContracting true to also avoid the other vertices of the round
+         */
+        private List<Shortcut> shortcuts(int v, boolean skipContracting) {
+            List<Shortcut> shortcuts = new ArrayList<>();
+            WitnessSearch search = witnessSearches.get();
+            for (int i = 0; i < degree[v]; i++) {
+                int u = neighbours[v][i];
+                if (contracted[u]) continue;
+                float limit = 0;
+                for (int j = i + 1; j < degree[v]; j++) {
+                    if (!contracted[neighbours[v][j]]) {
+                        limit = Math.max(limit, weights[v][i] + weights[v][j]);
+                    }
+                }
+                if (limit == 0) continue;
+                search.run(u, v, limit, skipContracting);
+                for (int j = i + 1; j < degree[v]; j++) {
+                    int w = neighbours[v][j];
+                    if (contracted[w]) continue;
+                    float via = weights[v][i] + weights[v][j];
+                    if (search.distance(w) > via) {
+                        shortcuts.add(new Shortcut(u, w, via));
+                    }
+                }
+            }
+            return shortcuts;
+        }
+
+        /** Adds an arc from v to u, or lowers the weight of the existing one. */
+        private void connect(int v, int u, float weight, int middle) {
+            for (int i = 0; i < degree[v]; i++) {
+                if (neighbours[v][i] == u) {
+                    if (weight < weights[v][i]) {
+                        weights[v][i] = weight;
+                        middles[v][i] = middle;
+                    }
+                    return;
+                }
+            }
+            if (degree[v] == neighbours[v].length) {
+                int size = Math.max(4, degree[v] * 2);
+                neighbours[v] = Arrays.copyOf(neighbours[v], size);
+                weights[v] = Arrays.copyOf(weights[v], size);
+                middles[v] = Arrays.copyOf(middles[v], size);
+            }
+            neighbours[v][degree[v]] = u;
+            weights[v][degree[v]] = weight;
+            middles[v][degree[v]] = middle;
+            degree[v]++;
+        }
+
+        /** Keeps the arcs of a vertex towards the vertices that are not contracted yet. */
+        private void keepUpwardArcs(int v) {
+            int count = 0;
+            for (int i = 0; i < degree[v]; i++) {
+                if (!contracted[neighbours[v][i]]) count++;
+            }
+            upArcs[v] = new int[count];
+            upWeights[v] = new float[count];
+            upMiddles[v] = new int[count];
+            count = 0;
+            for (int i = 0; i < degree[v]; i++) {
+                if (!contracted[neighbours[v][i]]) {
+                    upArcs[v][count] = neighbours[v][i];
+                    upWeights[v][count] = weights[v][i];
+                    upMiddles[v][count] = middles[v][i];
+                    count++;
+                }
+            }
+        }
+
+        private ContractionHierarchy toHierarchy() {
+            int[] upStart = new int[n + 1];
+            for (int v = 0; v < n; v++) {
+                upStart[v + 1] = upStart[v] + upArcs[v].length;
+            }
+            int[] upTarget = new int[upStart[n]];
+            float[] upWeight = new float[upStart[n]];
+            int[] upMiddle = new int[upStart[n]];
+            for (int v = 0; v < n; v++) {
+                System.arraycopy(upArcs[v], 0, upTarget, upStart[v], upArcs[v].length);
+                System.arraycopy(upWeights[v], 0, upWeight, upStart[v], upArcs[v].length);
+                System.arraycopy(upMiddles[v], 0, upMiddle, upStart[v], upArcs[v].length);
+            }
+            return new ContractionHierarchy(graph, upStart, upTarget, upWeight, upMiddle);
+        }
+
+        /** A shortcut between two neighbours of a contracted vertex. */
+        private static final class Shortcut {
+            final int from;
+            final int to;
+            final float weight;
+
+            Shortcut(int from, int to, float weight) {
+                this.from = from;
+                this.to = to;
+                this.weight = weight;
+            }
+        }
+
+        /**
+         * A bounded Dijkstra search looking for a path avoiding the vertex being contracted. The
+         * search state is reused by every search of a thread.
+         */
+        private final class WitnessSearch {
+            private final float[] distance;
+            private final int[] stamp;
+            private int currentStamp;
+            private int[] heapVertices = new int[64];
+            private float[] heapKeys = new float[64];
+            private int heapSize;
+
+            WitnessSearch(int n) {
+                distance = new float[n];
+                stamp = new int[n];
+            }
+
+            /** Searches from source without going through the avoided vertex. */
+            void run(int source, int avoided, float limit, boolean skipContracting) {
+                currentStamp++;
+                heapSize = 0;
+                distance[source] = 0;
+                stamp[source] = currentStamp;
+                push(source, 0);
+                int settled = 0;
+                while (heapSize > 0 && settled < WITNESS_SETTLE_LIMIT) {
+                    float d = heapKeys[0];
+                    int v = pop();
+                    if (d > distance[v]) continue;
+                    if (d > limit) break;
+                    settled++;
+                    for (int i = 0; i < degree[v]; i++) {
+                        int w = neighbours[v][i];
+                        if (w == avoided || contracted[w] || skipContracting && contracting[w]) {
+                            continue;
+                        }
+                        float candidate = d + weights[v][i];
+                        if (stamp[w] != currentStamp || candidate < distance[w]) {
+                            stamp[w] = currentStamp;
+                            distance[w] = candidate;
+                            push(w, candidate);
+                        }
+                    }
+                }
+            }
+
+            /** Returns the distance found to a vertex, infinite if it wasn't reached. */
+            float distance(int v) {
+                return stamp[v] == currentStamp ? distance[v] : Float.POSITIVE_INFINITY;
+            }
+
+            private void push(int v, float key) {
+                if (heapSize == heapVertices.length) {
+                    heapVertices = Arrays.copyOf(heapVertices, heapSize * 2);
+                    heapKeys = Arrays.copyOf(heapKeys, heapSize * 2);
+                }
+                int i = heapSize++;
+                while (i > 0 && heapKeys[(i - 1) >>> 1] > key) {
+                    heapVertices[i] = heapVertices[(i - 1) >>> 1];
+                    heapKeys[i] = heapKeys[(i - 1) >>> 1];
+                    i = (i - 1) >>> 1;
+                }
+                heapVertices[i] = v;
+                heapKeys[i] = key;
+            }
+
+            private int pop() {
+                int top = heapVertices[0];
+                int v = heapVertices[--heapSize];
+                float key = heapKeys[heapSize];
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= heapSize) break;
+                    if (child + 1 < heapSize && heapKeys[child + 1] < heapKeys[child]) child++;
+                    if (heapKeys[child] >= key) break;
+                    heapVertices[i] = heapVertices[child];
+                    heapKeys[i] = heapKeys[child];
+                    i = child;
+                }
+                heapVertices[i] = v;
+                heapKeys[i] = key;
+                return top;
+            }
+        }
+    }
+}
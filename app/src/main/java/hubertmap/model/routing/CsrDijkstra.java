@@ -0,0 +1,394 @@
+package hubertmap.model.routing;
+
+import hubertmap.model.transport.EdgeTransport;
+import hubertmap.model.transport.VertexTransport;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The CsrDijkstra class computes shortest paths on a {@link CsrGraph}. The search state is kept in
+ * arrays allocated once and reused by every query: a vertex whose stamp is not the one of the
+ * current query is considered unreached, so nothing has to be cleared between two queries. An
+ * instance must not be used by two threads at the same time, concurrent callers each use their own
+ * instance on the same shared graph.
+ *
+ * <p>Given {@link LowerBounds}, the search is an A* search: vertices are settled in the order of
+ * their distance plus a lower bound of the remaining weight to the destination, so fewer vertices
+ * are settled away from it. The bounds never overestimate, the paths found are the same.
+ */
+public final class CsrDijkstra {
+
+    private final CsrGraph graph;
+
+    /** The bounds guiding the search towards the destination, null for a plain search. */
+    private final LowerBounds bounds;
+
+    private final float[] distance;
+
+    /** The lower bound of the remaining weight from every reached vertex to the destination. */
+    private final float[] potential;
+
+    /** The order of the heap: the distance plus the potential of every vertex. */
+    private final float[] key;
+
+    /** The vertex before every vertex on its shortest path, -1 for the source. */
+    private final int[] predecessor;
+
+    /** The arc used to reach every vertex from its predecessor. */
+    private final int[] predecessorArc;
+
+    private final int[] stamp;
+    private int currentStamp;
+
+    /** Binary heap of vertex ids ordered by key. */
+    private final int[] heap;
+
+    /** The position of every vertex in the heap, -1 once it is settled. */
+    private final int[] heapPosition;
+
+    private int heapSize;
+
+    /** The destination of the current query, -1 if it is outside of the graph. */
+    private int target;
+
+    /** The vertices of the graph leading to a destination outside of it, with their weights. */
+    private int[] egressVertices = new int[0];
+
+    private float[] egressWeights = new float[0];
+    private int egressCount;
+
+    /** The number of vertices settled by the last query. */
+    private int settledCount;
+
+    /**
+     * Constructs the search state for the given graph.
+     *
+     * @param graph the graph to search
+     */
+    public CsrDijkstra(CsrGraph graph) {
+        this(graph, null);
+    }
+
+    /**
+     * Constructs the search state for the given graph, guided by the given bounds.
+     *
+     * @param graph the graph to search
+     * @param bounds the bounds of the graph, or null for a plain Dijkstra search
+     */
+    public CsrDijkstra(CsrGraph graph, LowerBounds bounds) {
+        this.graph = graph;
+        this.bounds = bounds;
+        int n = graph.size();
+        distance = new float[n];
+        potential = new float[n];
+        key = new float[n];
+        predecessor = new int[n];
+        predecessorArc = new int[n];
+        stamp = new int[n];
+        heap = new int[n];
+        heapPosition = new int[n];
+    }
+
+    /**
+     * Returns the graph searched by this instance.
+     *
+     * @return the graph searched
+     */
+    public CsrGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Returns the bounds guiding this instance.
+     *
+     * @return the bounds, or null for a plain Dijkstra search
+     */
+    public LowerBounds getBounds() {
+        return bounds;
+    }
+
+    /**
+     * Calculates the shortest path between two vertices of the graph. The edges of the network are
+     * not modified, the direction of travel of each of them is given by the legs.
+     *
+     * @param from the starting vertex
+     * @param to the destination vertex
+     * @return the legs of the path in travel order, or an empty list if there is none
+     */
+    public List<PathLeg> shortestPath(VertexTransport from, VertexTransport to) {
+        return shortestPath(from, Collections.emptyList(), to, Collections.emptyList());
+    }
+
+    /**
+     * Calculates the shortest path between two vertices that may be outside of the graph. A vertex
+     * outside of the graph is linked to it by the given legs, which are only used for this query:
+     * access legs go from the starting vertex to vertices of the graph, egress legs from vertices
+     * of the graph to the destination.
+     *
+     * @param from the starting vertex
+     * @param access the legs from the starting vertex, ignored if it is in the graph
+     * @param to the destination vertex
+     * @param egress the legs to the destination vertex, ignored if it is in the graph
+     * @return the legs of the path in travel order, or an empty list if there is none
+     */
+    public List<PathLeg> shortestPath(
+            VertexTransport from, List<PathLeg> access, VertexTransport to, List<PathLeg> egress) {
+        List<PathLeg> path = new ArrayList<>();
+        if (from == to) return path;
+        int source = graph.idOf(from);
+        int target = graph.idOf(to);
+        PathLeg[] sourceLegs = source == -1 ? legsByVertex(graph, access, true) : null;
+        PathLeg[] targetLegs = target == -1 ? legsByVertex(graph, egress, false) : null;
+        if ((source == -1 && sourceLegs == null) || (target == -1 && targetLegs == null)) {
+            return path;
+        }
+
+        newStamp();
+        heapSize = 0;
+        setDestination(target, targetLegs);
+        if (sourceLegs == null) {
+            reach(source, 0f, -1, -1);
+        } else {
+            for (int v = 0; v < sourceLegs.length; v++) {
+                if (sourceLegs[v] != null) reach(v, weight(sourceLegs[v]), -1, -1);
+            }
+        }
+        int reached = search(target, targetLegs);
+        if (reached == -1) return path;
+
+        if (targetLegs != null) path.add(targetLegs[reached]);
+        int v = reached;
+        for (; predecessor[v] != -1; v = predecessor[v]) {
+            EdgeTransport edge = graph.arcEdge(predecessorArc[v]);
+            path.add(new PathLeg(edge, graph.vertex(predecessor[v]), graph.vertex(v)));
+        }
+        if (sourceLegs != null) path.add(sourceLegs[v]);
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * Returns the cheapest of the given legs for every vertex of the graph they reach.
+     *
+     * @param graph the graph the legs lead to or from
+     * @param legs the legs to or from a vertex outside of the graph
+     * @param access true if the legs end in the graph, false if they start in it
+     * @return the legs indexed by vertex id, or null if none of them touches the graph
+     */
+    static PathLeg[] legsByVertex(CsrGraph graph, List<PathLeg> legs, boolean access) {
+        PathLeg[] byVertex = null;
+        for (PathLeg leg : legs) {
+            int v = graph.idOf(access ? leg.getTo() : leg.getFrom());
+            if (v == -1) continue;
+            if (byVertex == null) byVertex = new PathLeg[graph.size()];
+            if (byVertex[v] == null || weight(leg) < weight(byVertex[v])) {
+                byVertex[v] = leg;
+            }
+        }
+        return byVertex;
+    }
+
+    /**
+     * Returns the weight of a leg.
+     *
+     * @param leg the leg
+     * @return the weight of its edge
+     */
+    static float weight(PathLeg leg) {
+        return leg.getEdge().estimateWeight();
+    }
+
+    /**
+     * Runs the search from the queued sources until the cheapest way to the destination is known.
+     *
+     * @param target the id of the destination, or -1 if it is outside of the graph
+     * @param targetLegs the legs to the destination indexed by vertex id, or null if it is in the
+     *     graph
+     * @return the id of the last vertex of the path in the graph, or -1 if there is none
+     */
+    private int search(int target, PathLeg[] targetLegs) {
+        float best = Float.POSITIVE_INFINITY;
+        int bestTarget = -1;
+        settledCount = 0;
+        while (heapSize > 0) {
+            int v = pop();
+            if (key[v] >= best) break;
+            settledCount++;
+            float d = distance[v];
+            if (v == target) return v;
+            if (targetLegs != null && targetLegs[v] != null && d + weight(targetLegs[v]) < best) {
+                best = d + weight(targetLegs[v]);
+                bestTarget = v;
+            }
+            for (int arc = graph.arcStart(v); arc < graph.arcEnd(v); arc++) {
+                int w = graph.arcTarget(arc);
+                float candidate = d + graph.arcWeight(arc);
+                if (stamp[w] != currentStamp) {
+                    reach(w, candidate, v, arc);
+                } else if (heapPosition[w] >= 0 && candidate < distance[w]) {
+                    distance[w] = candidate;
+                    key[w] = candidate + potential[w];
+                    predecessor[w] = v;
+                    predecessorArc[w] = arc;
+                    siftUp(heapPosition[w]);
+                }
+            }
+        }
+        return bestTarget;
+    }
+
+    /**
+     * Returns the weight of the shortest path from a vertex to every vertex of the graph.
+     *
+     * @param source the id of the starting vertex
+     * @return the weights indexed by vertex id, infinite for the unreachable vertices
+     */
+    float[] weightsFrom(int source) {
+        sweep(new int[] {source}, new float[] {0f});
+        float[] weights = new float[graph.size()];
+        for (int v = 0; v < weights.length; v++) {
+            weights[v] = weightTo(v);
+        }
+        return weights;
+    }
+
+    /**
+     * Runs the search from several sources until every vertex reachable from them is settled,
+     * without building any path. The weights are then given by {@link #weightTo(int)} until the
+     * next query.
+     *
+     * @param sources the ids of the starting vertices
+     * @param weights the weight already spent to reach each source
+     */
+    void sweep(int[] sources, float[] weights) {
+        newStamp();
+        heapSize = 0;
+        setDestination(-1, null);
+        for (int i = 0; i < sources.length; i++) {
+            int v = sources[i];
+            if (stamp[v] != currentStamp) {
+                reach(v, weights[i], -1, -1);
+            } else if (weights[i] < distance[v]) {
+                distance[v] = weights[i];
+                key[v] = weights[i] + potential[v];
+                siftUp(heapPosition[v]);
+            }
+        }
+        search(-1, null);
+    }
+
+    /**
+     * Returns the weight of the shortest path to a vertex found by the last sweep.
+     *
+     * @param v the id of the vertex
+     * @return the weight, infinite if the vertex can't be reached
+     */
+    float weightTo(int v) {
+        return stamp[v] == currentStamp ? distance[v] : Float.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns the number of vertices settled by the last query.
+     *
+     * @return the number of settled vertices
+     */
+    int getSettledCount() {
+        return settledCount;
+    }
+
+    /** Keeps the destination of the query, towards which the potentials are computed. */
+    private void setDestination(int target, PathLeg[] targetLegs) {
+        this.target = target;
+        egressCount = 0;
+        if (bounds == null || targetLegs == null) return;
+        for (int v = 0; v < targetLegs.length; v++) {
+            if (targetLegs[v] == null) continue;
+            if (egressCount == egressVertices.length) {
+                egressVertices = Arrays.copyOf(egressVertices, egressCount * 2 + 4);
+                egressWeights = Arrays.copyOf(egressWeights, egressVertices.length);
+            }
+            egressVertices[egressCount] = v;
+            egressWeights[egressCount++] = weight(targetLegs[v]);
+        }
+    }
+
+    /** Returns the lower bound of the remaining weight from a vertex to the destination. */
+    private float potential(int v) {
+        if (bounds == null) return 0f;
+        if (target != -1) return bounds.bound(v, target);
+        if (egressCount == 0) return 0f;
+        float min = Float.POSITIVE_INFINITY;
+        for (int i = 0; i < egressCount; i++) {
+            min = Math.min(min, bounds.bound(v, egressVertices[i]) + egressWeights[i]);
+        }
+        return min;
+    }
+
+    private void newStamp() {
+        currentStamp++;
+        if (currentStamp == Integer.MAX_VALUE) {
+            Arrays.fill(stamp, 0);
+            currentStamp = 1;
+        }
+    }
+
+    private void reach(int v, float d, int from, int arc) {
+        stamp[v] = currentStamp;
+        distance[v] = d;
+        potential[v] = potential(v);
+        key[v] = d + potential[v];
+        predecessor[v] = from;
+        predecessorArc[v] = arc;
+        heap[heapSize] = v;
+        heapPosition[v] = heapSize;
+        siftUp(heapSize++);
+    }
+
+    private int pop() {
+        int top = heap[0];
+        heapPosition[top] = -1;
+        heapSize--;
+        if (heapSize > 0) {
+            heap[0] = heap[heapSize];
+            heapPosition[heap[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    private void siftUp(int i) {
+        int v = heap[i];
+        float d = key[v];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            int p = heap[parent];
+            if (key[p] <= d) break;
+            heap[i] = p;
+            heapPosition[p] = i;
+            i = parent;
+        }
+        heap[i] = v;
+        heapPosition[v] = i;
+    }
+
+    private void siftDown(int i) {
+        int v = heap[i];
+        float d = key[v];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) break;
+            if (child + 1 < heapSize && key[heap[child + 1]] < key[heap[child]]) {
+                child++;
+            }
+            int c = heap[child];
+            if (key[c] >= d) break;
+            heap[i] = c;
+            heapPosition[c] = i;
+            i = child;
+        }
+        heap[i] = v;
+        heapPosition[v] = i;
+    }
+}
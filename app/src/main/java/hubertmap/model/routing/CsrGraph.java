@@ -0,0 +1,192 @@
+package hubertmap.model.routing;
+
+import edu.uci.ics.jung.graph.Graph;
+import hubertmap.model.transport.EdgeTransport;
+import hubertmap.model.transport.Station;
+import hubertmap.model.transport.VertexTransport;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The CsrGraph class is an immutable compressed sparse row copy of the network graph used for
+ * routing. Vertices get dense integer ids, the arcs leaving vertex v are stored from offsets[v] to
+ * offsets[v + 1] in primitive arrays, and every edge of the network gives one arc in each direction
+ * weighted by {@link EdgeTransport#estimateWeight()}. Vertices are numbered in the order of their
+ * names, lines and coordinates, so the same network always gives the same ids.
+ */
+public final class CsrGraph {
+
+    /** The order of the vertex ids. */
+    private static final Comparator<VertexTransport> ORDER =
+            Comparator.comparing(VertexTransport::getName)
+                    .thenComparing(
+                            v -> v instanceof Station ? ((Station) v).getSimpleLineName() : "")
+                    .thenComparing(VertexTransport::getX)
+                    .thenComparing(VertexTransport::getY);
+
+    private final VertexTransport[] vertices;
+    private final Map<VertexTransport, Integer> ids;
+    private final int[] offsets;
+    private final int[] targets;
+    private final float[] weights;
+
+    /** The network edge of every arc, used to unpack paths. */
+    private final EdgeTransport[] edges;
+
+    /**
+     * Constructs the compressed copy of the given graph.
+     *
+     * @param graph the graph of the network
+     */
+    public CsrGraph(Graph<VertexTransport, EdgeTransport> graph) {
+        int n = graph.getVertexCount();
+        vertices = new VertexTransport[n];
+        ids = new HashMap<>(n * 2);
+        List<VertexTransport> sorted = new ArrayList<>(graph.getVertices());
+        sorted.sort(ORDER);
+        for (VertexTransport v : sorted) {
+            ids.put(v, ids.size());
+            vertices[ids.size() - 1] = v;
+        }
+
+        offsets = new int[n + 1];
+        for (EdgeTransport e : graph.getEdges()) {
+            offsets[ids.get(e.getStartingStation()) + 1]++;
+            offsets[ids.get(e.getEndingStation()) + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+
+        int m = offsets[n];
+        targets = new int[m];
+        weights = new float[m];
+        edges = new EdgeTransport[m];
+        int[] next = new int[n];
+        for (EdgeTransport e : graph.getEdges()) {
+            int a = ids.get(e.getStartingStation());
+            int b = ids.get(e.getEndingStation());
+            float weight = e.estimateWeight();
+            int arc = offsets[a] + next[a]++;
+            targets[arc] = b;
+            weights[arc] = weight;
+            edges[arc] = e;
+            arc = offsets[b] + next[b]++;
+            targets[arc] = a;
+            weights[arc] = weight;
+            edges[arc] = e;
+        }
+    }
+
+    /**
+     * Returns the number of vertices.
+     *
+     * @return the number of vertices
+     */
+    public int size() {
+        return vertices.length;
+    }
+
+    /**
+     * Returns the id of a vertex.
+     *
+     * @param vertex the vertex to look up
+     * @return the id of the vertex, or -1 if it is not in the graph
+     */
+    public int idOf(VertexTransport vertex) {
+        Integer id = ids.get(vertex);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns the vertex with the given id.
+     *
+     * @param id the id of the vertex
+     * @return the vertex
+     */
+    public VertexTransport vertex(int id) {
+        return vertices[id];
+    }
+
+    /**
+     * Returns the ids of the stations with the given name, one per line serving it. The vertices
+     * being numbered in the order of their names, they are found by a binary search.
+     *
+     * @param name the name of the station
+     * @return the ids of the stations, empty if there is none
+     */
+    int[] stationIds(String name) {
+        int low = 0;
+        int high = vertices.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (vertices[middle].getName().compareTo(name) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        int count = 0;
+        int[] found = new int[4];
+        for (int v = low; v < vertices.length && vertices[v].getName().equals(name); v++) {
+            if (!(vertices[v] instanceof Station)) continue;
+            if (count == found.length) found = Arrays.copyOf(found, 2 * count);
+            found[count++] = v;
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    /**
+     * Returns the index of the first arc leaving a vertex.
+     *
+     * @param v the id of the vertex
+     * @return the index of the first arc
+     */
+    int arcStart(int v) {
+        return offsets[v];
+    }
+
+    /**
+     * Returns the index after the last arc leaving a vertex.
+     *
+     * @param v the id of the vertex
+     * @return the index after the last arc
+     */
+    int arcEnd(int v) {
+        return offsets[v + 1];
+    }
+
+    /**
+     * Returns the vertex reached by an arc.
+     *
+     * @param arc the index of the arc
+     * @return the id of the vertex reached
+     */
+    int arcTarget(int arc) {
+        return targets[arc];
+    }
+
+    /**
+     * Returns the weight of an arc.
+     *
+     * @param arc the index of the arc
+     * @return the weight of the arc
+     */
+    float arcWeight(int arc) {
+        return weights[arc];
+    }
+
+    /**
+     * Returns the network edge of an arc.
+     *
+     * @param arc the index of the arc
+     * @return the edge of the network
+     */
+    EdgeTransport arcEdge(int arc) {
+        return edges[arc];
+    }
+}
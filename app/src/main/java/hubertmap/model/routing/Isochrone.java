@@ -0,0 +1,164 @@
+package hubertmap.model.routing;
+
+import hubertmap.model.Time;
+import hubertmap.model.transport.Network;
+import hubertmap.model.transport.SpatialIndex;
+import hubertmap.model.transport.Station;
+import hubertmap.model.transport.VertexTransport;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The Isochrone class holds the stations reachable from an origin within a time budget, with their
+ * earliest arrival time. It also gives the area reachable by walking from them at the {@link
+ * Network#WALKING_SPEED} for the rest of the budget, as a grid of travel times.
+ */
+public final class Isochrone {
+
+    /** The time of a cell of the grid that can't be reached within the budget. */
+    public static final int UNREACHABLE = -1;
+
+    private static final double EARTH_RADIUS = 6371.0; // km
+
+    private final VertexTransport origin;
+    private final int departure;
+    private final int budget;
+
+    /** The stations reached, sorted by arrival time. */
+    private final Station[] stations;
+
+    /** The arrival time at every station in seconds since midnight. */
+    private final int[] arrivals;
+
+    /**
+     * Constructs the isochrone of the given stations.
+     *
+     * @param origin the station or point where the traveller is at the departure time
+     * @param departure the departure time in seconds since midnight
+     * @param budget the maximum travel time in seconds
+     * @param stations the stations reached
+     * @param arrivals the arrival time at every station in seconds since midnight
+     */
+    Isochrone(
+            VertexTransport origin, int departure, int budget, Station[] stations, int[] arrivals) {
+        this.origin = origin;
+        this.departure = departure;
+        this.budget = budget;
+        Integer[] order = new Integer[stations.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, Comparator.comparingInt(i -> arrivals[i]));
+        this.stations = new Station[stations.length];
+        this.arrivals = new int[stations.length];
+        for (int i = 0; i < order.length; i++) {
+            this.stations[i] = stations[order[i]];
+            this.arrivals[i] = arrivals[order[i]];
+        }
+    }
+
+    /**
+     * Returns the origin of the isochrone.
+     *
+     * @return the station or point where the traveller starts
+     */
+    public VertexTransport getOrigin() {
+        return origin;
+    }
+
+    /**
+     * Returns the departure time.
+     *
+     * @return the time at which the traveller starts
+     */
+    public Time getDeparture() {
+        return new Time(departure);
+    }
+
+    /**
+     * Returns the maximum travel time.
+     *
+     * @return the budget in seconds
+     */
+    public int getBudget() {
+        return budget;
+    }
+
+    /**
+     * Returns the stations reached within the budget with their earliest arrival time.
+     *
+     * @return the arrival time of every station reached, the earliest first
+     */
+    public Map<Station, Time> getArrivals() {
+        Map<Station, Time> result = new LinkedHashMap<>();
+        for (int i = 0; i < stations.length; i++) {
+            result.put(stations[i], new Time(arrivals[i]));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the travel time to the center of every cell of a grid, walking from the origin or
+     * from the station reached that gives the earliest arrival. Columns go along x from minX to
+     * maxX and rows along y from minY to maxY. Only the cells around each station within walking
+     * distance for the rest of the budget are looked at.
+     *
+     * @param minX the x coordinate of the side of the first column
+     * @param minY the y coordinate of the side of the first row
+     * @param maxX the x coordinate of the side of the last column
+     * @param maxY the y coordinate of the side of the last row
+     * @param columns the number of columns
+     * @param rows the number of rows
+     * @return the travel times in seconds, the cell of row r and column c being at index r *
+     *     columns + c, {@link #UNREACHABLE} outside of the isochrone
+     */
+    public int[] raster(float minX, float minY, float maxX, float maxY, int columns, int rows) {
+        int[] grid = new int[columns * rows];
+        Arrays.fill(grid, Integer.MAX_VALUE);
+        double width = (maxX - minX) / (double) columns;
+        double height = (maxY - minY) / (double) rows;
+
+        // the platforms of a station share its coordinates, the earliest is kept
+        Map<Long, Integer> sources = new HashMap<>();
+        sources.put(key(origin), departure);
+        for (int i = 0; i < stations.length; i++) {
+            sources.merge(key(stations[i]), arrivals[i], Math::min);
+        }
+        for (Map.Entry<Long, Integer> source : sources.entrySet()) {
+            float x = Float.intBitsToFloat((int) (source.getKey() >>> 32));
+            float y = Float.intBitsToFloat((int) (long) source.getKey());
+            int time = source.getValue() - departure;
+            double km = (budget - time) / 3600.0 * Network.WALKING_SPEED;
+            // the walking radius in degrees, x being the latitude
+            double radiusX = Math.toDegrees(km / EARTH_RADIUS);
+            double radiusY = radiusX / Math.max(0.01, Math.cos(Math.toRadians(x)));
+            int firstColumn = Math.max(0, (int) Math.ceil((x - radiusX - minX) / width - 0.5));
+            int lastColumn =
+                    Math.min(columns - 1, (int) Math.floor((x + radiusX - minX) / width - 0.5));
+            int firstRow = Math.max(0, (int) Math.ceil((y - radiusY - minY) / height - 0.5));
+            int lastRow = Math.min(rows - 1, (int) Math.floor((y + radiusY - minY) / height - 0.5));
+            for (int r = firstRow; r <= lastRow; r++) {
+                float cellY = (float) (minY + (r + 0.5) * height);
+                for (int c = firstColumn; c <= lastColumn; c++) {
+                    float cellX = (float) (minX + (c + 0.5) * width);
+                    int walk = Network.walkingSeconds(SpatialIndex.distance(x, y, cellX, cellY));
+                    int cell = r * columns + c;
+                    if (time + walk <= budget && time + walk < grid[cell]) {
+                        grid[cell] = time + walk;
+                    }
+                }
+            }
+        }
+        for (int cell = 0; cell < grid.length; cell++) {
+            if (grid[cell] == Integer.MAX_VALUE) grid[cell] = UNREACHABLE;
+        }
+        return grid;
+    }
+
+    /** Returns the coordinates of a vertex packed in a long. */
+    private static long key(VertexTransport vertex) {
+        return (long) Float.floatToIntBits(vertex.getX()) << 32
+                | Float.floatToIntBits(vertex.getY()) & 0xFFFFFFFFL;
+    }
+}
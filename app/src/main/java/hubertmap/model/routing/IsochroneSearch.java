@@ -0,0 +1,102 @@
+package hubertmap.model.routing;
+
+import hubertmap.model.transport.Station;
+import hubertmap.model.transport.VertexTransport;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The IsochroneSearch class finds every station reachable from an origin within a time budget with
+ * a single connection scan, stopped at the end of the budget. The arrival times and the trips
+ * boarded are kept in arrays allocated once and reused by every query. An instance must not be used
+ * by two threads at the same time, concurrent callers each use their own instance on the same
+ * shared timetable.
+ */
+public final class IsochroneSearch {
+
+    private final ConnectionScan scan;
+
+    /** The earliest arrival time at every stop of the last query. */
+    private final int[] arrival;
+
+    /** The trips that could be boarded by the last query. */
+    private final boolean[] boarded;
+
+    /**
+     * Constructs the search state for the given timetable.
+     *
+     * @param scan the timetable engine
+     */
+    public IsochroneSearch(ConnectionScan scan) {
+        this.scan = scan;
+        arrival = new int[scan.getStopCount()];
+        boarded = new boolean[scan.getTripCount()];
+    }
+
+    /**
+     * Returns the timetable searched by this instance.
+     *
+     * @return the timetable engine
+     */
+    public ConnectionScan getScan() {
+        return scan;
+    }
+
+    /**
+     * Returns the stations reachable from an origin within the budget. From a station, every
+     * platform is usable at the departure time. From a vertex outside of the timetable, the
+     * stations are reached by the given walking legs. A station is given once, by its platform
+     * reached first.
+     *
+     * <p>The search stays in the service day of the departure: the connections running after
+     * midnight belong to it, with times past 24:00, but when the end of the budget goes past the
+     * last connection of the day, the trips of the next morning are not boarded.
+     *
+     * @param origin the station or point where the traveller is at the departure time
+     * @param access the walking legs from the origin, ignored if it is a station
+     * @param departure the departure time in seconds since the start of the service day
+     * @param budget the maximum travel time in seconds
+     * @return the stations reached with their earliest arrival time
+     */
+    public Isochrone search(
+            VertexTransport origin, List<PathLeg> access, int departure, int budget) {
+        Arrays.fill(arrival, ConnectionScan.UNREACHED);
+        Arrays.fill(boarded, false);
+        int limit = departure + budget;
+        int[] platforms = origin instanceof Station ? scan.stopsNamed(origin.getName()) : null;
+        if (platforms != null) {
+            for (int stop : platforms) arrival[stop] = departure;
+        } else {
+            for (PathLeg leg : access) {
+                if (!(leg.getTo() instanceof Station)) continue;
+                int stop = scan.stopOf((Station) leg.getTo());
+                int time = departure + leg.getEdge().getDurationJourney().toSeconds();
+                if (stop != -1 && time <= limit) arrival[stop] = Math.min(arrival[stop], time);
+            }
+        }
+        scan.arrivalsFrom(departure, limit, arrival, null, boarded);
+
+        // the platforms of a station share its name, the one reached first is kept
+        Map<String, Integer> first = new HashMap<>();
+        for (int stop = 0; stop < arrival.length; stop++) {
+            if (arrival[stop] > limit) continue;
+            first.merge(
+                    scan.stationOf(stop).getName().toLowerCase(),
+                    stop,
+                    (kept, other) -> arrival[other] < arrival[kept] ? other : kept);
+        }
+        Station[] stations = new Station[first.size()];
+        int[] times = new int[first.size()];
+        int count = 0;
+        for (int stop = 0; stop < arrival.length; stop++) {
+            if (arrival[stop] > limit) continue;
+            Station station = scan.stationOf(stop);
+            if (first.get(station.getName().toLowerCase()) != stop) continue;
+            stations[count] = station;
+            times[count++] = arrival[stop];
+        }
+        return new Isochrone(origin, departure, budget, stations, times);
+    }
+}
@@ -0,0 +1,136 @@
+package hubertmap.model.routing;
+
+import hubertmap.model.ServiceTime;
+import hubertmap.model.transport.Line;
+import hubertmap.model.transport.Network;
+import hubertmap.model.transport.ScheduleStore;
+import hubertmap.model.transport.Station;
+import hubertmap.model.transport.StopPatternIndex;
+import hubertmap.model.transport.StopPatternIndex.StopPattern;
+import hubertmap.model.transport.VertexTransport;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The ItineraryBuilder class turns a path of the network into timed legs, one per line ridden or
+ * walk. The path is walked once: a leg boards at the first stop of a run of edges on the same line
+ * and alights at the last one, its departure is the next train leaving the boarding stop after the
+ * arrival of the previous leg, and its arrival adds the ride time of the line between the two
+ * stops. Both come from the {@link StopPatternIndex} of the network, so timing a leg doesn't search
+ * the lines or their stations.
+ */
+public final class ItineraryBuilder {
+
+    /** The time added to every edge to take the stops into account, in seconds. */
+    private static final int STOP_SECONDS = 15;
+
+    /** The time of a change to another platform of the same station, in seconds. */
+    private static final int CHANGE_SECONDS = 2 * 60;
+
+    private final StopPatternIndex patterns;
+
+    /**
+     * Constructs the builder for the lines of the given network.
+     *
+     * @param network the network with its lines
+     */
+    public ItineraryBuilder(Network network) {
+        patterns = network.getStopPatterns();
+    }
+
+    /**
+     * Returns the timed legs of a path. Once a leg can't be caught, it and the following legs are
+     * returned without times.
+     *
+     * @param path the legs of the path, in travel order
+     * @param departure the time at which the traveller starts, in seconds since midnight
+     * @return the legs of the itinerary, changes between platforms are not returned
+     */
+    public List<Leg> build(List<PathLeg> path, int departure) {
+        List<Leg> legs = new ArrayList<>();
+        int time = departure;
+        int first = -1;
+        int last = -1;
+        for (int i = 0; i < path.size(); i++) {
+            PathLeg leg = path.get(i);
+            if (leg.getLineName().equals(Leg.CHANGE)) continue;
+            if (first >= 0 && !leg.getLineName().equals(path.get(first).getLineName())) {
+                Leg timed = time(path, first, last, time);
+                legs.add(timed);
+                time = timed.getArrivalSeconds();
+                first = i;
+            }
+            if (first < 0) first = i;
+            last = i;
+        }
+        if (first >= 0) legs.add(time(path, first, last, time));
+        return legs;
+    }
+
+    /**
+     * Returns the leg made of the edges of the path from first to last.
+     *
+     * @param path the legs of the path
+     * @param first the index of the first edge of the leg
+     * @param last the index of the last edge of the leg
+     * @param time the time at which the traveller reaches the start of the leg, or -1 if unknown
+     * @return the timed leg, or a leg without times if it can't be caught
+     */
+    private Leg time(List<PathLeg> path, int first, int last, int time) {
+        String lineName = path.get(first).getLineName();
+        VertexTransport from = path.get(first).getFrom();
+        VertexTransport to = path.get(last).getTo();
+        if (time < 0) return new Leg(lineName, null, from, to, -1, -1);
+        if (from.equals(to)) {
+            return new Leg(lineName, null, from, to, time, ServiceTime.plus(time, CHANGE_SECONDS));
+        }
+
+        if (from instanceof Station && to instanceof Station) {
+            StopPattern pattern = nextPattern((Station) from, (Station) to, time);
+            if (pattern == null) return new Leg(lineName, null, from, to, -1, -1);
+            int departure = nextDeparture((Station) from, pattern.getLine(), time);
+            int stops = pattern.position(to) - pattern.position(from);
+            int arrival =
+                    ServiceTime.plus(
+                            departure, pattern.rideSeconds(from, to) + STOP_SECONDS * stops);
+            return new Leg(lineName, pattern.getLine(), from, to, departure, arrival);
+        }
+
+        // a walk to or from a point follows the edges of the path
+        int arrival = time;
+        for (int i = first; i <= last; i++) {
+            int seconds = path.get(i).getEdge().getDurationJourney().toSeconds();
+            arrival = ServiceTime.plus(arrival, STOP_SECONDS + seconds);
+        }
+        return new Leg(lineName, null, from, to, time, arrival);
+    }
+
+    /**
+     * Returns the stop pattern of the line variant serving both stations in this order that leaves
+     * the first one the soonest after the given time.
+     */
+    private StopPattern nextPattern(Station from, Station to, int time) {
+        StopPattern best = null;
+        int bestDeparture = Integer.MAX_VALUE;
+        for (String lineName : from.getSchedules().getLines()) {
+            StopPattern pattern = patterns.get(lineName);
+            if (pattern == null || !pattern.isBefore(from, to)) continue;
+            int departure = nextDeparture(from, pattern.getLine(), time);
+            if (departure >= 0 && departure < bestDeparture) {
+                best = pattern;
+                bestDeparture = departure;
+            }
+        }
+        return best;
+    }
+
+    /** Returns the next departure of the line from the station, or -1 if there is none. */
+    private static int nextDeparture(Station station, Line line, int time) {
+        ScheduleStore schedules = station.getSchedules();
+        int id = schedules.idOf(line.getName());
+        int next = schedules.nextDeparture(id, ServiceTime.timeOfDay(time));
+        if (next < 0) return -1;
+        // the schedules are times of day, the itinerary keeps counting past midnight
+        return ServiceTime.plus(next, time - ServiceTime.timeOfDay(time));
+    }
+}
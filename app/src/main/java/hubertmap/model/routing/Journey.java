@@ -0,0 +1,94 @@
+package hubertmap.model.routing;
+
+import hubertmap.model.Time;
+import java.util.Collections;
+import java.util.List;
+
+/** The Journey class represents a timed itinerary made of consecutive legs. */
+public final class Journey {
+
+    private final List<Leg> legs;
+    private final int departure;
+    private final int arrival;
+
+    /**
+     * Constructs a new journey.
+     *
+     * @param legs the legs of the journey, in travel order
+     * @param departure the departure time in seconds since midnight
+     * @param arrival the arrival time in seconds since midnight
+     */
+    public Journey(List<Leg> legs, int departure, int arrival) {
+        this.legs = Collections.unmodifiableList(legs);
+        this.departure = departure;
+        this.arrival = arrival;
+    }
+
+    /**
+     * Returns the legs of the journey, in travel order.
+     *
+     * @return an unmodifiable list of legs
+     */
+    public List<Leg> getLegs() {
+        return legs;
+    }
+
+    /**
+     * Returns the departure time in seconds since midnight.
+     *
+     * @return the departure time in seconds
+     */
+    public int getDepartureSeconds() {
+        return departure;
+    }
+
+    /**
+     * Returns the arrival time in seconds since midnight.
+     *
+     * @return the arrival time in seconds
+     */
+    public int getArrivalSeconds() {
+        return arrival;
+    }
+
+    /**
+     * Returns the departure time.
+     *
+     * @return a new Time object with the departure time
+     */
+    public Time getDeparture() {
+        return new Time(departure);
+    }
+
+    /**
+     * Returns the arrival time.
+     *
+     * @return a new Time object with the arrival time
+     */
+    public Time getArrival() {
+        return new Time(arrival);
+    }
+
+    /**
+     * Returns the number of changes between lines during the journey.
+     *
+     * @return the number of rides minus one, or 0 if there is no ride
+     */
+    public int getTransfers() {
+        int rides = 0;
+        for (Leg leg : legs) {
+            if (leg.isRide()) rides++;
+        }
+        return Math.max(0, rides - 1);
+    }
+
+    /**
+     * Returns a string representation of the journey.
+     *
+     * @return a string representation of the journey
+     */
+    @Override
+    public String toString() {
+        return getDeparture() + " - " + getArrival() + " " + legs;
+    }
+}
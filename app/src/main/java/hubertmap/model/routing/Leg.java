@@ -0,0 +1,162 @@
+package hubertmap.model.routing;
+
+import hubertmap.model.Time;
+import hubertmap.model.transport.Line;
+import hubertmap.model.transport.VertexTransport;
+
+/**
+ * The Leg class represents one timed part of a journey: a ride on a line between two stops, a
+ * change between two platforms of the same station, or a walk. A leg is immutable and is never
+ * shared with the network, so it can be handed to any thread.
+ */
+public final class Leg {
+
+    /** The line name used for changes between platforms, as on the network edges. */
+    public static final String CHANGE = "CHANGE";
+
+    /** The line name used for walking legs, as on the network edges. */
+    public static final String WALK = "";
+
+    private final String lineName;
+    private final Line line;
+    private final VertexTransport from;
+    private final VertexTransport to;
+    private final int departure;
+    private final int arrival;
+
+    /**
+     * Constructs a new leg.
+     *
+     * @param lineName the line name without variant, {@link #CHANGE} or {@link #WALK}
+     * @param line the line variant ridden, or null if the leg is not a ride
+     * @param from the vertex where the leg starts
+     * @param to the vertex where the leg ends
+     * @param departure the departure time in seconds since midnight, or -1 if unknown
+     * @param arrival the arrival time in seconds since midnight, or -1 if unknown
+     */
+    public Leg(
+            String lineName,
+            Line line,
+            VertexTransport from,
+            VertexTransport to,
+            int departure,
+            int arrival) {
+        this.lineName = lineName;
+        this.line = line;
+        this.from = from;
+        this.to = to;
+        this.departure = departure;
+        this.arrival = arrival;
+    }
+
+    /**
+     * Returns the line name, which omits the variant
+     *
+     * @return line name
+     */
+    public String getLineName() {
+        return lineName;
+    }
+
+    /**
+     * Returns the line variant ridden during this leg.
+     *
+     * @return the line variant, or null if the leg is a change or a walk
+     */
+    public Line getLine() {
+        return line;
+    }
+
+    /**
+     * Returns the vertex where the leg starts.
+     *
+     * @return the vertex where the leg starts
+     */
+    public VertexTransport getFrom() {
+        return from;
+    }
+
+    /**
+     * Returns the vertex where the leg ends.
+     *
+     * @return the vertex where the leg ends
+     */
+    public VertexTransport getTo() {
+        return to;
+    }
+
+    /**
+     * Returns the departure time in seconds since midnight. It can be past 24:00:00 for journeys
+     * ending after midnight.
+     *
+     * @return the departure time in seconds
+     */
+    public int getDepartureSeconds() {
+        return departure;
+    }
+
+    /**
+     * Returns the arrival time in seconds since midnight. It can be past 24:00:00 for journeys
+     * ending after midnight.
+     *
+     * @return the arrival time in seconds
+     */
+    public int getArrivalSeconds() {
+        return arrival;
+    }
+
+    /**
+     * Returns the departure time.
+     *
+     * @return a new Time object with the departure time, or null if the leg has no times
+     */
+    public Time getDeparture() {
+        return isTimed() ? new Time(departure) : null;
+    }
+
+    /**
+     * Returns the arrival time.
+     *
+     * @return a new Time object with the arrival time, or null if the leg has no times
+     */
+    public Time getArrival() {
+        return isTimed() ? new Time(arrival) : null;
+    }
+
+    /**
+     * Returns true if the times of the leg are known. An itinerary built from a path has no times
+     * from the first ride that can't be caught.
+     *
+     * @return true if the leg has a departure and an arrival time
+     */
+    public boolean isTimed() {
+        return departure >= 0;
+    }
+
+    /**
+     * Returns true if this leg is a ride on a line.
+     *
+     * @return true if this leg is a ride
+     */
+    public boolean isRide() {
+        return line != null;
+    }
+
+    /**
+     * Returns a string representation of the leg.
+     *
+     * @return a string representation of the leg
+     */
+    @Override
+    public String toString() {
+        return from
+                + " - "
+                + to
+                + "; line : "
+                + lineName
+                + "; "
+                + getDeparture()
+                + " - "
+                + getArrival();
+    }
+}
@@ -0,0 +1,143 @@
+package hubertmap.model.routing;
+
+import hubertmap.model.transport.SpatialIndex;
+import hubertmap.model.transport.VertexTransport;
+import java.util.Arrays;
+
+/**
+ * The LowerBounds class gives, for two vertices of a {@link CsrGraph}, a weight that no path
+ * between them can be lighter than. It guides the search of {@link CsrDijkstra} towards the
+ * destination without changing the paths it finds.
+ *
+ * <p>Two bounds are combined. The first one divides the distance between the coordinates of the
+ * vertices by the highest ratio of distance to weight among the arcs of the graph. The second one
+ * uses landmarks: vertices on the edge of the network whose weights to every other vertex are
+ * computed once, so by the triangle inequality the weight between two vertices is at least the
+ * difference of their weights to any landmark.
+ */
+public final class LowerBounds {
+
+    /** The rounding margin applied to every bound, the weights being floats. */
+    private static final float MARGIN = 0.999f;
+
+    private final CsrGraph graph;
+
+    /** The highest distance travelled per unit of weight, 0 if coordinates can't be used. */
+    private final float maxSpeed;
+
+    private final int[] landmarks;
+
+    /** The weight from every landmark to every vertex, infinite if it is unreachable. */
+    private final float[][] landmarkWeights;
+
+    private LowerBounds(
+            CsrGraph graph, float maxSpeed, int[] landmarks, float[][] landmarkWeights) {
+        this.graph = graph;
+        this.maxSpeed = maxSpeed;
+        this.landmarks = landmarks;
+        this.landmarkWeights = landmarkWeights;
+    }
+
+    /**
+     * Computes the bounds of the given graph. Landmarks are picked one after the other as the
+     * vertex the farthest from those already picked.
+     *
+     * @param graph the graph to bound
+     * @param landmarkCount the number of landmarks, 0 to only use the coordinates
+     * @return the bounds of the graph
+     */
+    public static LowerBounds build(CsrGraph graph, int landmarkCount) {
+        float maxSpeed = 0;
+        for (int v = 0; v < graph.size(); v++) {
+            for (int arc = graph.arcStart(v); arc < graph.arcEnd(v); arc++) {
+                float speed = distance(graph, v, graph.arcTarget(arc)) / graph.arcWeight(arc);
+                maxSpeed = Math.max(maxSpeed, speed);
+            }
+        }
+
+        int count = Math.min(landmarkCount, graph.size());
+        int[] landmarks = new int[count];
+        float[][] weights = new float[count][];
+        if (count > 0) {
+            CsrDijkstra search = new CsrDijkstra(graph);
+            float[] closest = new float[graph.size()];
+            Arrays.fill(closest, Float.POSITIVE_INFINITY);
+            // the first landmark is the vertex the farthest from an arbitrary one
+            float[] start = search.weightsFrom(0);
+            int next = farthest(start, null);
+            for (int l = 0; l < count; l++) {
+                landmarks[l] = next;
+                weights[l] = search.weightsFrom(next);
+                for (int v = 0; v < closest.length; v++) {
+                    closest[v] = Math.min(closest[v], weights[l][v]);
+                }
+                next = farthest(closest, weights[l]);
+            }
+        }
+        return new LowerBounds(graph, maxSpeed, landmarks, weights);
+    }
+
+    /**
+     * Returns the vertex with the highest finite weight.
+     *
+     * @param weights the weight of every vertex
+     * @param reachable the weights telling which vertices are in the same component, or null
+     * @return the id of the vertex
+     */
+    private static int farthest(float[] weights, float[] reachable) {
+        int best = 0;
+        for (int v = 0; v < weights.length; v++) {
+            boolean connected = reachable == null || reachable[v] != Float.POSITIVE_INFINITY;
+            if (connected && weights[v] != Float.POSITIVE_INFINITY && weights[v] > weights[best]) {
+                best = v;
+            }
+        }
+        return best;
+    }
+
+    private static float distance(CsrGraph graph, int u, int v) {
+        VertexTransport a = graph.vertex(u);
+        VertexTransport b = graph.vertex(v);
+        return SpatialIndex.distance(a.getX(), a.getY(), b.getX(), b.getY());
+    }
+
+    /**
+     * Returns the graph these bounds were computed for.
+     *
+     * @return the graph of the bounds
+     */
+    public CsrGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Returns the number of landmarks.
+     *
+     * @return the number of landmarks
+     */
+    public int getLandmarkCount() {
+        return landmarks.length;
+    }
+
+    /**
+     * Returns a lower bound of the weight of any path between two vertices.
+     *
+     * @param v the id of the first vertex
+     * @param t the id of the second vertex
+     * @return the bound, never higher than the weight of the shortest path
+     */
+    float bound(int v, int t) {
+        float bound = 0;
+        if (maxSpeed > 0) {
+            bound = distance(graph, v, t) / maxSpeed;
+        }
+        for (float[] weights : landmarkWeights) {
+            float difference = Math.abs(weights[t] - weights[v]);
+            // the difference is only meaningful when both vertices are reachable
+            if (difference > bound && difference != Float.POSITIVE_INFINITY) {
+                bound = difference;
+            }
+        }
+        return bound * MARGIN;
+    }
+}
@@ -0,0 +1,74 @@
+package hubertmap.model.routing;
+
+import hubertmap.model.transport.EdgeTransport;
+import hubertmap.model.transport.VertexTransport;
+
+/**
+ * The PathLeg class represents an edge of the network travelled in a given direction. Edges are
+ * shared by every query, so the direction of travel is kept here instead of in the edge itself.
+ */
+public final class PathLeg {
+
+    private final EdgeTransport edge;
+    private final VertexTransport from;
+    private final VertexTransport to;
+
+    /**
+     * Constructs a new leg.
+     *
+     * @param edge the edge travelled
+     * @param from the vertex where the leg starts, one of the ends of the edge
+     * @param to the vertex where the leg ends, the other end of the edge
+     */
+    public PathLeg(EdgeTransport edge, VertexTransport from, VertexTransport to) {
+        this.edge = edge;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Returns the edge travelled.
+     *
+     * @return the edge of the network
+     */
+    public EdgeTransport getEdge() {
+        return edge;
+    }
+
+    /**
+     * Returns the vertex where the leg starts.
+     *
+     * @return the vertex where the leg starts
+     */
+    public VertexTransport getFrom() {
+        return from;
+    }
+
+    /**
+     * Returns the vertex where the leg ends.
+     *
+     * @return the vertex where the leg ends
+     */
+    public VertexTransport getTo() {
+        return to;
+    }
+
+    /**
+     * Returns the line name of the edge, which omits the variant
+     *
+     * @return line name
+     */
+    public String getLineName() {
+        return edge.getLineName();
+    }
+
+    /**
+     * Returns a string representation of the leg.
+     *
+     * @return a string representation of the leg
+     */
+    @Override
+    public String toString() {
+        return from + " - " + to + "; line : " + edge.getLineName();
+    }
+}
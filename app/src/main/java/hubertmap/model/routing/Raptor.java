@@ -0,0 +1,373 @@
+package hubertmap.model.routing;
+
+import hubertmap.model.DurationJourney;
+import hubertmap.model.Time;
+import hubertmap.model.transport.Line;
+import hubertmap.model.transport.Network;
+import hubertmap.model.transport.Station;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The Raptor class implements the Round-bAsed Public Transit Optimized Router. Every line variant
+ * is a route with a fixed sequence of stops and sorted trips, and round k finds the earliest
+ * arrival at every stop using at most k rides. The result of a query is the Pareto set of journeys
+ * trading arrival time against the number of changes. Several threads can query the same instance,
+ * each one reusing its own arrays from one query to the next.
+ */
+public class Raptor {
+
+    private static final int UNREACHED = Integer.MAX_VALUE;
+
+    private static final int NONE = 0;
+    private static final int RIDE = 1;
+    private static final int TRANSFER = 2;
+
+    private final StopIndex stops;
+
+    /** The line variant of every route. */
+    private final Line[] routeLines;
+
+    /** routeStopStart[r] to routeStopStart[r + 1] are the positions of route r. */
+    private final int[] routeStopStart;
+
+    /** The stop id at every position of every route. */
+    private final int[] routeStops;
+
+    /** The time from the first stop of the route to every position, in seconds. */
+    private final int[] routeOffsets;
+
+    /** routeTripStart[r] to routeTripStart[r + 1] are the trips of route r. */
+    private final int[] routeTripStart;
+
+    /** The sorted starting time of every trip at the first stop of its route, in seconds. */
+    private final int[] tripStarts;
+
+    /** stopRouteStart[s] to stopRouteStart[s + 1] are the routes serving stop s. */
+    private final int[] stopRouteStart;
+
+    private final int[] stopRoutes;
+
+    /** The position of the stop in its route, for every entry of stopRoutes. */
+    private final int[] stopRoutePositions;
+
+    /** The arrays of the queries of every thread, reused from one query to the next. */
+    private final ThreadLocal<Rounds> rounds;
+
+    /**
+     * The arrival times and parents of every round of a query, with the marks of the stops. They
+     * are allocated for the largest number of rounds asked so far and reset by each query.
+     */
+    private static final class Rounds {
+        private final int stopCount;
+        private int[][] arrival = new int[0][];
+        private int[][] parent = new int[0][];
+        private int[][] parentFrom = new int[0][];
+        private int[][] parentTrip = new int[0][];
+        private int[][] parentBoard = new int[0][];
+        private int[][] parentAlight = new int[0][];
+        private final boolean[] marked;
+        private final boolean[] target;
+        private final int[] firstPosition;
+
+        private Rounds(int stopCount, int routeCount) {
+            this.stopCount = stopCount;
+            marked = new boolean[stopCount];
+            target = new boolean[stopCount];
+            firstPosition = new int[routeCount];
+        }
+
+        /** Makes room for the given number of rounds and clears the marks. */
+        private void reset(int roundCount) {
+            if (arrival.length < roundCount) {
+                arrival = grow(arrival, roundCount);
+                parent = grow(parent, roundCount);
+                parentFrom = grow(parentFrom, roundCount);
+                parentTrip = grow(parentTrip, roundCount);
+                parentBoard = grow(parentBoard, roundCount);
+                parentAlight = grow(parentAlight, roundCount);
+            }
+            Arrays.fill(marked, false);
+            Arrays.fill(target, false);
+        }
+
+        /** Returns the rows of a table with new rows added up to the given count. */
+        private int[][] grow(int[][] rows, int roundCount) {
+            int[][] grown = Arrays.copyOf(rows, roundCount);
+            for (int k = rows.length; k < roundCount; k++) {
+                grown[k] = new int[stopCount];
+            }
+            return grown;
+        }
+    }
+
+    /**
+     * Constructs the routes of the network from its lines, their stations and starting times.
+     *
+     * @param network the network with its lines and timetables
+     */
+    public Raptor(Network network) {
+        stops = new StopIndex(network);
+        List<Line> lines = StopIndex.sortedLines(network);
+
+        int routeCount = lines.size();
+        routeLines = lines.toArray(new Line[0]);
+        routeStopStart = new int[routeCount + 1];
+        routeTripStart = new int[routeCount + 1];
+        for (int r = 0; r < routeCount; r++) {
+            int length = routeLength(network, routeLines[r]);
+            routeStopStart[r + 1] = routeStopStart[r] + length;
+            routeTripStart[r + 1] = routeTripStart[r] + routeLines[r].starts.size();
+        }
+
+        routeStops = new int[routeStopStart[routeCount]];
+        routeOffsets = new int[routeStopStart[routeCount]];
+        tripStarts = new int[routeTripStart[routeCount]];
+        int[] stopRouteCount = new int[stops.size() + 1];
+        for (int r = 0; r < routeCount; r++) {
+            List<Station> lineStations = routeLines[r].getAllStations();
+            List<DurationJourney> durations = network.getDataLine().get(routeLines[r]);
+            int offset = 0;
+            for (int i = routeStopStart[r]; i < routeStopStart[r + 1]; i++) {
+                int position = i - routeStopStart[r];
+                if (position > 0) offset += durations.get(position - 1).toSeconds();
+                routeStops[i] = stops.idOf(lineStations.get(position));
+                routeOffsets[i] = offset;
+                stopRouteCount[routeStops[i] + 1]++;
+            }
+
+            int trip = routeTripStart[r];
+            for (Time start : routeLines[r].starts) {
+                tripStarts[trip++] = start.toSeconds();
+            }
+            Arrays.sort(tripStarts, routeTripStart[r], routeTripStart[r + 1]);
+        }
+
+        stopRouteStart = new int[stops.size() + 1];
+        for (int s = 0; s < stops.size(); s++) {
+            stopRouteStart[s + 1] = stopRouteStart[s] + stopRouteCount[s + 1];
+        }
+        stopRoutes = new int[stopRouteStart[stops.size()]];
+        stopRoutePositions = new int[stopRoutes.length];
+        int[] next = new int[stops.size()];
+        for (int r = 0; r < routeCount; r++) {
+            for (int i = routeStopStart[r]; i < routeStopStart[r + 1]; i++) {
+                int s = routeStops[i];
+                int entry = stopRouteStart[s] + next[s]++;
+                stopRoutes[entry] = r;
+                stopRoutePositions[entry] = i - routeStopStart[r];
+            }
+        }
+        int stopCount = stops.size();
+        rounds = ThreadLocal.withInitial(() -> new Rounds(stopCount, routeCount));
+    }
+
+    /**
+     * Returns the number of stops of the route of a line, which can't exceed the number of
+     * durations known between its stations.
+     *
+     * @param network the network with the durations of the lines
+     * @param line the line of the route
+     * @return the number of stops of the route
+     */
+    private static int routeLength(Network network, Line line) {
+        int durations = network.getDataLine().get(line).size();
+        return Math.min(line.getAllStations().size(), durations + 1);
+    }
+
+    /**
+     * Computes the Pareto set of journeys between two stations: every journey of the result arrives
+     * earlier than all the journeys with fewer changes. Every platform of a station with the given
+     * name can be used, and changing platform at the extremities of the journey is free.
+     *
+     * @param from name of the departure station
+     * @param to name of the destination station
+     * @param departure the time at which the traveller is at the departure station
+     * @param maxRounds the maximum number of rides of a journey, which bounds the query time
+     * @return the journeys sorted by increasing number of rides, or null if a station is unknown
+     */
+    public List<Journey> paretoJourneys(String from, String to, Time departure, int maxRounds) {
+        int[] origins = stops.idsNamed(from);
+        int[] targets = stops.idsNamed(to);
+        if (origins == null || targets == null) return null;
+        return paretoJourneys(origins, targets, departure.toSeconds(), maxRounds);
+    }
+
+    /**
+     * Runs the rounds from the given stops and builds one journey for every round improving the
+     * arrival at a target stop.
+     *
+     * @param origins ids of the stops where the traveller is at the departure time
+     * @param targets ids of the stops where the traveller wants to go
+     * @param departure the departure time in seconds since midnight
+     * @param maxRounds the maximum number of rides of a journey
+     * @return the journeys sorted by increasing number of rides
+     */
+    List<Journey> paretoJourneys(int[] origins, int[] targets, int departure, int maxRounds) {
+        int n = stops.size();
+        Rounds state = rounds.get();
+        state.reset(maxRounds + 1);
+        int[][] arrival = state.arrival;
+        int[][] parent = state.parent;
+        int[][] parentFrom = state.parentFrom;
+        int[][] parentTrip = state.parentTrip;
+        int[][] parentBoard = state.parentBoard;
+        int[][] parentAlight = state.parentAlight;
+        boolean[] marked = state.marked;
+        boolean[] target = state.target;
+        int[] firstPosition = state.firstPosition;
+
+        Arrays.fill(arrival[0], UNREACHED);
+        for (int t : targets) {
+            target[t] = true;
+        }
+        int best = UNREACHED;
+        for (int o : origins) {
+            arrival[0][o] = departure;
+            marked[o] = true;
+            if (target[o]) best = departure;
+        }
+
+        List<Journey> journeys = new ArrayList<>();
+        if (best != UNREACHED) {
+            journeys.add(new Journey(new ArrayList<>(), departure, departure));
+            return journeys;
+        }
+
+        for (int k = 1; k <= maxRounds; k++) {
+            int[] previous = arrival[k - 1];
+            int[] current = arrival[k];
+            System.arraycopy(previous, 0, current, 0, n);
+            Arrays.fill(parent[k], NONE);
+
+            // collects the routes serving a stop improved in the previous round
+            Arrays.fill(firstPosition, -1);
+            boolean any = false;
+            for (int s = 0; s < n; s++) {
+                if (!marked[s]) continue;
+                marked[s] = false;
+                for (int e = stopRouteStart[s]; e < stopRouteStart[s + 1]; e++) {
+                    int r = stopRoutes[e];
+                    int position = stopRoutePositions[e];
+                    if (firstPosition[r] == -1 || position < firstPosition[r]) {
+                        firstPosition[r] = position;
+                        any = true;
+                    }
+                }
+            }
+            if (!any) break;
+
+            for (int r = 0; r < routeLines.length; r++) {
+                if (firstPosition[r] == -1) continue;
+                int trip = -1;
+                int board = -1;
+                for (int i = routeStopStart[r] + firstPosition[r]; i < routeStopStart[r + 1]; i++) {
+                    int s = routeStops[i];
+                    if (trip != -1) {
+                        int time = tripStarts[trip] + routeOffsets[i];
+                        if (time < current[s] && time < best) {
+                            current[s] = time;
+                            parent[k][s] = RIDE;
+                            parentFrom[k][s] = r;
+                            parentTrip[k][s] = trip;
+                            parentBoard[k][s] = board;
+                            parentAlight[k][s] = i;
+                            marked[s] = true;
+                            if (target[s]) best = time;
+                        }
+                    }
+                    if (previous[s] != UNREACHED
+                            && (trip == -1 || previous[s] < tripStarts[trip] + routeOffsets[i])) {
+                        int earlier = earliestTrip(r, previous[s] - routeOffsets[i]);
+                        if (earlier != -1 && (trip == -1 || earlier < trip)) {
+                            trip = earlier;
+                            board = i;
+                        }
+                    }
+                }
+            }
+
+            for (int s = 0; s < n; s++) {
+                if (!marked[s] || parent[k][s] != RIDE) continue;
+                for (int i = stops.transferStart(s); i < stops.transferEnd(s); i++) {
+                    int other = stops.transferTarget(i);
+                    int time = current[s] + stops.transferSeconds(i);
+                    if (time < current[other] && time < best) {
+                        current[other] = time;
+                        parent[k][other] = TRANSFER;
+                        parentFrom[k][other] = s;
+                        marked[other] = true;
+                        if (target[other]) best = time;
+                    }
+                }
+            }
+
+            int reached = UNREACHED;
+            int reachedStop = -1;
+            for (int t : targets) {
+                if (parent[k][t] != NONE && current[t] < reached) {
+                    reached = current[t];
+                    reachedStop = t;
+                }
+            }
+            if (reachedStop != -1) {
+                List<Leg> legs = new ArrayList<>();
+                int s = reachedStop;
+                int round = k;
+                while (round > 0) {
+                    if (parent[round][s] == TRANSFER) {
+                        int from = parentFrom[round][s];
+                        legs.add(
+                                new Leg(
+                                        Leg.CHANGE,
+                                        null,
+                                        stops.station(from),
+                                        stops.station(s),
+                                        arrival[round][from],
+                                        arrival[round][s]));
+                        s = from;
+                    } else if (parent[round][s] == RIDE) {
+                        Line line = routeLines[parentFrom[round][s]];
+                        int trip = parentTrip[round][s];
+                        int board = parentBoard[round][s];
+                        legs.add(
+                                new Leg(
+                                        line.getName().split(" ")[0],
+                                        line,
+                                        stops.station(routeStops[board]),
+                                        stops.station(s),
+                                        tripStarts[trip] + routeOffsets[board],
+                                        tripStarts[trip] + routeOffsets[parentAlight[round][s]]));
+                        s = routeStops[board];
+                        round--;
+                    } else {
+                        round--;
+                    }
+                }
+                Collections.reverse(legs);
+                journeys.add(new Journey(legs, departure, reached));
+            }
+        }
+        return journeys;
+    }
+
+    /**
+     * Returns the first trip of a route leaving its first stop at or after the given time.
+     *
+     * @param route the route
+     * @param start the time at the first stop of the route, in seconds
+     * @return the trip, or -1 if every trip of the route leaves earlier
+     */
+    private int earliestTrip(int route, int start) {
+        int low = routeTripStart[route];
+        int high = routeTripStart[route + 1];
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (tripStarts[mid] < start) low = mid + 1;
+            else high = mid;
+        }
+        return low == routeTripStart[route + 1] ? -1 : low;
+    }
+}
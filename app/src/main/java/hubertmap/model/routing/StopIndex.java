@@ -0,0 +1,189 @@
+package hubertmap.model.routing;
+
+import hubertmap.model.transport.EdgeTransport;
+import hubertmap.model.transport.Line;
+import hubertmap.model.transport.Network;
+import hubertmap.model.transport.Station;
+import hubertmap.model.transport.VertexTransport;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The StopIndex class gives a dense integer id to every station served by the lines of a network,
+ * and stores the changes between platforms of a same station in compact arrays.
+ */
+final class StopIndex {
+
+    private final List<Station> stations = new ArrayList<>();
+    private final Map<Station, Integer> ids = new HashMap<>();
+    private final Map<String, int[]> idsByName = new HashMap<>();
+
+    /** transferStart[s] to transferStart[s + 1] are the changes leaving stop s */
+    private final int[] transferStart;
+
+    private final int[] transferTarget;
+    private final int[] transferSeconds;
+
+    /**
+     * Constructs the index of the stations of the given network.
+     *
+     * @param network the network to index
+     */
+    StopIndex(Network network) {
+        for (Line line : sortedLines(network)) {
+            for (Station station : line.getAllStations()) {
+                add(station);
+            }
+        }
+
+        List<EdgeTransport> changes = new ArrayList<>();
+        for (EdgeTransport edge : network.getGraph().getEdges()) {
+            VertexTransport start = edge.getStartingStation();
+            VertexTransport end = edge.getEndingStation();
+            if (edge.getLineName().equals(Leg.CHANGE)
+                    && start instanceof Station
+                    && end instanceof Station) {
+                add((Station) start);
+                add((Station) end);
+                changes.add(edge);
+            }
+        }
+
+        int n = stations.size();
+        transferStart = new int[n + 1];
+        transferTarget = new int[changes.size() * 2];
+        transferSeconds = new int[changes.size() * 2];
+        for (EdgeTransport edge : changes) {
+            transferStart[idOf((Station) edge.getStartingStation()) + 1]++;
+            transferStart[idOf((Station) edge.getEndingStation()) + 1]++;
+        }
+        for (int s = 0; s < n; s++) {
+            transferStart[s + 1] += transferStart[s];
+        }
+        int[] next = new int[n];
+        for (EdgeTransport edge : changes) {
+            int a = idOf((Station) edge.getStartingStation());
+            int b = idOf((Station) edge.getEndingStation());
+            int seconds = edge.getDurationJourney().toSeconds();
+            int i = transferStart[a] + next[a]++;
+            transferTarget[i] = b;
+            transferSeconds[i] = seconds;
+            int j = transferStart[b] + next[b]++;
+            transferTarget[j] = a;
+            transferSeconds[j] = seconds;
+        }
+    }
+
+    /**
+     * Returns the lines of the network sorted by name, so that ids do not depend on hash order.
+     *
+     * @param network the network whose lines are returned
+     * @return the sorted list of lines
+     */
+    static List<Line> sortedLines(Network network) {
+        List<Line> lines = new ArrayList<>(network.getLines());
+        lines.sort(Comparator.comparing(Line::getName));
+        return lines;
+    }
+
+    private void add(Station station) {
+        if (ids.containsKey(station)) return;
+        int id = stations.size();
+        ids.put(station, id);
+        stations.add(station);
+
+        String name = station.getName().toLowerCase();
+        int[] same = idsByName.get(name);
+        if (same == null) {
+            idsByName.put(name, new int[] {id});
+        } else {
+            int[] grown = Arrays.copyOf(same, same.length + 1);
+            grown[same.length] = id;
+            idsByName.put(name, grown);
+        }
+    }
+
+    /**
+     * Returns the number of stops in the index.
+     *
+     * @return the number of stops
+     */
+    int size() {
+        return stations.size();
+    }
+
+    /**
+     * Returns the id of a station.
+     *
+     * @param station the station to look up
+     * @return the id of the station, or -1 if it is not served by any line
+     */
+    int idOf(Station station) {
+        Integer id = ids.get(station);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns the station with the given id.
+     *
+     * @param id the id of the station
+     * @return the station
+     */
+    Station station(int id) {
+        return stations.get(id);
+    }
+
+    /**
+     * Returns the ids of every platform of the station with the given name.
+     *
+     * @param name the name of the station, case insensitive
+     * @return the ids of the platforms, or null if no station has this name
+     */
+    int[] idsNamed(String name) {
+        return idsByName.get(name.toLowerCase());
+    }
+
+    /**
+     * Returns the index of the first change leaving the given stop.
+     *
+     * @param stop the id of the stop
+     * @return the index of the first change in the transfer arrays
+     */
+    int transferStart(int stop) {
+        return transferStart[stop];
+    }
+
+    /**
+     * Returns the index after the last change leaving the given stop.
+     *
+     * @param stop the id of the stop
+     * @return the index after the last change in the transfer arrays
+     */
+    int transferEnd(int stop) {
+        return transferStart[stop + 1];
+    }
+
+    /**
+     * Returns the stop reached by the given change.
+     *
+     * @param transfer the index of the change
+     * @return the id of the stop reached
+     */
+    int transferTarget(int transfer) {
+        return transferTarget[transfer];
+    }
+
+    /**
+     * Returns the duration of the given change.
+     *
+     * @param transfer the index of the change
+     * @return the duration in seconds
+     */
+    int transferSeconds(int transfer) {
+        return transferSeconds[transfer];
+    }
+}
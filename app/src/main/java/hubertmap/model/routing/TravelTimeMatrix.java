@@ -0,0 +1,238 @@
+package hubertmap.model.routing;
+
+import hubertmap.model.transport.Station;
+import hubertmap.model.transport.VertexTransport;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The TravelTimeMatrix class computes the travel times from a set of origins to a set of
+ * destinations. Each origin gives one row of the matrix with a single search reaching every
+ * destination at once, and the rows are shared between the threads of a fork/join pool, each of
+ * them reusing its search state for all its rows. No path is built: the results are written in a
+ * primitive array, the time from origin i to destination j being at index i * destinations + j.
+ *
+ * <p>An origin or destination is either a vertex of the graph, every platform of a station being
+ * then usable without changing, or a vertex outside of it linked to the graph by walking legs.
+ */
+public final class TravelTimeMatrix {
+
+    /** The time of a destination that can't be reached from an origin. */
+    public static final int UNREACHABLE = -1;
+
+    private final List<VertexTransport> origins;
+    private final List<List<PathLeg>> access;
+    private final List<VertexTransport> destinations;
+    private final List<List<PathLeg>> egress;
+
+    /**
+     * Constructs the matrix between the given vertices.
+     *
+     * @param origins the origins, one per row
+     * @param access the legs from every origin to the graph, empty for the vertices of the graph
+     * @param destinations the destinations, one per column
+     * @param egress the legs from the graph to every destination, empty for the vertices of the
+     *     graph
+     */
+    public TravelTimeMatrix(
+            List<VertexTransport> origins,
+            List<List<PathLeg>> access,
+            List<VertexTransport> destinations,
+            List<List<PathLeg>> egress) {
+        this.origins = origins;
+        this.access = access;
+        this.destinations = destinations;
+        this.egress = egress;
+    }
+
+    /** The vertices at an end of a trip with the cost to reach them from it, or from them to it. */
+    private static final class End {
+        private final int[] ids;
+        private final int[] costs;
+
+        private End(int[] ids, int[] costs) {
+            this.ids = ids;
+            this.costs = costs;
+        }
+    }
+
+    /** The computation of a range of rows by one thread. */
+    private interface Rows {
+        void compute(int from, int to);
+    }
+
+    /**
+     * Returns the travel times estimated with the weights of the edges, which the paths of {@link
+     * CsrDijkstra} minimize.
+     *
+     * @param graph the routing graph
+     * @return the estimated times in seconds, or {@link #UNREACHABLE}
+     */
+    public int[] estimate(CsrGraph graph) {
+        End[] from = new End[origins.size()];
+        for (int i = 0; i < from.length; i++) {
+            from[i] = graphEnd(graph, origins.get(i), access.get(i), true);
+        }
+        End[] to = new End[destinations.size()];
+        for (int j = 0; j < to.length; j++) {
+            to[j] = graphEnd(graph, destinations.get(j), egress.get(j), false);
+        }
+
+        int[] matrix = new int[from.length * to.length];
+        run(
+                from.length,
+                (first, last) -> {
+                    CsrDijkstra search = new CsrDijkstra(graph);
+                    for (int i = first; i < last; i++) {
+                        float[] weights = new float[from[i].ids.length];
+                        for (int k = 0; k < weights.length; k++) weights[k] = from[i].costs[k];
+                        search.sweep(from[i].ids, weights);
+                        for (int j = 0; j < to.length; j++) {
+                            float best = Float.POSITIVE_INFINITY;
+                            for (int k = 0; k < to[j].ids.length; k++) {
+                                float weight = search.weightTo(to[j].ids[k]) + to[j].costs[k];
+                                best = Math.min(best, weight);
+                            }
+                            boolean reached = best != Float.POSITIVE_INFINITY;
+                            matrix[i * to.length + j] = reached ? Math.round(best) : UNREACHABLE;
+                        }
+                    }
+                });
+        return matrix;
+    }
+
+    /**
+     * Returns the travel times following the timetables of the lines, leaving every origin at the
+     * given time, like the journeys of {@link ConnectionScan}. Walking legs last their duration.
+     *
+     * @param scan the timetable engine
+     * @param departure the departure time in seconds since midnight
+     * @return the times in seconds from the departure to the arrival, or {@link #UNREACHABLE}
+     */
+    public int[] earliestArrivals(ConnectionScan scan, int departure) {
+        End[] from = new End[origins.size()];
+        for (int i = 0; i < from.length; i++) {
+            from[i] = stopEnd(scan, origins.get(i), access.get(i), true);
+        }
+        End[] to = new End[destinations.size()];
+        boolean[] target = new boolean[scan.getStopCount()];
+        for (int j = 0; j < to.length; j++) {
+            to[j] = stopEnd(scan, destinations.get(j), egress.get(j), false);
+            for (int stop : to[j].ids) target[stop] = true;
+        }
+
+        int[] matrix = new int[from.length * to.length];
+        run(
+                from.length,
+                (first, last) -> {
+                    int[] arrival = new int[scan.getStopCount()];
+                    boolean[] boarded = new boolean[scan.getTripCount()];
+                    for (int i = first; i < last; i++) {
+                        Arrays.fill(arrival, ConnectionScan.UNREACHED);
+                        Arrays.fill(boarded, false);
+                        for (int k = 0; k < from[i].ids.length; k++) {
+                            int stop = from[i].ids[k];
+                            arrival[stop] = Math.min(arrival[stop], departure + from[i].costs[k]);
+                        }
+                        scan.arrivalsFrom(
+                                departure, ConnectionScan.UNREACHED, arrival, target, boarded);
+                        for (int j = 0; j < to.length; j++) {
+                            long best = ConnectionScan.UNREACHED;
+                            for (int k = 0; k < to[j].ids.length; k++) {
+                                int time = arrival[to[j].ids[k]];
+                                if (time != ConnectionScan.UNREACHED) {
+                                    best = Math.min(best, (long) time + to[j].costs[k]);
+                                }
+                            }
+                            matrix[i * to.length + j] =
+                                    best == ConnectionScan.UNREACHED
+                                            ? UNREACHABLE
+                                            : (int) (best - departure);
+                        }
+                    }
+                });
+        return matrix;
+    }
+
+    /** Returns the vertices of the graph at an end with the weights of their legs. */
+    private static End graphEnd(
+            CsrGraph graph, VertexTransport vertex, List<PathLeg> legs, boolean access) {
+        int id = graph.idOf(vertex);
+        if (id != -1) {
+            int[] ids = vertex instanceof Station ? graph.stationIds(vertex.getName()) : new int[0];
+            if (ids.length == 0) ids = new int[] {id};
+            return new End(ids, new int[ids.length]);
+        }
+        int[] ids = new int[legs.size()];
+        int[] costs = new int[legs.size()];
+        int count = 0;
+        for (PathLeg leg : legs) {
+            int v = graph.idOf(access ? leg.getTo() : leg.getFrom());
+            if (v == -1) continue;
+            ids[count] = v;
+            costs[count++] = Math.round(CsrDijkstra.weight(leg));
+        }
+        return new End(Arrays.copyOf(ids, count), Arrays.copyOf(costs, count));
+    }
+
+    /** Returns the stops of the timetable at an end with the duration of their legs. */
+    private static End stopEnd(
+            ConnectionScan scan, VertexTransport vertex, List<PathLeg> legs, boolean access) {
+        if (vertex instanceof Station) {
+            int[] ids = scan.stopsNamed(vertex.getName());
+            if (ids == null) ids = new int[0];
+            return new End(ids, new int[ids.length]);
+        }
+        int[] ids = new int[legs.size()];
+        int[] costs = new int[legs.size()];
+        int count = 0;
+        for (PathLeg leg : legs) {
+            VertexTransport station = access ? leg.getTo() : leg.getFrom();
+            int stop = station instanceof Station ? scan.stopOf((Station) station) : -1;
+            if (stop == -1) continue;
+            ids[count] = stop;
+            costs[count++] = leg.getEdge().getDurationJourney().toSeconds();
+        }
+        return new End(Arrays.copyOf(ids, count), Arrays.copyOf(costs, count));
+    }
+
+    /**
+     * Computes the rows in the common fork/join pool. The rows are split in halves until a range is
+     * small enough, so every thread gets several ranges to balance the longer searches.
+     */
+    private static void run(int rowCount, Rows rows) {
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        int grain = Math.max(1, rowCount / (8 * parallelism));
+        ForkJoinPool.commonPool().invoke(new RowRange(rows, 0, rowCount, grain));
+    }
+
+    /** A range of rows computed by one task, or split between two. */
+    private static final class RowRange extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Rows rows;
+        private final int from;
+        private final int to;
+        private final int grain;
+
+        private RowRange(Rows rows, int from, int to, int grain) {
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                rows.compute(from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(
+                    new RowRange(rows, from, middle, grain), new RowRange(rows, middle, to, grain));
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package hubertmap.model.transport;
+
+import hubertmap.model.Time;
+
+/** The Departure class represents a train leaving a station, as shown on a departure board. */
+public final class Departure {
+
+    private final Line line;
+    private final int seconds;
+
+    /**
+     * Constructs a new departure.
+     *
+     * @param line the line variant of the train
+     * @param seconds the departure time in seconds since midnight
+     */
+    public Departure(Line line, int seconds) {
+        this.line = line;
+        this.seconds = seconds;
+    }
+
+    /**
+     * Returns the line variant of the train.
+     *
+     * @return the line variant
+     */
+    public Line getLine() {
+        return line;
+    }
+
+    /**
+     * Returns the station where the train ends its run.
+     *
+     * @return the terminus of the line variant
+     */
+    public Station getTerminus() {
+        return line.getTerminalStationArrival();
+    }
+
+    /**
+     * Returns the departure time in seconds since midnight.
+     *
+     * @return the departure time in seconds
+     */
+    public int getSeconds() {
+        return seconds;
+    }
+
+    /**
+     * Returns the departure time.
+     *
+     * @return a new Time object with the departure time
+     */
+    public Time getTime() {
+        return new Time(seconds);
+    }
+
+    /**
+     * Returns a string representation of the departure.
+     *
+     * @return a string representation of the departure
+     */
+    @Override
+    public String toString() {
+        return getTime() + " " + line.getName() + " -> " + getTerminus();
+    }
+}
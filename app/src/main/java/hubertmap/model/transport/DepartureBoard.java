@@ -0,0 +1,91 @@
+package hubertmap.model.transport;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The DepartureBoard class lists the next departures from a station. The sorted schedules of the
+ * line variants serving the station are merged lazily, so only the departures returned are read.
+ * After the last departure of the day, the board goes on with the first ones of the next day.
+ */
+final class DepartureBoard {
+
+    private DepartureBoard() {}
+
+    /**
+     * Returns the next departures from a station strictly after the given time, sorted by time. Two
+     * variants leaving at the same time for the same terminus are listed once.
+     *
+     * @param station the station
+     * @param seconds the time in seconds since midnight
+     * @param limit the maximum number of departures
+     * @param terminus the name of the terminus of the departures, or null for all of them
+     * @param patterns the stop patterns giving the lines by name
+     * @return at most limit departures
+     */
+    static List<Departure> next(
+            Station station, int seconds, int limit, String terminus, StopPatternIndex patterns) {
+        ScheduleStore schedules = station.getSchedules();
+        int count = schedules.getLines().size();
+        Line[] lines = new Line[count];
+        int[] cursors = new int[count];
+        int[] ends = new int[count];
+        for (int id = 0; id < count; id++) {
+            StopPatternIndex.StopPattern pattern = patterns.get(schedules.getLines().get(id));
+            if (pattern == null || !serves(pattern.getLine(), terminus)) continue;
+            lines[id] = pattern.getLine();
+            cursors[id] = schedules.indexAfter(id, seconds);
+            ends[id] = schedules.size(id);
+        }
+
+        List<Departure> departures = new ArrayList<>(Math.min(limit, 64));
+        for (int day = 0; day < 2 && departures.size() < limit; day++) {
+            if (day == 1) {
+                // the next day, up to the departures already listed
+                for (int id = 0; id < count; id++) {
+                    if (lines[id] == null) continue;
+                    ends[id] = schedules.indexAfter(id, seconds);
+                    cursors[id] = 0;
+                }
+            }
+            while (departures.size() < limit) {
+                int best = -1;
+                int bestTime = Integer.MAX_VALUE;
+                for (int id = 0; id < count; id++) {
+                    if (lines[id] == null || cursors[id] >= ends[id]) continue;
+                    int time = schedules.time(id, cursors[id]);
+                    if (time < bestTime) {
+                        best = id;
+                        bestTime = time;
+                    }
+                }
+                if (best < 0) break;
+                cursors[best]++;
+                if (!isListed(departures, lines[best], bestTime)) {
+                    departures.add(new Departure(lines[best], bestTime));
+                }
+            }
+        }
+        return departures;
+    }
+
+    private static boolean serves(Line line, String terminus) {
+        return terminus == null || terminus.equals(nameOf(line.getTerminalStationArrival()));
+    }
+
+    private static String nameOf(Station station) {
+        return station == null ? "" : station.getName();
+    }
+
+    /** Returns true if a departure at this time for the same terminus is already listed. */
+    private static boolean isListed(List<Departure> departures, Line line, int seconds) {
+        for (int i = departures.size() - 1; i >= 0; i--) {
+            Departure departure = departures.get(i);
+            if (departure.getSeconds() != seconds) return false;
+            if (nameOf(departure.getTerminus()).equals(nameOf(line.getTerminalStationArrival()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
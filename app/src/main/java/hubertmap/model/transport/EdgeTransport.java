@@ -10,8 +10,8 @@ public class EdgeTransport {
 
     private DurationJourney durationJourney;
     private float distance;
-    private VertexTransport startingStation;
-    private VertexTransport endingStation;
+    private final VertexTransport startingStation;
+    private final VertexTransport endingStation;
     private String lineName;
 
     /**
@@ -117,11 +117,4 @@ public class EdgeTransport {
         // when moving by foot
         return durationJourney.toSeconds() + 20.0f; // avg waiting at a station
     }
-
-    /** swaps startingStation and endingStation */
-    public void swapStations() {
-        VertexTransport tmp = endingStation;
-        endingStation = startingStation;
-        startingStation = tmp;
-    }
 }
@@ -2,6 +2,8 @@ package hubertmap.model.transport;
 
 import hubertmap.model.Time;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
 
 /** The Line class represents a transportation line that connects two terminal stations. */
 public class Line {
@@ -12,6 +14,10 @@ public class Line {
     public ArrayList<Time> starts;
     /** The list of all stations that the line passes through. */
     public ArrayList<Station> allStations;
+    /** The names of the first indexedStations stations of allStations. */
+    private final Set<String> stationNames = new HashSet<>();
+
+    private int indexedStations;
 
     /**
      * Constructs a new instance of the Line class with a specified name, departure terminal
@@ -82,12 +88,14 @@ public class Line {
      * @param newStation The new station to be added to the metro line.
      */
     public void addStationsIfNotAlreadyExist(Station newStation) {
-        for (Station station : allStations) {
-            if (station.getName().equals(newStation.getName())) {
-                return;
-            }
+        // allStations is public, stations added to it directly are indexed here
+        for (; indexedStations < allStations.size(); indexedStations++) {
+            stationNames.add(allStations.get(indexedStations).getName());
+        }
+        if (stationNames.add(newStation.getName())) {
+            allStations.add(newStation);
+            indexedStations++;
         }
-        allStations.add(newStation);
     }
 
     /**
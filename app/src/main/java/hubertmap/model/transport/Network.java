@@ -1,32 +1,101 @@
 package hubertmap.model.transport;
 
-import edu.uci.ics.jung.algorithms.shortestpath.DijkstraShortestPath;
 import edu.uci.ics.jung.graph.Graph;
 import edu.uci.ics.jung.graph.SparseGraph;
-import edu.uci.ics.jung.graph.util.Pair;
 import hubertmap.model.DurationJourney;
 import hubertmap.model.Time;
-import java.time.LocalTime;
+import hubertmap.model.routing.ChDijkstra;
+import hubertmap.model.routing.ConnectionScan;
+import hubertmap.model.routing.ContractionHierarchy;
+import hubertmap.model.routing.CsrDijkstra;
+import hubertmap.model.routing.CsrGraph;
+import hubertmap.model.routing.Isochrone;
+import hubertmap.model.routing.IsochroneSearch;
+import hubertmap.model.routing.ItineraryBuilder;
+import hubertmap.model.routing.Journey;
+import hubertmap.model.routing.Leg;
+import hubertmap.model.routing.LowerBounds;
+import hubertmap.model.routing.PathLeg;
+import hubertmap.model.routing.Raptor;
+import hubertmap.model.routing.TravelTimeMatrix;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This class represents a network of vertex and edges between them, forming a transport network.
+ *
+ * <p>Once the network is loaded, routing queries never modify it and can be run by several threads
+ * at the same time, each thread using its own search state.
  */
 public class Network {
-    private static Graph<VertexTransport, EdgeTransport> graph;
+    /** The distance in 10th of km under which a user point is linked to every station. */
+    public static final float WALKING_RADIUS = 10;
+
+    /** The number of closest stations a user point is always linked to. */
+    public static final int NEAREST_STATIONS = 8;
+
+    /** The walking speed in km/h. */
+    public static final int WALKING_SPEED = 5;
+
+    private Graph<VertexTransport, EdgeTransport> graph;
     private HashMap<String, VertexTransport> stations;
-    private List<Point> userPoints;
 
-    private DijkstraShortestPath<VertexTransport, EdgeTransport> distancePaths;
+    /**
+     * The compressed copy of the graph used for routing, the JUNG graph is only kept for the view.
+     * It is rebuilt on first use after the graph has changed.
+     */
+    private volatile CsrGraph routingGraph;
+
+    /** The search state of every thread querying the network */
+    private final ThreadLocal<CsrDijkstra> distancePaths = new ThreadLocal<>();
+
+    /** The bounds guiding the searches towards their destination, null unless asked for. */
+    private volatile LowerBounds lowerBounds;
+
+    /** The contraction hierarchy of the routing graph, null unless it was asked for. */
+    private volatile ContractionHierarchy contractionHierarchy;
+
+    /** The hierarchy search state of every thread querying the network */
+    private final ThreadLocal<ChDijkstra> hierarchyPaths = new ThreadLocal<>();
+
+    /** The isochrone search state of every thread querying the network */
+    private final ThreadLocal<IsochroneSearch> isochroneSearches = new ThreadLocal<>();
+
     private Map<Line, ArrayList<DurationJourney>> datatLine;
 
-    private int pointCount = 0;
+    /** The stations and lines of the network with their ids, once it is loaded. */
+    private Registry registry = new Registry();
+
+    /** The timetable engine, built on first use from the lines and their starting times */
+    private volatile ConnectionScan connectionScan;
+
+    /** The round based engine, built on first use from the lines and their starting times */
+    private volatile Raptor raptor;
+
+    /** The position and time of the stations on each line, built on first use. */
+    private volatile StopPatternIndex stopPatterns;
+
+    /** The runs of the vehicles of every line, built on first use. */
+    private volatile TripTable trips;
+
+    /** The builder of timed itineraries, created at the first query. */
+    private volatile ItineraryBuilder itineraryBuilder;
+
+    /** The index of the station coordinates, built on first use. */
+    private volatile SpatialIndex spatialIndex;
+
+    /** The index of the station names, built on first use. */
+    private volatile StationSearchIndex searchIndex;
+
+    private final AtomicInteger pointCount = new AtomicInteger();
 
     /**
      * Constructs a new Network object with the given collection of edges.
@@ -36,15 +105,13 @@ public class Network {
     public Network(Collection<EdgeTransport> edges) {
         graph = new SparseGraph<>();
         stations = new HashMap<>();
-        userPoints = new ArrayList<>();
+        datatLine = new HashMap<>();
 
         if (edges != null) {
             for (EdgeTransport e : edges) {
                 addEdge(e);
             }
         }
-
-        distancePaths = new DijkstraShortestPath<>(graph, EdgeTransport::estimateWeight);
     }
 
     /** Constructs a new Network object with no edges. */
@@ -61,12 +128,29 @@ public class Network {
      */
     public void addEdge(
             EdgeTransport edge, VertexTransport vertexTransport, VertexTransport vertexTransport2) {
+        if (isNewStation(vertexTransport) || isNewStation(vertexTransport2)) {
+            spatialIndex = null;
+            searchIndex = null;
+        }
         graph.addEdge(edge, vertexTransport, vertexTransport2);
+        routingGraph = null;
+        lowerBounds = null;
+        contractionHierarchy = null;
 
         stations.putIfAbsent(vertexTransport.getName().toLowerCase(), vertexTransport);
         stations.putIfAbsent(vertexTransport2.getName().toLowerCase(), vertexTransport2);
     }
 
+    /**
+     * Returns true if the vertex is a station that isn't in the graph yet.
+     *
+     * @param vertex the vertex to check
+     * @return true if the vertex is a new station
+     */
+    private boolean isNewStation(VertexTransport vertex) {
+        return vertex instanceof Station && !graph.containsVertex(vertex);
+    }
+
     /**
      * Adds an edge to the network, connecting the stations at the start and end of the edge.
      *
@@ -85,27 +169,221 @@ public class Network {
         return graph;
     }
 
+    /**
+     * Returns the routing copy of the graph, building it if the graph has changed since the last
+     * query.
+     *
+     * @return the routing graph
+     */
+    private CsrGraph getRoutingGraph() {
+        CsrGraph current = routingGraph;
+        if (current == null) {
+            synchronized (this) {
+                if (routingGraph == null) {
+                    routingGraph = new CsrGraph(graph);
+                }
+                current = routingGraph;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Returns the search state of the calling thread for the current routing graph.
+     *
+     * @return the search state of the calling thread
+     */
+    private CsrDijkstra getDistancePaths() {
+        CsrGraph current = getRoutingGraph();
+        LowerBounds bounds = lowerBounds;
+        if (bounds != null && bounds.getGraph() != current) bounds = null;
+        CsrDijkstra search = distancePaths.get();
+        if (search == null || search.getGraph() != current || search.getBounds() != bounds) {
+            search = new CsrDijkstra(current, bounds);
+            distancePaths.set(search);
+        }
+        return search;
+    }
+
+    /**
+     * Guides the next queries towards their destination with an A* search, bounded by the
+     * coordinates of the stations and by the weights to the given number of landmarks. The paths
+     * found are the same. A contraction hierarchy, when used, takes precedence. Adding an edge to
+     * the network drops the bounds.
+     *
+     * @param landmarkCount the number of landmarks, 0 to only use the coordinates
+     */
+    public void useGoalDirectedSearch(int landmarkCount) {
+        lowerBounds = LowerBounds.build(getRoutingGraph(), landmarkCount);
+    }
+
+    /**
+     * Preprocesses the routing graph into a contraction hierarchy, used by the next queries instead
+     * of a plain Dijkstra search. The hierarchy is loaded from the given file if it was built for
+     * the current graph, otherwise it is built and saved in the file. Adding an edge to the network
+     * drops the hierarchy.
+     *
+     * @param file the hierarchy file, or null to build the hierarchy without saving it
+     */
+    public void useContractionHierarchy(File file) {
+        CsrGraph current = getRoutingGraph();
+        contractionHierarchy =
+                file == null
+                        ? ContractionHierarchy.build(current)
+                        : ContractionHierarchy.loadOrBuild(current, file);
+    }
+
+    /**
+     * Returns the hierarchy search state of the calling thread, if a hierarchy is in use.
+     *
+     * @return the hierarchy search state of the calling thread, or null
+     */
+    private ChDijkstra getHierarchyPaths() {
+        ContractionHierarchy hierarchy = contractionHierarchy;
+        if (hierarchy == null) return null;
+        ChDijkstra search = hierarchyPaths.get();
+        if (search == null || search.getHierarchy() != hierarchy) {
+            search = new ChDijkstra(hierarchy);
+            hierarchyPaths.set(search);
+        }
+        return search;
+    }
+
     /**
      * Calculates the shortest path from station1 to station2 using the distance between two
-     * stations as weight
+     * stations as weight, omitting line changes at the extremities. The edges of the network are
+     * left untouched: each leg of the result gives the direction in which its edge is travelled.
      *
-     * <p>for each edge returned, swaps starting and ending stations if needed, corresponding with
-     * the direction taken
+     * <p>Either vertex may be a point created by {@link #createPoint(double, double)}: it is then
+     * linked to its nearby stations by walking legs that only exist for this query.
+     *
+     * @param station1 starting station or point
+     * @param station2 destination station or point
+     * @return an unmodifiable list of legs to travel in the correct order
+     */
+    public List<PathLeg> route(VertexTransport station1, VertexTransport station2) {
+        List<PathLeg> access = walkingLegs(station1, true);
+        List<PathLeg> egress = walkingLegs(station2, false);
+        ChDijkstra hierarchy = getHierarchyPaths();
+        List<PathLeg> path =
+                hierarchy != null
+                        ? hierarchy.shortestPath(station1, access, station2, egress)
+                        : getDistancePaths().shortestPath(station1, access, station2, egress);
+        if (isOverlayPoint(station1) && isOverlayPoint(station2)) {
+            // two points may be closer on foot than through the network
+            PathLeg walk = walkingLeg(station1, station2, true);
+            float cost = 0;
+            for (PathLeg leg : path) {
+                cost += leg.getEdge().estimateWeight();
+            }
+            if (path.isEmpty() || walk.getEdge().estimateWeight() <= cost) {
+                path = new ArrayList<>(List.of(walk));
+            }
+        }
+        // omits line changes at the extremities
+        if (!path.isEmpty() && path.get(0).getLineName().equals("CHANGE")) {
+            path.remove(0);
+        }
+        if (!path.isEmpty() && path.get(path.size() - 1).getLineName().equals("CHANGE")) {
+            path.remove(path.size() - 1);
+        }
+        return Collections.unmodifiableList(path);
+    }
+
+    /**
+     * Calculates the shortest path from station1 to station2 using the distance between two
+     * stations as weight, omitting line changes at the extremities.
+     *
+     * @param station1 name of the starting station
+     * @param station2 name of the destination station
+     * @return an unmodifiable list of legs to travel in the correct order, or null if a station is
+     *     unknown
+     */
+    public List<PathLeg> route(String station1, String station2) {
+        VertexTransport start = stations.get(station1);
+        VertexTransport end = stations.get(station2);
+        if (start == null || end == null) return null;
+        return route(start, end);
+    }
+
+    /**
+     * Returns the station with the given name.
+     *
+     * @param name the name of the station in lower case
+     * @return the station, or null if it is unknown
+     */
+    public VertexTransport getStation(String name) {
+        return stations.get(name);
+    }
+
+    /**
+     * Makes a station of the network the one returned by {@link #getStation(String)} for its name,
+     * in place of the first station with this name added to the network.
+     *
+     * @param station the station of the network
+     */
+    public void nameStation(VertexTransport station) {
+        stations.put(station.getName().toLowerCase(), station);
+    }
+
+    /**
+     * Returns the walking legs linking a point outside of the graph to the stations within {@link
+     * #WALKING_RADIUS} and to its {@link #NEAREST_STATIONS} closest stations.
+     *
+     * @param vertex the point
+     * @param access true for legs from the point, false for legs to the point
+     * @return the walking legs, or an empty list if the vertex is in the graph
+     */
+    private List<PathLeg> walkingLegs(VertexTransport vertex, boolean access) {
+        List<PathLeg> legs = new ArrayList<>();
+        if (!isOverlayPoint(vertex)) return legs;
+        SpatialIndex index = getSpatialIndex();
+        Set<VertexTransport> candidates = new LinkedHashSet<>();
+        candidates.addAll(index.within(vertex.getX(), vertex.getY(), WALKING_RADIUS));
+        candidates.addAll(index.nearest(vertex.getX(), vertex.getY(), NEAREST_STATIONS));
+        for (VertexTransport station : candidates) {
+            legs.add(walkingLeg(vertex, station, access));
+        }
+        return legs;
+    }
+
+    /**
+     * Returns true if the vertex is a point that isn't in the graph.
+     *
+     * @param vertex the vertex to check
+     * @return true if the vertex has to be linked to the graph for the query
+     */
+    private boolean isOverlayPoint(VertexTransport vertex) {
+        return vertex instanceof Point && !graph.containsVertex(vertex);
+    }
+
+    /**
+     * Returns a walking leg between a point and another vertex.
+     *
+     * @param point the point
+     * @param vertex the other vertex
+     * @param fromPoint true if the leg starts at the point
+     * @return the walking leg
+     */
+    private PathLeg walkingLeg(VertexTransport point, VertexTransport vertex, boolean fromPoint) {
+        float distance =
+                SpatialIndex.distance(point.getX(), point.getY(), vertex.getX(), vertex.getY());
+        EdgeTransport edge =
+                new EdgeTransport(point, vertex, calculateDurationJourney(distance), distance, "");
+        return fromPoint ? new PathLeg(edge, point, vertex) : new PathLeg(edge, vertex, point);
+    }
+
+    /**
+     * Calculates the shortest path from station1 to station2 using the distance between two
+     * stations as weight. The edges are in travel order but keep their own orientation, {@link
+     * #route(VertexTransport, VertexTransport)} gives the direction of travel.
      *
      * @param station1 starting station
      * @param station2 destination station
      * @return a list edges to visit in the correct order
      */
     public List<EdgeTransport> shortestPath(VertexTransport station1, VertexTransport station2) {
-        List<EdgeTransport> list = distancePaths.getPath(station1, station2);
-        VertexTransport s = station1;
-        for (EdgeTransport e : list) {
-            if (!e.getStartingStation().equals(s)) {
-                e.swapStations();
-            }
-            s = e.getEndingStation();
-        }
-        return list;
+        return edgesOf(route(station1, station2));
     }
 
     /**
@@ -117,17 +395,16 @@ public class Network {
      * @return a list edges to visit in the correct order
      */
     public List<EdgeTransport> shortestPath(String station1, String station2) {
-        if (stations.get(station1) != null && stations.get(station2) != null) {
-            List<EdgeTransport> path = shortestPath(stations.get(station1), stations.get(station2));
-            // omits line changes at the extremities
-            if (!path.isEmpty() && path.get(0).getLineName().equals("CHANGE")) {
-                path.remove(0);
-            }
-            if (!path.isEmpty() && path.get(path.size() - 1).getLineName().equals("CHANGE")) {
-                path.remove(path.size() - 1);
-            }
-            return path;
-        } else return null;
+        List<PathLeg> path = route(station1, station2);
+        return path == null ? null : edgesOf(path);
+    }
+
+    private static List<EdgeTransport> edgesOf(List<PathLeg> path) {
+        List<EdgeTransport> edges = new ArrayList<>(path.size());
+        for (PathLeg leg : path) {
+            edges.add(leg.getEdge());
+        }
+        return edges;
     }
 
     /**
@@ -137,257 +414,371 @@ public class Network {
      */
     public void setDataLine(Map<Line, ArrayList<DurationJourney>> dataLine) {
         this.datatLine = dataLine;
+        this.connectionScan = null;
+        this.raptor = null;
+        this.stopPatterns = null;
+        this.trips = null;
+        this.itineraryBuilder = null;
     }
 
     /**
-     * Returns the list of lines in the network.
+     * Returns the lines of the network with the duration of the journey between their stations.
      *
-     * @return the list of lines in the network
+     * @return the lines with their duration
      */
-    public Set<Line> getLines() {
-        return datatLine.keySet();
+    public Map<Line, ArrayList<DurationJourney>> getDataLine() {
+        return datatLine;
     }
 
     /**
-     * Creates a point defined by the coordinates provided by the user
+     * Sets the registry of the stations and lines of the network.
      *
-     * @param x x coordinate
-     * @param y y coordinate
-     * @return name of created point
-     */
-    public String createPoint(double x, double y) {
-        Point p = new Point("point" + pointCount, x, y);
-        pointCount++;
-        ArrayList<EdgeTransport> newEdges = new ArrayList<>();
-        for (VertexTransport v : graph.getVertices()) {
-            float distance = calculateDistance(p.getX(), p.getY(), v.getX(), v.getY());
-            DurationJourney durationJourney = calculateDurationJourney(distance);
-            newEdges.add(new EdgeTransport((VertexTransport) p, v, durationJourney, distance, ""));
-        }
-
-        for (EdgeTransport edgeTransport : newEdges) {
-            addEdge(edgeTransport);
-        }
+     * @param registry the registry filled while loading the network
+     */
+    public void setRegistry(Registry registry) {
+        this.registry = registry;
+    }
 
-        userPoints.add(p);
+    /**
+     * Returns the registry of the stations and lines of the network, which gives the id of every
+     * station.
+     *
+     * @return the registry of the network
+     */
+    public Registry getRegistry() {
+        return registry;
+    }
 
-        return p.getName();
+    /**
+     * Returns the stop patterns of the lines of the network, which give the position of the
+     * stations on every line and the ride time between them.
+     *
+     * @return the stop patterns of the lines
+     */
+    public StopPatternIndex getStopPatterns() {
+        StopPatternIndex index = stopPatterns;
+        if (index == null) {
+            synchronized (this) {
+                if (stopPatterns == null) {
+                    stopPatterns = new StopPatternIndex(datatLine);
+                }
+                index = stopPatterns;
+            }
+        }
+        return index;
     }
 
     /**
-     * Calculates the distance between two points on Earth using the Haversine formula.
+     * Returns the trips of the lines of the network, one per start time of a line.
      *
-     * @param x1 the latitude of the first point in degrees
-     * @param y1 the longitude of the first point in degrees
-     * @param x2 the latitude of the second point in degrees
-     * @param y2 the longitude of the second point in degrees
-     * @return the distance between the two points in 10th of km
+     * @return the trips of the lines
      */
-    private float calculateDistance(float x1, float y1, float x2, float y2) {
-        float earthRadius = 6371.0f; // Earth's radius in kilometers
-        float dLat = (float) Math.toRadians(x2 - x1);
-        float dLon = (float) Math.toRadians(y2 - y1);
-        float lat1 = (float) Math.toRadians(x1);
-        float lat2 = (float) Math.toRadians(x2);
+    public TripTable getTrips() {
+        TripTable table = trips;
+        if (table == null) {
+            synchronized (this) {
+                if (trips == null) {
+                    trips = new TripTable(getStopPatterns());
+                }
+                table = trips;
+            }
+        }
+        return table;
+    }
 
-        float a =
-                (float)
-                        (Math.sin(dLat / 2) * Math.sin(dLat / 2)
-                                + Math.sin(dLon / 2)
-                                        * Math.sin(dLon / 2)
-                                        * Math.cos(lat1)
-                                        * Math.cos(lat2));
-        float c = (float) (2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a)));
-        float distance = earthRadius * c;
+    /**
+     * Returns the next departures from a station, sorted by time.
+     *
+     * @param station the station
+     * @param from the time after which the departures are listed
+     * @param limit the maximum number of departures
+     * @return at most limit departures, continuing with the next day after the last train
+     */
+    public List<Departure> departures(Station station, Time from, int limit) {
+        return departures(station, from, limit, null);
+    }
 
-        return distance * 10; // distance is in 10th of km
+    /**
+     * Returns the next departures from a station towards a terminus, sorted by time.
+     *
+     * @param station the station
+     * @param from the time after which the departures are listed
+     * @param limit the maximum number of departures
+     * @param terminus the name of the terminus, or null for every direction
+     * @return at most limit departures, continuing with the next day after the last train
+     */
+    public List<Departure> departures(Station station, Time from, int limit, String terminus) {
+        return DepartureBoard.next(station, from.toSeconds(), limit, terminus, getStopPatterns());
     }
 
     /**
-     * Calculates the duration of a journey based on the given distance and a walking speed of 5
-     * km/h.
+     * Calculates the journey arriving the earliest at station2 when leaving station1 at the given
+     * time, following the timetables of the lines. Unlike {@link #shortestPath(String, String)},
+     * every ride of the result can actually be caught.
      *
-     * @param distance the distance of the journey in 10th of km
-     * @return the duration of the journey as a {@link DurationJourney} object
+     * @param station1 name of the starting station
+     * @param station2 name of the destination station
+     * @param departure the time at which the traveller is at the starting station
+     * @return the journey, or null if a station is unknown or the destination can't be reached
      */
-    private DurationJourney calculateDurationJourney(float distance) {
-        distance /= 10; // putting distance back in km
-        int walkingSpeed = 5; // km/h
-        int walkingTimeInSeconds = (int) Math.round((distance / walkingSpeed) * 3600);
-        return new DurationJourney(walkingTimeInSeconds);
+    public Journey earliestArrival(String station1, String station2, Time departure) {
+        return getConnectionScan().earliestArrival(station1, station2, departure);
     }
 
-    /** Deletes all user points from the graph. */
-    public void deleteUserPoints() {
-        for (Point point : userPoints) {
-            graph.removeVertex(point);
-            stations.values().remove(point);
+    /**
+     * Returns the timetable engine, built on first use.
+     *
+     * @return the timetable engine
+     */
+    private ConnectionScan getConnectionScan() {
+        ConnectionScan engine = connectionScan;
+        if (engine == null) {
+            synchronized (this) {
+                if (connectionScan == null) {
+                    connectionScan = new ConnectionScan(this);
+                }
+                engine = connectionScan;
+            }
         }
+        return engine;
     }
 
     /**
-     * Gets the times of departure and arrival for a given path between two stations or a station
-     * and a point.
+     * Calculates the travel time from every origin to every destination, with one search per origin
+     * run in parallel. The origins and destinations are stations, every platform of a station being
+     * usable, or points created by {@link #createPoint(double, double)}, linked to their nearby
+     * stations on foot. No path is built, which makes it much faster than a query per pair for
+     * large matrices.
+     *
+     * <p>Without a departure time, the times are estimated with {@link
+     * EdgeTransport#estimateWeight()} like the paths of {@link #route(VertexTransport,
+     * VertexTransport)}. With a departure time, they follow the timetables of the lines like {@link
+     * #earliestArrival(String, String, Time)}.
      *
-     * @param shortestPath The list of edges that represents the shortest path.
-     * @param vertexTransport1 The name of the first vetrex.
-     * @param vertexTransport2 The name of the second vetrex.
-     * @param currentTime The current time at which the user wants to travel.
-     * @return A pair of times, the first representing the departure time and the second the arrival
-     *     time. If there is no possible path, it returns null.
+     * @param origins the origins, one per row
+     * @param destinations the destinations, one per column
+     * @param departure the time at which the travellers leave, or null to estimate the times
+     * @return the times in seconds, the time from origin i to destination j being at index i *
+     *     destinations.size() + j, {@link TravelTimeMatrix#UNREACHABLE} if it can't be reached
      */
-    public Pair<Time> getTimes(
-            List<EdgeTransport> shortestPath,
-            VertexTransport vertexTransport1,
-            VertexTransport vertexTransport2,
-            Time currentTime) {
-
-        // If the vetrexes are equal, return the transfer time
-        if (vertexTransport1.equals(vertexTransport2)) {
-            Time arrivalTime = new Time(currentTime);
-            arrivalTime.increaseByMinute(2);
-            return new Pair<Time>(currentTime, arrivalTime);
+    public int[] travelTimes(
+            List<? extends VertexTransport> origins,
+            List<? extends VertexTransport> destinations,
+            Time departure) {
+        List<List<PathLeg>> access = new ArrayList<>(origins.size());
+        for (VertexTransport origin : origins) {
+            access.add(walkingLegs(origin, true));
         }
-        // Check if both vetrexes are stations
-        else if (vertexTransport1 instanceof Station && vertexTransport2 instanceof Station) {
-            Station station1 = (Station) vertexTransport1;
-            Station station2 = (Station) vertexTransport2;
-
-            // Get common variants for both stations
-            Set<String> commonLines = new HashSet<>(station1.getSchedules().keySet());
-            commonLines.retainAll(station2.getSchedules().keySet());
-
-            // If there are common options, find the time of departure
-            if (commonLines.size() > 0) {
-                Time departTime = new Time(0, 0, 0);
-                for (String lineName : commonLines) {
-                    // Check if the departure station is after the arrival station (stations stored
-                    // in lines should be sorted)
-                    if (endAfterStart(lineName, station1, station2)) {
-                        // Find the nearest departure time and the variant to which it belongs
-                        Time time = nextDepart(lineName, station1, currentTime);
-                        if (time != null && time.compareTo(departTime) >= 0) {
-                            departTime = time;
-                        }
-                    }
-                }
-
-                // To find the arrival time, add to the departure time the travel time and 2 minutes
-                // for the transfer
-                Time arrivalTime = null;
-                if (!departTime.equals(new Time(0, 0, 0))) {
-                    arrivalTime = calculatePathTime(departTime, shortestPath, station1, station2);
-                    if (arrivalTime != null) {
-                        return new Pair<Time>(departTime, arrivalTime);
-                    }
+        List<List<PathLeg>> egress = new ArrayList<>(destinations.size());
+        for (VertexTransport destination : destinations) {
+            egress.add(walkingLegs(destination, false));
+        }
+        TravelTimeMatrix matrix =
+                new TravelTimeMatrix(
+                        new ArrayList<>(origins), access, new ArrayList<>(destinations), egress);
+        int[] times =
+                departure == null
+                        ? matrix.estimate(getRoutingGraph())
+                        : matrix.earliestArrivals(getConnectionScan(), departure.toSeconds());
+
+        // two points may be closer on foot than through the network
+        for (int i = 0; i < origins.size(); i++) {
+            if (!isOverlayPoint(origins.get(i))) continue;
+            for (int j = 0; j < destinations.size(); j++) {
+                if (!isOverlayPoint(destinations.get(j))) continue;
+                EdgeTransport walk =
+                        walkingLeg(origins.get(i), destinations.get(j), true).getEdge();
+                int time =
+                        departure == null
+                                ? Math.round(walk.estimateWeight())
+                                : walk.getDurationJourney().toSeconds();
+                int cell = i * destinations.size() + j;
+                if (times[cell] == TravelTimeMatrix.UNREACHABLE || time < times[cell]) {
+                    times[cell] = time;
                 }
             }
         }
-        // One of the vertices is a point, return the walking time
-        else {
-            Time departTime = currentTime;
-            if (vertexTransport1 != null && vertexTransport2 != null) {
-                Time arrivalTime =
-                        calculatePathTime(
-                                departTime, shortestPath, vertexTransport1, vertexTransport2);
-                return new Pair<Time>(departTime, arrivalTime);
-            } else return null;
+        return times;
+    }
+
+    /**
+     * Returns the stations reachable from an origin within a time budget, following the timetables
+     * of the lines, with a single scan stopped at the end of the budget. The isochrone also gives
+     * the area reachable on foot from the stations. Several threads can compute isochrones at the
+     * same time, each one reusing its own search state. The search doesn't go past the last
+     * connection of the service day.
+     *
+     * @param origin the station, or a point created by {@link #createPoint(double, double)}
+     * @param departure the time at which the traveller leaves the origin
+     * @param budget the maximum travel time in seconds
+     * @return the stations reached with their earliest arrival time
+     */
+    public Isochrone isochrone(VertexTransport origin, Time departure, int budget) {
+        ConnectionScan engine = getConnectionScan();
+        IsochroneSearch search = isochroneSearches.get();
+        if (search == null || search.getScan() != engine) {
+            search = new IsochroneSearch(engine);
+            isochroneSearches.set(search);
         }
+        List<PathLeg> access = origin instanceof Station ? List.of() : walkingLegs(origin, true);
+        return search.search(origin, access, departure.toSeconds(), budget);
+    }
 
-        return null;
-    }
-
-    /**
-     * Calculates the total time of a path given the departure time, the path and the two vertices
-     * of the path.
-     *
-     * @param departTime The departure time from the first vertex.
-     * @param shortestPath The list of edges that represents the path.
-     * @param vertexTransport The starting vertex of the path.
-     * @param vertexTransport2 The ending vertex of the path.
-     * @return The arrival time at the end of the path. If there is no possible path, it returns
-     *     null.
-     */
-    private Time calculatePathTime(
-            Time departTime,
-            List<EdgeTransport> shortestPath,
-            VertexTransport vertexTransport,
-            VertexTransport vertexTransport2) {
-        Time time = new Time(departTime);
-        VertexTransport currentStation = vertexTransport;
-        for (EdgeTransport edgeTransport : shortestPath) {
-            if (edgeTransport.getStartingStation().equals(currentStation)) {
-                currentStation = edgeTransport.getEndingStation();
-                // we add 15 seconds to take stops into account
-                DurationJourney d = new DurationJourney(15).add(edgeTransport.getDurationJourney());
-                time = time.increaseWithADurationJourney(d);
+    /**
+     * Calculates the journeys from station1 to station2 trading arrival time against the number of
+     * changes: each journey of the result arrives earlier than every journey with fewer changes.
+     *
+     * @param station1 name of the starting station
+     * @param station2 name of the destination station
+     * @param departure the time at which the traveller is at the starting station
+     * @param maxRounds the maximum number of rides of a journey, which bounds the query time
+     * @return the journeys sorted by increasing number of changes, or null if a station is unknown
+     */
+    public List<Journey> paretoJourneys(
+            String station1, String station2, Time departure, int maxRounds) {
+        Raptor engine = raptor;
+        if (engine == null) {
+            synchronized (this) {
+                if (raptor == null) {
+                    raptor = new Raptor(this);
+                }
+                engine = raptor;
             }
+        }
+        return engine.paretoJourneys(station1, station2, departure, maxRounds);
+    }
+
+    /**
+     * Returns the list of lines in the network.
+     *
+     * @return the list of lines in the network
+     */
+    public Set<Line> getLines() {
+        return datatLine.keySet();
+    }
+
+    /**
+     * Creates a point defined by the coordinates provided by the user. The point is not added to
+     * the graph, it can be given to {@link #route(VertexTransport, VertexTransport)} as a starting
+     * or destination vertex.
+     *
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return the created point
+     */
+    public Point createPoint(double x, double y) {
+        return new Point("point" + pointCount.getAndIncrement(), x, y);
+    }
 
-            if (edgeTransport.getEndingStation().equals(vertexTransport2)) {
-                return time;
+    /**
+     * Returns the vertex described by a text typed by a user: a point if the text holds "x,y"
+     * coordinates, else the station with this name, accents and case being ignored. A name with a
+     * typing mistake isn't replaced by a close one, {@link StationSearchIndex#search(String, int)}
+     * gives the names to suggest instead.
+     *
+     * @param text the station name or the coordinates
+     * @return the station or a new point, or null if the station is unknown
+     */
+    public VertexTransport findVertex(String text) {
+        String[] parts = text.split(",");
+        if (parts.length == 2) {
+            try {
+                return createPoint(
+                        Double.parseDouble(parts[0].trim()), Double.parseDouble(parts[1].trim()));
+            } catch (NumberFormatException e) {
+                // a station name with a comma
             }
         }
-        return null;
+        String name = getSearchIndex().find(text);
+        return getStation(name != null ? name : text.toLowerCase());
     }
 
     /**
-     * Returns the next departure time for a given line at a given station.
+     * Returns the index of the station coordinates, built on first use.
      *
-     * @param lineName The name of the line.
-     * @param station1 The station where the user wants to take the line.
-     * @param currentTime The current time at which the user wants to travel.
-     * @return The next departure time after the current time. If there is no possible departure
-     *     time, it returns null.
+     * @return the spatial index of the stations
      */
-    private Time nextDepart(String lineName, Station station1, Time currentTime) {
-        Set<Time> stationTimes = station1.getSchedules().get(lineName);
-        if (stationTimes != null) {
-            for (Time time : stationTimes) {
-                String timeString = time.toString();
-                LocalTime stationTime = LocalTime.parse(timeString);
-                LocalTime timeToCheck = LocalTime.parse(currentTime.toString());
-                if (stationTime.isAfter(timeToCheck)) {
-                    return time;
+    public SpatialIndex getSpatialIndex() {
+        SpatialIndex index = spatialIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = spatialIndex;
+                if (index == null) {
+                    List<Station> indexed = new ArrayList<>();
+                    for (VertexTransport v : graph.getVertices()) {
+                        if (v instanceof Station) indexed.add((Station) v);
+                    }
+                    index = new SpatialIndex(indexed);
+                    spatialIndex = index;
                 }
             }
         }
-        return null;
+        return index;
     }
 
     /**
-     * Checks if the second station is after the first station on a given line.
+     * Returns the index of the station names, built on first use. The names are in lower case, as
+     * given to {@link #getStation(String)}.
      *
-     * @param lineName The name of the line.
-     * @param station1 The first station.
-     * @param station2 The second station.
-     * @return True if the second station is after the first station, false otherwise.
+     * @return the search index of the station names
      */
-    private boolean endAfterStart(String lineName, Station station1, Station station2) {
-        Line currentLine = getLineByName(getLines(), lineName);
-        if (currentLine != null) {
-            ArrayList<Station> lineStations = currentLine.getAllStations();
-            int index1 = lineStations.indexOf(station1);
-            int index2 = lineStations.indexOf(station2);
-            if (index1 < index2) return true;
-            else return false;
+    public StationSearchIndex getSearchIndex() {
+        StationSearchIndex index = searchIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = searchIndex;
+                if (index == null) {
+                    List<String> names = new ArrayList<>();
+                    for (VertexTransport v : graph.getVertices()) {
+                        if (v instanceof Station) names.add(v.getName().toLowerCase());
+                    }
+                    index = new StationSearchIndex(names);
+                    searchIndex = index;
+                }
+            }
         }
-        return false;
+        return index;
+    }
+
+    /**
+     * Calculates the duration of a journey based on the given distance and the {@link
+     * #WALKING_SPEED}.
+     *
+     * @param distance the distance of the journey in 10th of km
+     * @return the duration of the journey as a {@link DurationJourney} object
+     */
+    private DurationJourney calculateDurationJourney(float distance) {
+        return new DurationJourney(walkingSeconds(distance));
     }
 
     /**
-     * Returns the line with the given name.
+     * Returns the time it takes to walk the given distance at the {@link #WALKING_SPEED}.
      *
-     * @param lines The set of lines to search.
-     * @param name The name of the line.
-     * @return The line with the given name. If there is no line with the given name, it returns
-     *     null.
+     * @param distance the distance in 10th of km
+     * @return the walking time in seconds
      */
-    private Line getLineByName(Set<Line> lines, String name) {
-        for (Line line : lines) {
-            if (line.getName().equals(name)) {
-                return line;
+    public static int walkingSeconds(float distance) {
+        distance /= 10; // putting distance back in km
+        return (int) Math.round((distance / WALKING_SPEED) * 3600);
+    }
+
+    /**
+     * Returns the timed legs of a path, one per line ridden or walk, leaving at the given time.
+     *
+     * @param shortestPath the legs of the path, in travel order
+     * @param departure the time at which the traveller starts
+     * @return the legs of the itinerary, without times from the first ride that can't be caught
+     */
+    public List<Leg> getItinerary(List<PathLeg> shortestPath, Time departure) {
+        ItineraryBuilder builder = itineraryBuilder;
+        if (builder == null) {
+            synchronized (this) {
+                if (itineraryBuilder == null) {
+                    itineraryBuilder = new ItineraryBuilder(this);
+                }
+                builder = itineraryBuilder;
             }
         }
-        return null;
+        return builder.build(shortestPath, departure.toSeconds());
     }
 }
@@ -0,0 +1,130 @@
+package hubertmap.model.transport;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The Registry class keeps the stations and lines of a network indexed while it is loaded. Station
+ * names are interned, stations are found by name and simple line name, lines by their complete
+ * name, and every registered station gets a dense id in registration order, which it keeps: a
+ * station belongs to a single registry.
+ */
+public final class Registry {
+
+    private final Map<String, String> names = new HashMap<>();
+    private final List<Station> stations = new ArrayList<>();
+    private final Map<String, List<Station>> stationsByName = new HashMap<>();
+    private final Map<String, Station> stationsByLine = new HashMap<>();
+    private final Map<String, Line> lines = new LinkedHashMap<>();
+
+    /**
+     * Returns the shared instance of the given name.
+     *
+     * @param name the name to intern
+     * @return the first registered string equal to the name
+     */
+    public String intern(String name) {
+        String interned = names.putIfAbsent(name, name);
+        return interned == null ? name : interned;
+    }
+
+    /**
+     * Registers a station and gives it the next id. A station already registered keeps its id.
+     *
+     * @param station the station to register
+     * @return the id of the station
+     * @throws IllegalArgumentException if the station was registered by another registry
+     */
+    public int add(Station station) {
+        int id = station.getId();
+        if (id >= 0) {
+            if (id < stations.size() && stations.get(id) == station) return id;
+            throw new IllegalArgumentException(
+                    "Station " + station.getName() + " already has the id of another registry");
+        }
+        id = stations.size();
+        station.setId(id);
+        stations.add(station);
+        stationsByName.computeIfAbsent(station.getName(), name -> new ArrayList<>()).add(station);
+        stationsByLine.putIfAbsent(key(station.getName(), station.getSimpleLineName()), station);
+        return id;
+    }
+
+    /**
+     * Returns the station with the given id.
+     *
+     * @param id the id of the station
+     * @return the station
+     */
+    public Station getStation(int id) {
+        return stations.get(id);
+    }
+
+    /**
+     * Returns the number of registered stations, the ids go from 0 to this number excluded.
+     *
+     * @return the number of registered stations
+     */
+    public int getStationCount() {
+        return stations.size();
+    }
+
+    /**
+     * Returns the stations with the given name, one per simple line, in registration order.
+     *
+     * @param name the name of the stations
+     * @return the stations, or an empty list if the name is unknown
+     */
+    public List<Station> getStations(String name) {
+        List<Station> named = stationsByName.get(name);
+        return named == null ? List.of() : Collections.unmodifiableList(named);
+    }
+
+    /**
+     * Returns the station with the given name on the given line.
+     *
+     * @param name the name of the station
+     * @param simpleLineName the name of the line without variant
+     * @return the station, or null if it is unknown
+     */
+    public Station getStation(String name, String simpleLineName) {
+        return stationsByLine.get(key(name, simpleLineName));
+    }
+
+    /**
+     * Registers a line. A line with the same name already registered is kept.
+     *
+     * @param line the line to register
+     */
+    public void add(Line line) {
+        lines.putIfAbsent(line.getName(), line);
+    }
+
+    /**
+     * Returns the line with the given complete name.
+     *
+     * @param name the name of the line with its variant
+     * @return the line, or null if it is unknown
+     */
+    public Line getLine(String name) {
+        return lines.get(name);
+    }
+
+    /**
+     * Returns the registered lines, in registration order.
+     *
+     * @return the registered lines
+     */
+    public Collection<Line> getLines() {
+        return Collections.unmodifiableCollection(lines.values());
+    }
+
+    private static String key(String name, String simpleLineName) {
+        return name + '\n' + simpleLineName;
+    }
+}
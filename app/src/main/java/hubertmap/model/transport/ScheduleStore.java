@@ -0,0 +1,172 @@
+package hubertmap.model.transport;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The ScheduleStore class holds the schedules of a station: for each line variant serving the
+ * station, a sorted array of the departure times in seconds since midnight. Line variants are
+ * addressed by dense ids in the order they were added, so lookups don't allocate anything.
+ */
+public final class ScheduleStore {
+
+    private static final int[] EMPTY = new int[0];
+
+    private final ArrayList<String> lines = new ArrayList<>();
+    private int[][] times = new int[1][];
+    private int[] sizes = new int[1];
+    /** False while times were added and not yet sorted. */
+    private volatile boolean sorted = true;
+
+    /**
+     * Returns the line variants serving the station, in the order of their ids.
+     *
+     * @return the names of the line variants
+     */
+    public List<String> getLines() {
+        return Collections.unmodifiableList(lines);
+    }
+
+    /**
+     * Returns the id of the given line variant.
+     *
+     * @param line the name of the line variant
+     * @return the id of the line variant, or -1 if it doesn't serve the station
+     */
+    public int idOf(String line) {
+        for (int id = 0; id < lines.size(); id++) {
+            if (lines.get(id).equals(line)) return id;
+        }
+        return -1;
+    }
+
+    /**
+     * Adds a line variant serving the station, without any departure time. If the line variant is
+     * already known, then this method does nothing.
+     *
+     * @param line the name of the line variant
+     * @return the id of the line variant
+     */
+    public int addLine(String line) {
+        int id = idOf(line);
+        if (id >= 0) return id;
+        id = lines.size();
+        lines.add(line);
+        if (id == times.length) {
+            times = Arrays.copyOf(times, id * 2);
+            sizes = Arrays.copyOf(sizes, id * 2);
+        }
+        times[id] = EMPTY;
+        return id;
+    }
+
+    /**
+     * Adds a departure time for the given line variant, adding the line variant if needed.
+     *
+     * @param line the name of the line variant
+     * @param seconds the departure time in seconds since midnight
+     */
+    public void add(String line, int seconds) {
+        int id = addLine(line);
+        int[] lineTimes = times[id];
+        if (sizes[id] == lineTimes.length) {
+            lineTimes = Arrays.copyOf(lineTimes, Math.max(8, lineTimes.length * 2));
+            times[id] = lineTimes;
+        }
+        lineTimes[sizes[id]++] = seconds;
+        sorted = false;
+    }
+
+    /**
+     * Returns the number of departure times of the given line variant.
+     *
+     * @param id the id of the line variant
+     * @return the number of departure times
+     */
+    public int size(int id) {
+        sort();
+        return sizes[id];
+    }
+
+    /**
+     * Returns the departure times of the given line variant.
+     *
+     * @param id the id of the line variant
+     * @return a sorted copy of the departure times in seconds since midnight
+     */
+    public int[] times(int id) {
+        sort();
+        return Arrays.copyOf(times[id], sizes[id]);
+    }
+
+    /**
+     * Returns the first departure of the given line variant strictly after the given time.
+     *
+     * @param id the id of the line variant
+     * @param seconds the time in seconds since midnight
+     * @return the departure time in seconds since midnight, or -1 if there is no later departure
+     */
+    public int nextDeparture(int id, int seconds) {
+        int index = indexAfter(id, seconds);
+        return index < sizes[id] ? times[id][index] : -1;
+    }
+
+    /**
+     * Returns the index of the first departure of the given line variant strictly after the given
+     * time.
+     *
+     * @param id the id of the line variant
+     * @param seconds the time in seconds since midnight
+     * @return the index of the departure, or {@link #size(int)} if there is no later departure
+     */
+    public int indexAfter(int id, int seconds) {
+        sort();
+        int[] lineTimes = times[id];
+        int low = 0;
+        int high = sizes[id];
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (lineTimes[middle] <= seconds) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * Returns a departure of the given line variant without copying the departure times.
+     *
+     * @param id the id of the line variant
+     * @param index the index of the departure, from 0 to {@link #size(int)} excluded
+     * @return the departure time in seconds since midnight
+     */
+    public int time(int id, int index) {
+        sort();
+        if (index >= sizes[id]) throw new IndexOutOfBoundsException(index);
+        return times[id][index];
+    }
+
+    /** Sorts the departure times added since the last lookup and removes duplicates. */
+    private void sort() {
+        if (sorted) return;
+        synchronized (this) {
+            if (sorted) return;
+            for (int id = 0; id < lines.size(); id++) {
+                int[] lineTimes = times[id];
+                int size = sizes[id];
+                Arrays.sort(lineTimes, 0, size);
+                int unique = 0;
+                for (int i = 0; i < size; i++) {
+                    if (unique == 0 || lineTimes[unique - 1] != lineTimes[i]) {
+                        lineTimes[unique++] = lineTimes[i];
+                    }
+                }
+                times[id] =
+                        unique == lineTimes.length ? lineTimes : Arrays.copyOf(lineTimes, unique);
+                sizes[id] = unique;
+            }
+            sorted = true;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package hubertmap.model.transport;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The SpatialIndex class finds the vertices close to a coordinate without looking at every vertex
+ * of the network. Vertices are bucketed in a uniform grid of square cells, and a query only reads
+ * the cells in rings around the queried coordinate until no unread cell can hold a closer vertex.
+ *
+ * <p>Distances are the ones of the network edges: great-circle distances in 10th of km, with x used
+ * as the latitude and y as the longitude.
+ */
+public final class SpatialIndex {
+
+    /** Earth's radius in 10th of km. */
+    private static final double EARTH_RADIUS = 63710.0;
+
+    /** The side of a cell in degrees, about 500 m around Paris. */
+    private static final float CELL_SIZE = 0.005f;
+
+    private final VertexTransport[] vertices;
+    private final float minX;
+    private final float minY;
+    private final int columns;
+    private final int rows;
+    /** The vertices of cell c are cellVertices[cellStart[c]] to cellVertices[cellStart[c+1]-1]. */
+    private final int[] cellStart;
+
+    private final int[] cellVertices;
+    /** The highest absolute x of the vertices, used to bound the length of a degree of y. */
+    private final double maxLatitude;
+
+    /**
+     * Builds the index of the given vertices.
+     *
+     * @param vertices the vertices to index
+     */
+    public SpatialIndex(Collection<? extends VertexTransport> vertices) {
+        this.vertices = vertices.toArray(new VertexTransport[0]);
+        float lowX = Float.MAX_VALUE;
+        float lowY = Float.MAX_VALUE;
+        float highX = -Float.MAX_VALUE;
+        float highY = -Float.MAX_VALUE;
+        for (VertexTransport vertex : this.vertices) {
+            lowX = Math.min(lowX, vertex.getX());
+            lowY = Math.min(lowY, vertex.getY());
+            highX = Math.max(highX, vertex.getX());
+            highY = Math.max(highY, vertex.getY());
+        }
+        if (this.vertices.length == 0) {
+            lowX = lowY = highX = highY = 0;
+        }
+        minX = lowX;
+        minY = lowY;
+        columns = (int) ((highX - lowX) / CELL_SIZE) + 1;
+        rows = (int) ((highY - lowY) / CELL_SIZE) + 1;
+        maxLatitude = Math.max(Math.abs(lowX), Math.abs(highX));
+
+        cellStart = new int[columns * rows + 1];
+        int[] cells = new int[this.vertices.length];
+        for (int i = 0; i < this.vertices.length; i++) {
+            cells[i] = column(this.vertices[i].getX()) * rows + row(this.vertices[i].getY());
+            cellStart[cells[i] + 1]++;
+        }
+        for (int c = 0; c < columns * rows; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        cellVertices = new int[this.vertices.length];
+        int[] next = Arrays.copyOf(cellStart, columns * rows);
+        for (int i = 0; i < this.vertices.length; i++) {
+            cellVertices[next[cells[i]]++] = i;
+        }
+    }
+
+    /**
+     * Returns the number of indexed vertices.
+     *
+     * @return the number of vertices
+     */
+    public int size() {
+        return vertices.length;
+    }
+
+    /**
+     * Returns the vertices within the given distance of a coordinate.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param radius the distance in 10th of km
+     * @return the vertices within the distance, closest first
+     */
+    public List<VertexTransport> within(float x, float y, float radius) {
+        return search(x, y, vertices.length, radius);
+    }
+
+    /**
+     * Returns the k vertices closest to a coordinate.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param k the number of vertices to return
+     * @return the closest vertices, closest first; fewer than k if the index is smaller
+     */
+    public List<VertexTransport> nearest(float x, float y, int k) {
+        return search(x, y, k, Float.MAX_VALUE);
+    }
+
+    /**
+     * Returns the great-circle distance between two coordinates, x being the latitude and y the
+     * longitude in degrees.
+     *
+     * @param x1 the x coordinate of the first point
+     * @param y1 the y coordinate of the first point
+     * @param x2 the x coordinate of the second point
+     * @param y2 the y coordinate of the second point
+     * @return the distance between the two points in 10th of km
+     */
+    public static float distance(float x1, float y1, float x2, float y2) {
+        float earthRadius = 6371.0f; // Earth's radius in kilometers
+        float dLat = (float) Math.toRadians(x2 - x1);
+        float dLon = (float) Math.toRadians(y2 - y1);
+        float lat1 = (float) Math.toRadians(x1);
+        float lat2 = (float) Math.toRadians(x2);
+
+        float a =
+                (float)
+                        (Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                                + Math.sin(dLon / 2)
+                                        * Math.sin(dLon / 2)
+                                        * Math.cos(lat1)
+                                        * Math.cos(lat2));
+        float c = (float) (2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a)));
+        float distance = earthRadius * c;
+
+        return distance * 10; // distance is in 10th of km
+    }
+
+    /**
+     * Reads the rings of cells around the coordinate, keeping the k closest vertices within the
+     * radius, and stops once the next ring can't hold any closer vertex.
+     */
+    private List<VertexTransport> search(float x, float y, int k, float radius) {
+        List<VertexTransport> result = new ArrayList<>();
+        if (k <= 0 || vertices.length == 0) return result;
+        int[] found = new int[Math.min(k, 64)];
+        float[] distances = new float[found.length];
+        int count = 0;
+
+        int column = column(x);
+        int row = row(y);
+        // the coordinate may be outside the grid, the rings before it are then empty
+        int firstRing =
+                Math.max(Math.max(-column, column - columns + 1), Math.max(-row, row - rows + 1));
+        int lastRing =
+                Math.max(
+                        Math.max(Math.abs(column), Math.abs(column - columns + 1)),
+                        Math.max(Math.abs(row), Math.abs(row - rows + 1)));
+        double cos = Math.cos(Math.toRadians(Math.min(90, Math.max(maxLatitude, Math.abs(x)))));
+        double cosProduct = cos * Math.cos(Math.toRadians(Math.min(90, maxLatitude)));
+        for (int ring = Math.max(0, firstRing); ring <= lastRing; ring++) {
+            if (ring > 0) {
+                float bound = ringLowerBound(ring - 1, cosProduct);
+                if (bound > radius || (count == k && bound > distances[count - 1])) break;
+            }
+            int lastColumn = Math.min(columns - 1, column + ring);
+            for (int c = Math.max(0, column - ring); c <= lastColumn; c++) {
+                boolean side = c == column - ring || c == column + ring;
+                int step = side ? 1 : 2 * ring;
+                for (int r = row - ring; r <= row + ring; r += step) {
+                    if (r < 0 || r >= rows) continue;
+                    int cell = c * rows + r;
+                    for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                        int vertex = cellVertices[i];
+                        float d = distance(x, y, vertices[vertex].getX(), vertices[vertex].getY());
+                        if (d > radius || (count == k && d >= distances[count - 1])) continue;
+                        if (count == found.length && count < k) {
+                            found = Arrays.copyOf(found, Math.min(k, count * 2));
+                            distances = Arrays.copyOf(distances, found.length);
+                        }
+                        int j = count < k ? count++ : count - 1;
+                        while (j > 0 && distances[j - 1] > d) {
+                            found[j] = found[j - 1];
+                            distances[j] = distances[j - 1];
+                            j--;
+                        }
+                        found[j] = vertex;
+                        distances[j] = d;
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            result.add(vertices[found[i]]);
+        }
+        return result;
+    }
+
+    /**
+     * Returns a lower bound of the distance to any vertex more than the given number of cells away
+     * on x or y, given a lower bound of the product of the cosines of the two latitudes.
+     */
+    private static float ringLowerBound(int cells, double cosProduct) {
+        double angle = Math.toRadians(cells * CELL_SIZE);
+        double alongX = EARTH_RADIUS * angle;
+        double alongY =
+                EARTH_RADIUS
+                        * 2
+                        * Math.asin(Math.min(1, Math.sin(angle / 2) * Math.sqrt(cosProduct)));
+        // the distances are computed with floats, keep a margin for their rounding
+        return (float) (Math.min(alongX, alongY) * 0.999);
+    }
+
+    private int column(float x) {
+        return (int) Math.floor((x - minX) / CELL_SIZE);
+    }
+
+    private int row(float y) {
+        return (int) Math.floor((y - minY) / CELL_SIZE);
+    }
+}
@@ -6,12 +6,8 @@ package hubertmap.model.transport;
 
 import hubertmap.model.Time;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Map;
 import java.util.Set;
-import java.util.SortedSet;
-import java.util.TreeSet;
 
 /**
  * This class represents a station in a transportation system. A station has a name, coordinates (x
@@ -19,9 +15,10 @@ import java.util.TreeSet;
  */
 public class Station extends VertexTransport {
     private ArrayList<String> allLines;
-    private Map<String, SortedSet<Time>> schedules = new HashMap<>();
+    private final ScheduleStore schedules = new ScheduleStore();
     private String simpleLineName; // line name without variant
     private boolean multiLine; // used for the view
+    private int id = -1; // given by the registry
 
     /**
      * Constructs a new station with the given name, line, and coordinates. The station is served by
@@ -36,7 +33,7 @@ public class Station extends VertexTransport {
         super(name, x, y);
         this.allLines = new ArrayList<String>();
         this.allLines.add(Line);
-        schedules.put(Line, null);
+        schedules.addLine(Line);
         this.simpleLineName = Line.split(" ")[0];
         this.multiLine = false;
     }
@@ -78,11 +75,29 @@ public class Station extends VertexTransport {
     }
 
     /**
-     * Returns the list of all transportation lines that serve the station.
+     * Returns the id given to the station by its {@link Registry}.
      *
-     * @return the list of all transportation lines that serve the station
+     * @return the id of the station, or -1 if it isn't registered
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Gives the station its id, only called once by the {@link Registry} registering it.
+     *
+     * @param id the id of the station
+     */
+    void setId(int id) {
+        this.id = id;
+    }
+
+    /**
+     * Returns the schedules of the station for each line variant that serves it.
+     *
+     * @return the schedules of the station
      */
-    public Map<String, SortedSet<Time>> getSchedules() {
+    public ScheduleStore getSchedules() {
         return schedules;
     }
 
@@ -93,12 +108,17 @@ public class Station extends VertexTransport {
      * @param time the time to add to the schedule
      */
     public void addSchedule(Line line, Time time) {
-        if (schedules.get(line.getName()) == null) {
-            schedules.put(line.getName(), new TreeSet<>());
-        }
-        SortedSet<Time> times = schedules.get(line.getName());
-        times.add(time);
-        schedules.put(line.getName(), times);
+        schedules.add(line.getName(), time.toSeconds());
+    }
+
+    /**
+     * Adds a schedule for the given line at this station.
+     *
+     * @param line the line to add the schedule for
+     * @param seconds the time to add to the schedule, in seconds since midnight
+     */
+    public void addSchedule(Line line, int seconds) {
+        schedules.add(line.getName(), seconds);
     }
 
     /**
@@ -109,14 +129,14 @@ public class Station extends VertexTransport {
      */
     public void addLine(String lineName) {
         boolean exist = false;
-        for (String line : schedules.keySet()) {
+        for (String line : schedules.getLines()) {
             if (line.contains(lineName)) {
                 exist = true;
                 break;
             }
         }
         if (!exist) allLines.add(lineName);
-        schedules.put(lineName, null);
+        schedules.addLine(lineName);
     }
 
     /**
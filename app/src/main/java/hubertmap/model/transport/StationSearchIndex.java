@@ -0,0 +1,286 @@
+package hubertmap.model.transport;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * The StationSearchIndex class finds station names from what the user types. Names are compared
+ * once normalized: in lower case, without accents, and with punctuation turned into spaces, so
+ * "chatelet" finds "châtelet" and "saint lazare" finds "saint-lazare".
+ *
+ * <p>Every word of a normalized name starts a key of a sorted table, so the names starting with a
+ * prefix, or having a word starting with it, are the keys between two binary searches. A tree of
+ * the best key of each part of the table then gives the best names among them without going through
+ * all of them. A name is also indexed by its trigrams, the groups of three letters it contains,
+ * which gives the names close to a misspelled query. The index is immutable and can be shared
+ * between threads.
+ */
+public final class StationSearchIndex {
+
+    /** The part of trigrams a name must share with a query to be suggested. */
+    private static final double MIN_SIMILARITY = 0.4;
+
+    /** The names, as given. */
+    private final String[] names;
+
+    /** The normalized names. */
+    private final String[] normalized;
+
+    /** The suffixes of the normalized names starting a word, sorted. */
+    private final String[] keys;
+
+    /**
+     * ranks[k] orders the names of the keys, the lowest first: 1 at bit 40 for a word inside the
+     * name, then the length of the normalized name from bit 24, then the index of the name.
+     */
+    private final long[] ranks;
+
+    /** The segment tree of the keys: tree[i] is the key of lowest rank among the leaves of i. */
+    private final int[] tree;
+
+    /** The names containing each trigram. */
+    private final Map<String, int[]> trigrams = new HashMap<>();
+
+    /** trigramCounts[n] is the number of distinct trigrams of name n. */
+    private final int[] trigramCounts;
+
+    /** The names by normalized name. */
+    private final Map<String, String> byNormalized = new HashMap<>();
+
+    /**
+     * Constructs the index of the given names.
+     *
+     * @param stationNames the names to index, duplicates are indexed once, less than 2^24 of them
+     */
+    public StationSearchIndex(Collection<String> stationNames) {
+        names = new HashSet<>(stationNames).toArray(new String[0]);
+        Arrays.sort(names);
+        normalized = new String[names.length];
+        trigramCounts = new int[names.length];
+
+        List<String> keyList = new ArrayList<>();
+        List<Long> rankList = new ArrayList<>();
+        // the names of each trigram, preceded by their count
+        Map<String, int[]> postings = new HashMap<>();
+        for (int n = 0; n < names.length; n++) {
+            String name = normalize(names[n]);
+            normalized[n] = name;
+            byNormalized.putIfAbsent(name, names[n]);
+            for (int i = 0; i < name.length(); i++) {
+                if (i == 0 || name.charAt(i - 1) == ' ') {
+                    keyList.add(name.substring(i));
+                    long inner = i == 0 ? 0 : 1;
+                    rankList.add(inner << 40 | (long) name.length() << 24 | n);
+                }
+            }
+            Set<String> grams = trigramsOf(name);
+            trigramCounts[n] = grams.size();
+            for (String gram : grams) {
+                int[] posting = postings.get(gram);
+                if (posting == null) {
+                    posting = new int[4];
+                    postings.put(gram, posting);
+                } else if (posting[0] + 1 == posting.length) {
+                    posting = Arrays.copyOf(posting, 2 * posting.length);
+                    postings.put(gram, posting);
+                }
+                posting[++posting[0]] = n;
+            }
+        }
+
+        Integer[] order = new Integer[keyList.size()];
+        for (int k = 0; k < order.length; k++) order[k] = k;
+        Arrays.sort(order, Comparator.comparing(keyList::get));
+        keys = new String[order.length];
+        ranks = new long[order.length];
+        for (int k = 0; k < order.length; k++) {
+            keys[k] = keyList.get(order[k]);
+            ranks[k] = rankList.get(order[k]);
+        }
+        tree = new int[2 * keys.length];
+        for (int k = 0; k < keys.length; k++) tree[keys.length + k] = k;
+        for (int i = keys.length - 1; i > 0; i--) tree[i] = better(tree[2 * i], tree[2 * i + 1]);
+
+        for (Map.Entry<String, int[]> entry : postings.entrySet()) {
+            int[] posting = entry.getValue();
+            trigrams.put(entry.getKey(), Arrays.copyOfRange(posting, 1, posting[0] + 1));
+        }
+    }
+
+    /**
+     * Returns a name in lower case, without accents, with its words separated by single spaces.
+     *
+     * @param name the name
+     * @return the normalized name
+     */
+    public static String normalize(String name) {
+        String decomposed = name;
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) >= 0x80) {
+                // separates the accents from their letters
+                decomposed = Normalizer.normalize(name, Normalizer.Form.NFD);
+                break;
+            }
+        }
+        StringBuilder builder = new StringBuilder(decomposed.length());
+        boolean space = false;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) continue;
+            if (Character.isLetterOrDigit(c)) {
+                if (space && builder.length() > 0) builder.append(' ');
+                space = false;
+                builder.append(Character.toLowerCase(c));
+            } else {
+                space = true;
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns the number of names of the index.
+     *
+     * @return the number of names
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Returns the name matching the given text once normalized.
+     *
+     * @param text the text typed by the user
+     * @return the name, or null if no name matches
+     */
+    public String find(String text) {
+        return byNormalized.get(normalize(text));
+    }
+
+    /**
+     * Returns the names starting with a prefix, or having a word starting with it. Names starting
+     * with the prefix come first, then the shorter names, then in alphabetical order.
+     *
+     * @param prefix the beginning of the name typed by the user
+     * @param limit the maximum number of names
+     * @return the names found, best first
+     */
+    public List<String> complete(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty() || limit <= 0) return new ArrayList<>();
+        int from = lowerBound(key);
+        int to = lowerBound(key + Character.MAX_VALUE);
+
+        // the ranges of keys left to look at, the one with the best key first
+        PriorityQueue<int[]> ranges =
+                new PriorityQueue<>(Comparator.comparingLong(range -> ranks[range[2]]));
+        if (from < to) ranges.add(new int[] {from, to, best(from, to)});
+        List<String> result = new ArrayList<>();
+        Set<Integer> found = new HashSet<>();
+        while (!ranges.isEmpty() && result.size() < limit) {
+            int[] range = ranges.poll();
+            int k = range[2];
+            // a name may have several words starting with the prefix, its best one comes first
+            int n = (int) (ranks[k] & 0xFFFFFF);
+            if (found.add(n)) result.add(names[n]);
+            if (range[0] < k) ranges.add(new int[] {range[0], k, best(range[0], k)});
+            if (k + 1 < range[1]) {
+                ranges.add(new int[] {k + 1, range[1], best(k + 1, range[1])});
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the names matching a query: first the names found by {@link #complete(String, int)},
+     * then the names sharing most of their trigrams with the query, which makes up for typing
+     * mistakes.
+     *
+     * @param query the name or the beginning of the name typed by the user
+     * @param limit the maximum number of names
+     * @return the names found, best first
+     */
+    public List<String> search(String query, int limit) {
+        List<String> result = complete(query, limit);
+        if (result.size() >= limit) return result;
+
+        Set<String> grams = trigramsOf(normalize(query));
+        if (grams.isEmpty()) return result;
+        int[] shared = new int[names.length];
+        List<Integer> candidates = new ArrayList<>();
+        for (String gram : grams) {
+            int[] posting = trigrams.get(gram);
+            if (posting == null) continue;
+            for (int n : posting) {
+                if (shared[n]++ == 0) candidates.add(n);
+            }
+        }
+
+        // the Dice coefficient of the trigrams of the query and of the name
+        int queryCount = grams.size();
+        Comparator<Integer> bySimilarity =
+                Comparator.comparingDouble(n -> -2.0 * shared[n] / (queryCount + trigramCounts[n]));
+        List<Integer> close = new ArrayList<>();
+        for (int n : candidates) {
+            double similarity = 2.0 * shared[n] / (queryCount + trigramCounts[n]);
+            if (similarity >= MIN_SIMILARITY && !result.contains(names[n])) close.add(n);
+        }
+        close.sort(bySimilarity.thenComparing(n -> names[n]));
+        for (int i = 0; i < close.size() && result.size() < limit; i++) {
+            result.add(names[close.get(i)]);
+        }
+        return result;
+    }
+
+    /** Returns the key of lowest rank between from included and to excluded. */
+    private int best(int from, int to) {
+        int key = -1;
+        for (int l = from + keys.length, r = to + keys.length; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) == 1) key = better(key, tree[l++]);
+            if ((r & 1) == 1) key = better(key, tree[--r]);
+        }
+        return key;
+    }
+
+    /** Returns the key of lowest rank of the two, a negative key being none. */
+    private int better(int a, int b) {
+        if (a < 0) return b;
+        if (b < 0) return a;
+        return ranks[a] <= ranks[b] ? a : b;
+    }
+
+    /** Returns the index of the first key greater than or equal to the given one. */
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle].compareTo(key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /** Returns the distinct trigrams of a normalized text, padded with a space on each side. */
+    private static Set<String> trigramsOf(String text) {
+        Set<String> grams = new HashSet<>();
+        if (text.isEmpty()) return grams;
+        String padded = " " + text + " ";
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return grams;
+    }
+}
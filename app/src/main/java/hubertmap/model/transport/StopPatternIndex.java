@@ -0,0 +1,149 @@
+package hubertmap.model.transport;
+
+import hubertmap.model.DurationJourney;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The StopPatternIndex class keeps, for every line variant, the position of each of its stations
+ * and the time needed to reach it from the first station. Whether a station comes after another one
+ * on a line, and the ride time between them, are then found without going through the line.
+ */
+public final class StopPatternIndex {
+
+    private final Map<String, StopPattern> patterns = new LinkedHashMap<>();
+
+    /**
+     * Constructs the index of the given lines.
+     *
+     * @param dataLine the lines with the duration of the journey between their stations
+     */
+    public StopPatternIndex(Map<Line, ? extends List<DurationJourney>> dataLine) {
+        for (Map.Entry<Line, ? extends List<DurationJourney>> entry : dataLine.entrySet()) {
+            patterns.putIfAbsent(
+                    entry.getKey().getName(), new StopPattern(entry.getKey(), entry.getValue()));
+        }
+    }
+
+    /**
+     * Returns the stop pattern of the line with the given name.
+     *
+     * @param lineName the name of the line with its variant
+     * @return the stop pattern, or null if the line is unknown
+     */
+    public StopPattern get(String lineName) {
+        return patterns.get(lineName);
+    }
+
+    /**
+     * Returns the stop patterns of all the lines.
+     *
+     * @return the stop patterns
+     */
+    public Collection<StopPattern> getPatterns() {
+        return Collections.unmodifiableCollection(patterns.values());
+    }
+
+    /** The stations of a line variant in travel order, with their time from the first station. */
+    public static final class StopPattern {
+
+        private final Line line;
+        private final Station[] stations;
+        /** offsets[i] is the time from the first station to station i, in seconds. */
+        private final int[] offsets;
+
+        private final Map<VertexTransport, Integer> positions = new HashMap<>();
+
+        private StopPattern(Line line, List<DurationJourney> durations) {
+            this.line = line;
+            List<Station> lineStations = line.getAllStations();
+            int size = Math.min(lineStations.size(), durations.size() + 1);
+            stations = lineStations.subList(0, size).toArray(new Station[0]);
+            offsets = new int[size];
+            for (int i = 0; i < size; i++) {
+                if (i > 0) offsets[i] = offsets[i - 1] + durations.get(i - 1).toSeconds();
+                positions.putIfAbsent(stations[i], i);
+            }
+        }
+
+        /**
+         * Returns the line variant of the pattern.
+         *
+         * @return the line
+         */
+        public Line getLine() {
+            return line;
+        }
+
+        /**
+         * Returns the number of stations of the pattern. Stations of the line past the last known
+         * duration are not part of it.
+         *
+         * @return the number of stations
+         */
+        public int size() {
+            return stations.length;
+        }
+
+        /**
+         * Returns the station at the given position.
+         *
+         * @param position the position on the line, the first station is 0
+         * @return the station
+         */
+        public Station getStation(int position) {
+            return stations[position];
+        }
+
+        /**
+         * Returns the time from the first station of the line to the given position.
+         *
+         * @param position the position on the line
+         * @return the time in seconds
+         */
+        public int offset(int position) {
+            return offsets[position];
+        }
+
+        /**
+         * Returns the position of a station on the line.
+         *
+         * @param station the station
+         * @return the position of the station, or -1 if the line doesn't serve it
+         */
+        public int position(VertexTransport station) {
+            Integer position = positions.get(station);
+            return position == null ? -1 : position;
+        }
+
+        /**
+         * Returns true if the line serves both stations, the first one before the second one.
+         *
+         * @param from the station where the ride starts
+         * @param to the station where the ride ends
+         * @return true if the line goes from the first station to the second one
+         */
+        public boolean isBefore(VertexTransport from, VertexTransport to) {
+            int start = position(from);
+            return start >= 0 && start < position(to);
+        }
+
+        /**
+         * Returns the ride time between two stations.
+         *
+         * @param from the station where the ride starts
+         * @param to the station where the ride ends
+         * @return the time in seconds, or -1 if the line doesn't go from the first to the second
+         */
+        public int rideSeconds(VertexTransport from, VertexTransport to) {
+            int start = position(from);
+            int end = position(to);
+            if (start < 0 || end <= start) return -1;
+            return offsets[end] - offsets[start];
+        }
+    }
+}
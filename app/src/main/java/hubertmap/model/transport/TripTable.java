@@ -0,0 +1,194 @@
+package hubertmap.model.transport;
+
+import hubertmap.model.ServiceTime;
+import hubertmap.model.Time;
+import hubertmap.model.transport.StopPatternIndex.StopPattern;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The TripTable class keeps the runs of the vehicles of every line variant. Each start time of a
+ * line is a trip with a dense id, and the times of a trip at the stops of its {@link StopPattern}
+ * are contiguous in one flat array per pattern. The trips of a pattern are sorted by start time; as
+ * they share the same ride times, they are also sorted at every stop.
+ *
+ * <p>The timetables only give ride times, so a trip arrives at and leaves a stop at the same time.
+ * Times are counted from the start of the service day and go past 24:00 for trips running after
+ * midnight.
+ */
+public final class TripTable {
+
+    private final List<PatternTrips> patterns = new ArrayList<>();
+    private final Map<String, PatternTrips> patternsByLine = new HashMap<>();
+
+    /** firstTrips[p] is the id of the first trip of patterns.get(p). */
+    private final int[] firstTrips;
+
+    private final int tripCount;
+
+    /**
+     * Constructs the trips of the lines of the given index.
+     *
+     * @param index the stop patterns of the lines, whose start times become trips
+     */
+    public TripTable(StopPatternIndex index) {
+        firstTrips = new int[index.getPatterns().size()];
+        int count = 0;
+        for (StopPattern pattern : index.getPatterns()) {
+            firstTrips[patterns.size()] = count;
+            PatternTrips trips = new PatternTrips(pattern, count);
+            patterns.add(trips);
+            patternsByLine.put(pattern.getLine().getName(), trips);
+            count += trips.size();
+        }
+        tripCount = count;
+    }
+
+    /**
+     * Returns the number of trips, the ids go from 0 to this number excluded.
+     *
+     * @return the number of trips
+     */
+    public int getTripCount() {
+        return tripCount;
+    }
+
+    /**
+     * Returns the trips of the line with the given name.
+     *
+     * @param lineName the name of the line with its variant
+     * @return the trips of the line, or null if the line is unknown
+     */
+    public PatternTrips get(String lineName) {
+        return patternsByLine.get(lineName);
+    }
+
+    /**
+     * Returns the trips of every line variant.
+     *
+     * @return the trips grouped by stop pattern
+     */
+    public List<PatternTrips> getPatterns() {
+        return Collections.unmodifiableList(patterns);
+    }
+
+    /**
+     * Returns the trips of the pattern a trip belongs to.
+     *
+     * @param trip the id of the trip
+     * @return the trips of its pattern
+     */
+    public PatternTrips ofTrip(int trip) {
+        int p = Arrays.binarySearch(firstTrips, trip);
+        if (p < 0) {
+            p = -p - 2;
+        } else {
+            // patterns without trips share the id of the next one
+            while (patterns.get(p).size() == 0) p++;
+        }
+        return patterns.get(p);
+    }
+
+    /** The trips of one stop pattern. */
+    public static final class PatternTrips {
+
+        private final StopPattern pattern;
+        private final int firstTrip;
+        private final int stops;
+        /** The time of trip t at stop s is at times[t * stops + s], t counted in the pattern. */
+        private final int[] times;
+
+        private PatternTrips(StopPattern pattern, int firstTrip) {
+            this.pattern = pattern;
+            this.firstTrip = firstTrip;
+            this.stops = pattern.size();
+            List<Time> starts = pattern.getLine().starts;
+            int[] sorted = new int[starts.size()];
+            for (int t = 0; t < sorted.length; t++) {
+                sorted[t] = starts.get(t).toSeconds();
+            }
+            Arrays.sort(sorted);
+            times = new int[sorted.length * stops];
+            for (int t = 0; t < sorted.length; t++) {
+                for (int s = 0; s < stops; s++) {
+                    times[t * stops + s] = ServiceTime.plus(sorted[t], pattern.offset(s));
+                }
+            }
+        }
+
+        /**
+         * Returns the stop pattern the trips follow.
+         *
+         * @return the stop pattern
+         */
+        public StopPattern getPattern() {
+            return pattern;
+        }
+
+        /**
+         * Returns the number of trips of the pattern.
+         *
+         * @return the number of trips
+         */
+        public int size() {
+            return stops == 0 ? 0 : times.length / stops;
+        }
+
+        /**
+         * Returns the id of a trip of the pattern.
+         *
+         * @param index the index of the trip in the pattern, by start time
+         * @return the id of the trip in the table
+         */
+        public int tripId(int index) {
+            return firstTrip + index;
+        }
+
+        /**
+         * Returns the time at which a trip arrives at a stop.
+         *
+         * @param index the index of the trip in the pattern
+         * @param stop the position of the stop in the pattern
+         * @return the arrival time in seconds since the start of the service day
+         */
+        public int arrival(int index, int stop) {
+            return times[index * stops + stop];
+        }
+
+        /**
+         * Returns the time at which a trip leaves a stop.
+         *
+         * @param index the index of the trip in the pattern
+         * @param stop the position of the stop in the pattern
+         * @return the departure time in seconds since the start of the service day
+         */
+        public int departure(int index, int stop) {
+            return times[index * stops + stop];
+        }
+
+        /**
+         * Returns the first trip leaving a stop at or after the given time.
+         *
+         * @param stop the position of the stop in the pattern
+         * @param seconds the time in seconds since the start of the service day
+         * @return the index of the trip in the pattern, or -1 if no trip leaves later
+         */
+        public int nextTrip(int stop, int seconds) {
+            int low = 0;
+            int high = size();
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (departure(middle, stop) < seconds) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low < size() ? low : -1;
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package hubertmap.server;
+
+import hubertmap.model.Time;
+import hubertmap.model.parser.Parser;
+import hubertmap.model.routing.Leg;
+import hubertmap.model.routing.PathLeg;
+import hubertmap.model.transport.Network;
+import hubertmap.model.transport.VertexTransport;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The BatchRouter class routes a file of trips, one per line, without the graphical user interface.
+ * A line holds the origin, the destination and the departure time of a trip separated by
+ * semicolons, the ends being station names or "x,y" coordinates:
+ *
+ * <pre>
+ * Lourmel;Nation;08:00
+ * 2.28, 48.83;Bastille;17:30:00
+ * </pre>
+ *
+ * <p>The lines are read in chunks that are routed in parallel, each worker thread keeping its own
+ * search state in the network. The results are written in the order of the input as soon as their
+ * chunk is done, and only a few chunks per worker are kept in memory, so files of any size can be
+ * routed. A trip that can't be routed is written with its status and the next ones go on, even when
+ * routing it fails with an unexpected exception. A trip whose rides can't be caught after its
+ * departure time is written without times and counted as a failure.
+ */
+public final class BatchRouter {
+
+    /** The format of the results. */
+    public enum Format {
+        /** One line per trip, its fields separated by semicolons, after a header. */
+        CSV,
+        /** One JSON object per line and per trip. */
+        JSON
+    }
+
+    /** The number of trips routed by a worker at once. */
+    private static final int CHUNK_SIZE = 256;
+
+    /** The number of chunks per worker that may be routed or waiting to be written. */
+    private static final int CHUNKS_PER_WORKER = 4;
+
+    /** The number of trips between two progress reports. */
+    private static final long PROGRESS_TRIPS = 100_000;
+
+    private final Network network;
+    private final int threads;
+    private final Format format;
+
+    /**
+     * Constructs a batch router for the given network.
+     *
+     * @param network the network to route on
+     * @param threads the number of worker threads
+     * @param format the format of the results
+     */
+    public BatchRouter(Network network, int threads, Format format) {
+        this.network = network;
+        this.threads = threads;
+        this.format = format;
+    }
+
+    /** The counts of a run. */
+    public static final class Report {
+
+        private long trips;
+        private long failures;
+        private long nanos;
+
+        /**
+         * Returns the number of trips read.
+         *
+         * @return the number of trips
+         */
+        public long getTrips() {
+            return trips;
+        }
+
+        /**
+         * Returns the number of trips that couldn't be routed.
+         *
+         * @return the number of failed trips
+         */
+        public long getFailures() {
+            return failures;
+        }
+
+        /**
+         * Returns the number of trips routed per second.
+         *
+         * @return the throughput of the run
+         */
+        public double getThroughput() {
+            return nanos == 0 ? 0 : trips * 1e9 / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "%d trajets dont %d en échec en %.1f s (%.0f trajets/s)",
+                    trips, failures, nanos / 1e9, getThroughput());
+        }
+    }
+
+    /** The results of a chunk of trips. */
+    private static final class Chunk {
+        private final StringBuilder text = new StringBuilder();
+        private int trips;
+        private int failures;
+    }
+
+    /**
+     * Routes the trips read from the input and writes their results to the output.
+     *
+     * @param input the trips, one per line
+     * @param output where the results are written, flushed at the end of the run but not closed
+     * @return the counts of the run
+     * @throws IOException if the input can't be read or the output can't be written
+     */
+    public Report run(Reader input, Writer output) throws IOException {
+        Report report = new Report();
+        long start = System.nanoTime();
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        ArrayDeque<Future<Chunk>> pending = new ArrayDeque<>();
+        try {
+            if (format == Format.CSV) {
+                output.write("origin;destination;departure;arrival;status;legs\n");
+            }
+            BufferedReader reader = new BufferedReader(input);
+            List<String> lines = new ArrayList<>(CHUNK_SIZE);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) continue;
+                lines.add(line);
+                if (lines.size() == CHUNK_SIZE) {
+                    List<String> chunk = lines;
+                    pending.add(workers.submit(() -> route(chunk)));
+                    lines = new ArrayList<>(CHUNK_SIZE);
+                    // the results are written in order, the oldest chunk is waited for
+                    while (pending.size() >= threads * CHUNKS_PER_WORKER) {
+                        write(pending.poll(), output, report, start);
+                    }
+                }
+            }
+            if (!lines.isEmpty()) {
+                List<String> chunk = lines;
+                pending.add(workers.submit(() -> route(chunk)));
+            }
+            while (!pending.isEmpty()) {
+                write(pending.poll(), output, report, start);
+            }
+            output.flush();
+        } finally {
+            workers.shutdownNow();
+        }
+        report.nanos = System.nanoTime() - start;
+        return report;
+    }
+
+    /** Writes the results of a chunk once it is routed, and reports the progress. */
+    private static void write(Future<Chunk> future, Writer output, Report report, long start)
+            throws IOException {
+        Chunk chunk;
+        try {
+            chunk = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Routage interrompu", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Erreur lors du routage : " + e.getCause(), e.getCause());
+        }
+        output.write(chunk.text.toString());
+        long before = report.trips;
+        report.trips += chunk.trips;
+        report.failures += chunk.failures;
+        if (before / PROGRESS_TRIPS != report.trips / PROGRESS_TRIPS) {
+            report.nanos = System.nanoTime() - start;
+            System.err.println(report);
+        }
+    }
+
+    /** Routes a chunk of trips. */
+    private Chunk route(List<String> lines) {
+        Chunk chunk = new Chunk();
+        for (String line : lines) {
+            chunk.trips++;
+            String[] fields = line.split(";", -1);
+            String status = "ok";
+            List<Leg> legs = List.of();
+            try {
+                if (fields.length != 3) {
+                    status = "ligne invalide";
+                } else {
+                    VertexTransport from = network.findVertex(fields[0].trim());
+                    VertexTransport to = network.findVertex(fields[1].trim());
+                    Time time = time(fields[2].trim());
+                    if (from == null || to == null) {
+                        status = "station inconnue";
+                    } else if (time == null) {
+                        status = "horaire invalide";
+                    } else {
+                        List<PathLeg> path = network.route(from, to);
+                        if (path.isEmpty() && !from.equals(to)) {
+                            status = "injoignable";
+                        } else {
+                            legs = network.getItinerary(path, time);
+                            // a ride that can't be caught leaves the end of the trip without times
+                            if (!legs.isEmpty() && !legs.get(legs.size() - 1).isTimed()) {
+                                status = "sans horaire";
+                            }
+                        }
+                    }
+                }
+            } catch (RuntimeException e) {
+                // a bug on one trip is reported with it and doesn't stop the run
+                status = "erreur : " + e;
+                legs = List.of();
+            }
+            if (!status.equals("ok")) chunk.failures++;
+            append(chunk.text, fields, status, legs);
+        }
+        return chunk;
+    }
+
+    /** Appends the result of a trip in the format of the router. */
+    private void append(StringBuilder text, String[] fields, String status, List<Leg> legs) {
+        String origin = fields.length > 0 ? fields[0].trim() : "";
+        String destination = fields.length > 1 ? fields[1].trim() : "";
+        Time departure = legs.isEmpty() ? null : legs.get(0).getDeparture();
+        Time arrival = legs.isEmpty() ? null : legs.get(legs.size() - 1).getArrival();
+        if (format == Format.JSON) {
+            text.append("{\"origin\":").append(Json.quote(origin));
+            text.append(",\"destination\":").append(Json.quote(destination));
+            text.append(",\"departure\":").append(Json.quote(departure));
+            text.append(",\"arrival\":").append(Json.quote(arrival));
+            text.append(",\"status\":").append(Json.quote(status));
+            text.append(",\"legs\":");
+            Json.appendLegs(text, legs);
+            text.append("}\n");
+            return;
+        }
+        text.append(origin).append(';').append(destination).append(';');
+        text.append(departure == null ? "" : departure).append(';');
+        text.append(arrival == null ? "" : arrival).append(';');
+        text.append(status).append(';');
+        for (int i = 0; i < legs.size(); i++) {
+            Leg leg = legs.get(i);
+            if (i > 0) text.append(" | ");
+            text.append(leg.getLineName().isEmpty() ? "marche" : leg.getLineName());
+            text.append(' ').append(leg.getFrom().getName());
+            text.append(" > ").append(leg.getTo().getName());
+        }
+        text.append('\n');
+    }
+
+    /** Returns the time in the format "HH:MM" or "HH:MM:SS", or null if it is invalid. */
+    private static Time time(String text) {
+        try {
+            LocalTime time = LocalTime.parse(text);
+            return new Time(time.getHour(), time.getMinute(), time.getSecond());
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Loads the network and routes a file of trips. The results go to the output file, or to the
+     * standard output if it is "-", which is left open, and the counts of the run to the standard
+     * error.
+     *
+     * @param inputPath the file of trips
+     * @param outputPath the file of results, or "-"
+     * @param format the format of the results
+     * @param threads the number of worker threads
+     * @param hierarchy true to find the paths with the contraction hierarchy
+     * @throws IOException if a file can't be read or written
+     */
+    public static void run(
+            String inputPath, String outputPath, Format format, int threads, boolean hierarchy)
+            throws IOException {
+        Network network = new Parser(true).getEdges();
+        if (hierarchy) network.useContractionHierarchy(new File("ressource/network.ch"));
+        BatchRouter router = new BatchRouter(network, threads, format);
+        try (Reader input = Files.newBufferedReader(Path.of(inputPath), StandardCharsets.UTF_8)) {
+            if (outputPath.equals("-")) {
+                // the standard output is flushed but stays open for the rest of the program
+                Writer output =
+                        new BufferedWriter(
+                                new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+                System.err.println(router.run(input, output));
+                return;
+            }
+            try (Writer output =
+                    Files.newBufferedWriter(Path.of(outputPath), StandardCharsets.UTF_8)) {
+                System.err.println(router.run(input, output));
+            }
+        }
+    }
+}
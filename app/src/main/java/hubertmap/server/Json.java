@@ -0,0 +1,53 @@
+package hubertmap.server;
+
+import hubertmap.model.routing.Leg;
+import java.util.List;
+
+/** The Json class writes the values answered by the headless modes in JSON. */
+final class Json {
+
+    private Json() {}
+
+    /**
+     * Returns a value as a JSON string.
+     *
+     * @param value the value, written with its toString method
+     * @return the quoted and escaped value, or null if the value is null
+     */
+    static String quote(Object value) {
+        if (value == null) return "null";
+        String text = value.toString();
+        StringBuilder json = new StringBuilder(text.length() + 2).append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"').toString();
+    }
+
+    /**
+     * Appends the array of the legs of an itinerary, with their line, ends and times.
+     *
+     * @param json the JSON being written
+     * @param legs the legs of the itinerary
+     */
+    static void appendLegs(StringBuilder json, List<Leg> legs) {
+        json.append('[');
+        for (int i = 0; i < legs.size(); i++) {
+            Leg leg = legs.get(i);
+            if (i > 0) json.append(',');
+            json.append("{\"line\":").append(quote(leg.getLineName()));
+            json.append(",\"from\":").append(quote(leg.getFrom().getName()));
+            json.append(",\"to\":").append(quote(leg.getTo().getName()));
+            json.append(",\"departure\":").append(quote(leg.getDeparture()));
+            json.append(",\"arrival\":").append(quote(leg.getArrival())).append('}');
+        }
+        json.append(']');
+    }
+}
@@ -0,0 +1,413 @@
+package hubertmap.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import hubertmap.model.ServiceTime;
+import hubertmap.model.Time;
+import hubertmap.model.parser.Parser;
+import hubertmap.model.routing.PathLeg;
+import hubertmap.model.transport.Departure;
+import hubertmap.model.transport.Network;
+import hubertmap.model.transport.Station;
+import hubertmap.model.transport.VertexTransport;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The RoutingServer class answers route, departure board and nearest station queries over HTTP,
+ * without the graphical user interface. It only listens on the loopback address and answers in
+ * JSON:
+ *
+ * <ul>
+ *   <li>{@code /route?from=...&to=...&time=HH:MM} gives the legs of the shortest path, the ends
+ *       being station names or "x,y" coordinates;
+ *   <li>{@code /departures?station=...&time=HH:MM&limit=10&terminus=...} gives the next departures
+ *       from a station;
+ *   <li>{@code /nearest?x=...&y=...&limit=5} gives the stations closest to a point;
+ *   <li>{@code /health/live} and {@code /health/ready} tell whether the server runs and whether its
+ *       warm-up is over.
+ * </ul>
+ *
+ * <p>Station names are matched exactly, accents and case being ignored. An unknown name is answered
+ * with the status 404 and the names close to it as suggestions, never with the route of another
+ * station.
+ *
+ * <p>Queries are answered by a fixed number of workers with a bounded queue. When the queue is
+ * full, the query is refused at once with the status 503 instead of waiting, so a client sending
+ * too many queries slows down instead of the server running out of memory.
+ */
+public final class RoutingServer {
+
+    /** The port used when none is given. */
+    public static final int DEFAULT_PORT = 8080;
+
+    /** The number of queries waiting for a worker, per worker. */
+    private static final int QUEUE_PER_WORKER = 16;
+
+    /** The number of names suggested for an unknown station. */
+    private static final int SUGGESTIONS = 3;
+
+    /** The number of routes computed before the server is ready. */
+    private static final int WARM_UP_ROUTES = 200;
+
+    /** The time given to the running queries to end when the server stops, in seconds. */
+    private static final int SHUTDOWN_SECONDS = 5;
+
+    private final Network network;
+    private final HttpServer server;
+    private final ThreadPoolExecutor workers;
+    private volatile boolean ready;
+
+    /**
+     * Constructs a server for the given network, listening on the loopback address.
+     *
+     * @param network the network to query
+     * @param port the port to listen on, 0 for any free port
+     * @param threads the number of workers
+     * @param queueSize the number of queries that may wait for a worker
+     * @throws IOException if the port can't be opened
+     */
+    public RoutingServer(Network network, int port, int threads, int queueSize) throws IOException {
+        this.network = network;
+        workers =
+                new ThreadPoolExecutor(
+                        threads,
+                        threads,
+                        0,
+                        TimeUnit.SECONDS,
+                        new ArrayBlockingQueue<>(queueSize),
+                        new ThreadPoolExecutor.AbortPolicy());
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+        server = HttpServer.create(address, 0);
+        server.createContext("/health/live", exchange -> send(exchange, 200, "{\"live\":true}"));
+        server.createContext(
+                "/health/ready",
+                exchange -> send(exchange, ready ? 200 : 503, "{\"ready\":" + ready + "}"));
+        server.createContext("/route", exchange -> dispatch(exchange, this::route));
+        server.createContext("/departures", exchange -> dispatch(exchange, this::departures));
+        server.createContext("/nearest", exchange -> dispatch(exchange, this::nearest));
+    }
+
+    /**
+     * Starts the server, then warms it up: the indexes of the network are built and routes are
+     * computed so that the first queries aren't slower than the next ones. The server is only ready
+     * once this is done.
+     */
+    public void start() {
+        server.start();
+        warmUp();
+        ready = true;
+    }
+
+    /**
+     * Returns true once the server has been warmed up and until it stops.
+     *
+     * @return true if the server is ready
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Returns the port the server listens on.
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops the server. It is no longer ready, new connections are refused, and the queries already
+     * received are answered if they end within the given delay.
+     *
+     * @param delaySeconds the maximum time to wait for the running queries, in seconds
+     */
+    public void stop(int delaySeconds) {
+        ready = false;
+        server.stop(delaySeconds);
+        workers.shutdown();
+        try {
+            workers.awaitTermination(delaySeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        workers.shutdownNow();
+    }
+
+    /** Builds the indexes of the network and computes routes between random stations. */
+    private void warmUp() {
+        network.getSpatialIndex();
+        network.getSearchIndex();
+        network.getStopPatterns();
+        List<Station> stations = new ArrayList<>();
+        for (VertexTransport v : network.getGraph().getVertices()) {
+            if (v instanceof Station) stations.add((Station) v);
+        }
+        if (stations.isEmpty()) return;
+        Random random = new Random(0);
+        Time noon = new Time(12, 0, 0);
+        for (int i = 0; i < WARM_UP_ROUTES; i++) {
+            Station from = stations.get(random.nextInt(stations.size()));
+            Station to = stations.get(random.nextInt(stations.size()));
+            network.getItinerary(network.route(from, to), noon);
+            network.departures(from, noon, 10);
+        }
+    }
+
+    /** A query answered by a worker. */
+    private interface Query {
+
+        /**
+         * Returns the answer to a query.
+         *
+         * @param parameters the parameters of the query
+         * @return the answer in JSON
+         * @throws IllegalArgumentException if a parameter is missing or invalid
+         * @throws NoSuchElementException if a station is unknown
+         */
+        String answer(Map<String, String> parameters);
+    }
+
+    /**
+     * Gives a query to the workers, or refuses it if too many queries are waiting.
+     *
+     * @param exchange the exchange of the query
+     * @param query the query to answer
+     * @throws IOException if the refusal can't be sent
+     */
+    private void dispatch(HttpExchange exchange, Query query) throws IOException {
+        try {
+            workers.execute(() -> answer(exchange, query));
+        } catch (RejectedExecutionException e) {
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            send(exchange, 503, error("Serveur surchargé"));
+        }
+    }
+
+    /** Answers a query and sends the answer, or the error it raised. */
+    private void answer(HttpExchange exchange, Query query) {
+        try {
+            try {
+                send(exchange, 200, query.answer(parameters(exchange)));
+            } catch (UnknownStationException e) {
+                send(exchange, 404, error(e.getMessage(), e.suggestions));
+            } catch (NoSuchElementException e) {
+                send(exchange, 404, error(e.getMessage()));
+            } catch (IllegalArgumentException e) {
+                send(exchange, 400, error(e.getMessage()));
+            } catch (RuntimeException e) {
+                System.out.println("Erreur lors de la requête : " + e);
+                send(exchange, 500, error("Erreur interne"));
+            }
+        } catch (IOException e) {
+            // the client is gone
+            exchange.close();
+        }
+    }
+
+    /** Returns the route between two stations or points. */
+    private String route(Map<String, String> parameters) {
+        VertexTransport from = vertex(required(parameters, "from"));
+        VertexTransport to = vertex(required(parameters, "to"));
+        Time time = time(parameters.get("time"));
+        List<PathLeg> path = network.route(from, to);
+        StringBuilder json = new StringBuilder("{\"legs\":");
+        Json.appendLegs(json, network.getItinerary(path, time));
+        return json.append('}').toString();
+    }
+
+    /** Returns the next departures from all the stations with the given name. */
+    private String departures(Map<String, String> parameters) {
+        String name = required(parameters, "station");
+        VertexTransport vertex = network.getStation(name.toLowerCase());
+        if (!(vertex instanceof Station)) {
+            throw unknownStation(name);
+        }
+        Time time = time(parameters.get("time"));
+        int limit = integer(parameters, "limit", 10);
+        String terminus = parameters.get("terminus");
+
+        // a station served by several lines has one vertex per line
+        List<Station> stations = network.getRegistry().getStations(vertex.getName());
+        if (stations.isEmpty()) stations = List.of((Station) vertex);
+        List<Departure> departures = new ArrayList<>();
+        for (Station station : stations) {
+            departures.addAll(network.departures(station, time, limit, terminus));
+        }
+        int from = time.toSeconds();
+        departures.sort(
+                Comparator.comparingInt(
+                        d -> Math.floorMod(d.getSeconds() - from, ServiceTime.SECONDS_PER_DAY)));
+
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < departures.size() && i < limit; i++) {
+            Departure departure = departures.get(i);
+            if (i > 0) json.append(',');
+            json.append("{\"line\":").append(Json.quote(departure.getLine().getName()));
+            json.append(",\"terminus\":").append(Json.quote(departure.getTerminus().getName()));
+            json.append(",\"time\":").append(Json.quote(departure.getTime())).append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    /** Returns the stations nearest to a point. */
+    private String nearest(Map<String, String> parameters) {
+        float x = coordinate(parameters, "x");
+        float y = coordinate(parameters, "y");
+        int limit = integer(parameters, "limit", 5);
+        StringBuilder json = new StringBuilder("[");
+        List<VertexTransport> stations = network.getSpatialIndex().nearest(x, y, limit);
+        for (int i = 0; i < stations.size(); i++) {
+            VertexTransport station = stations.get(i);
+            if (i > 0) json.append(',');
+            json.append("{\"name\":").append(Json.quote(station.getName()));
+            json.append(",\"x\":").append(station.getX());
+            json.append(",\"y\":").append(station.getY()).append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    /** Returns the station with the given name, or a point if the text holds coordinates. */
+    private VertexTransport vertex(String text) {
+        VertexTransport vertex = network.findVertex(text);
+        if (vertex == null) throw unknownStation(text);
+        return vertex;
+    }
+
+    /** A station name matching no station, with the names close to it. */
+    private static final class UnknownStationException extends NoSuchElementException {
+        private static final long serialVersionUID = 1L;
+
+        private final String[] suggestions;
+
+        private UnknownStationException(String name, String[] suggestions) {
+            super("Station inconnue : " + name);
+            this.suggestions = suggestions;
+        }
+    }
+
+    /** Returns the error of an unknown station, suggesting the names close to the one given. */
+    private UnknownStationException unknownStation(String name) {
+        List<String> close = network.getSearchIndex().search(name, SUGGESTIONS);
+        String[] suggestions = new String[close.size()];
+        for (int i = 0; i < suggestions.length; i++) {
+            suggestions[i] = network.getStation(close.get(i)).getName();
+        }
+        return new UnknownStationException(name, suggestions);
+    }
+
+    private static String required(Map<String, String> parameters, String name) {
+        String value = parameters.get(name);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Paramètre manquant : " + name);
+        }
+        return value;
+    }
+
+    private static Time time(String text) {
+        try {
+            LocalTime time = text == null ? LocalTime.now() : LocalTime.parse(text);
+            return new Time(time.getHour(), time.getMinute(), time.getSecond());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Horaire invalide : " + text);
+        }
+    }
+
+    private static int integer(Map<String, String> parameters, String name, int defaultValue) {
+        String text = parameters.get(name);
+        if (text == null) return defaultValue;
+        try {
+            int value = Integer.parseInt(text);
+            if (value > 0) return value;
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("Nombre invalide : " + name);
+    }
+
+    private static float coordinate(Map<String, String> parameters, String name) {
+        try {
+            return Float.parseFloat(required(parameters, name));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Coordonnée invalide : " + name);
+        }
+    }
+
+    /** Returns the decoded parameters of the query string of an exchange. */
+    private static Map<String, String> parameters(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) return parameters;
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals <= 0) continue;
+            parameters.put(
+                    URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    private static String error(String message) {
+        return "{\"error\":" + Json.quote(message) + "}";
+    }
+
+    /** Returns an error with the names suggested in its place, if there are any. */
+    private static String error(String message, String[] suggestions) {
+        if (suggestions.length == 0) return error(message);
+        StringBuilder json = new StringBuilder("{\"error\":").append(Json.quote(message));
+        json.append(",\"suggestions\":[");
+        for (int i = 0; i < suggestions.length; i++) {
+            if (i > 0) json.append(',');
+            json.append(Json.quote(suggestions[i]));
+        }
+        return json.append("]}").toString();
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Loads the network, then serves it until the process is stopped.
+     *
+     * @param port the port to listen on
+     * @param hierarchy true to find the paths with the contraction hierarchy
+     * @throws IOException if the port can't be opened
+     */
+    public static void run(int port, boolean hierarchy) throws IOException {
+        Network network = new Parser(true).getEdges();
+        if (hierarchy) network.useContractionHierarchy(new File("ressource/network.ch"));
+        int threads = Runtime.getRuntime().availableProcessors();
+        RoutingServer server =
+                new RoutingServer(network, port, threads, threads * QUEUE_PER_WORKER);
+        Runtime.getRuntime()
+                .addShutdownHook(new Thread(() -> server.stop(SHUTDOWN_SECONDS), "shutdown"));
+        server.start();
+        System.out.println("Serveur prêt sur le port " + server.getPort());
+    }
+}
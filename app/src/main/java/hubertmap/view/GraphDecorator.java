@@ -5,6 +5,7 @@ import edu.uci.ics.jung.visualization.control.GraphMouseListener;
 import edu.uci.ics.jung.visualization.control.ModalGraphMouse;
 import edu.uci.ics.jung.visualization.decorators.ToStringLabeller;
 import hubertmap.controller.Controller;
+import hubertmap.model.routing.PathLeg;
 import hubertmap.model.transport.EdgeTransport;
 import hubertmap.model.transport.Station;
 import hubertmap.model.transport.VertexTransport;
@@ -13,32 +14,87 @@ import java.awt.BasicStroke;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseWheelEvent;
 import java.awt.geom.Ellipse2D;
-import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import org.apache.commons.collections15.Transformer;
 
 /**
  * The GraphDecorator class provides methods to decorate a graph with colors, strokes, sizes, and
- * labels for vertices and edges.
+ * labels for vertices and edges. The transformers are called for every element on every repaint, so
+ * they return shared colors, strokes and shapes and look the shortest path up in hash sets.
  */
 public class GraphDecorator {
 
+    /** The stroke of the edges of the shortest path. */
+    private static final Stroke PATH_STROKE = new BasicStroke(6f);
+
+    /** The stroke of the other edges. */
+    private static final Stroke EDGE_STROKE = new BasicStroke(1.5f);
+
+    /** The shape of the stations of the shortest path, and of every station when zoomed in. */
+    private static final Shape LARGE_SHAPE = new Ellipse2D.Float(-5, -5, 10, 10);
+
+    /** SHAPES[r] is the shape of a station of radius r, when zoomed out. */
+    private static final Shape[] SHAPES = new Shape[6];
+
+    static {
+        for (int r = 0; r < SHAPES.length; r++) {
+            SHAPES[r] = new Ellipse2D.Float(-r, -r, r * 2, r * 2);
+        }
+    }
+
     /** The scale used to size the vertices of the graph. */
     private static int scale;
 
-    /** The list of edges in the shortest path of the graph. */
-    List<EdgeTransport> shortestPathEdges;
+    /** The edges in the shortest path of the graph. */
+    Set<EdgeTransport> shortestPathEdges;
 
-    /** The list of stations in the shortest path of the graph. */
-    List<VertexTransport> shortestPathStations;
+    /** The stations in the shortest path of the graph. */
+    Set<VertexTransport> shortestPathStations;
+
+    /** The colors of the lines, by line name. */
+    private final Map<String, Color> colors = new HashMap<>();
 
     /** Constructs a new GraphDecorator object with default settings. */
     public GraphDecorator() {
         scale = 0;
-        shortestPathEdges = new ArrayList<>();
-        shortestPathStations = new ArrayList<>();
+        shortestPathEdges = new HashSet<>();
+        shortestPathStations = new HashSet<>();
+    }
+
+    /**
+     * Returns the scale set by the mouse wheel, larger when zoomed in.
+     *
+     * @return the scale
+     */
+    public int getScale() {
+        return scale;
+    }
+
+    /**
+     * Returns true if the edge is drawn with a color. Changes between platforms and walks outside
+     * of the shortest path have no color.
+     *
+     * @param edge the edge
+     * @return true if the edge has a color
+     */
+    public boolean isColored(EdgeTransport edge) {
+        String lineName = edge.getLineName();
+        return !lineName.equals("CHANGE")
+                && (lineName.length() > 0 || shortestPathEdges.contains(edge));
+    }
+
+    /**
+     * Returns the color of a line, decoded once.
+     *
+     * @param lineName the name of the line
+     * @return the color of the line
+     */
+    private Color color(String lineName) {
+        return colors.computeIfAbsent(lineName, name -> Color.decode(LineColor.getColor(name)));
     }
 
     /**
@@ -54,9 +110,7 @@ public class GraphDecorator {
                         if (input instanceof Station) {
                             Station station = (Station) input;
                             if (station.isMultiLine()) return Color.WHITE;
-                            else
-                                return Color.decode(
-                                        LineColor.getColor(station.getSimpleLineName()));
+                            else return color(station.getSimpleLineName());
                         } else return Color.WHITE;
                     }
                 };
@@ -71,15 +125,7 @@ public class GraphDecorator {
      *     its color.
      */
     public Transformer<EdgeTransport, Paint> edgeColor() {
-        return (EdgeTransport input) -> {
-            String lineName = input.getLineName();
-            if ((!lineName.equals("CHANGE"))
-                    && (lineName.length() > 0 || shortestPathEdges.contains(input))) {
-                return Color.decode(LineColor.getColor(lineName));
-            } else {
-                return null;
-            }
-        };
+        return (EdgeTransport input) -> isColored(input) ? color(input.getLineName()) : null;
     }
 
     /**
@@ -93,8 +139,8 @@ public class GraphDecorator {
         return new Transformer<EdgeTransport, Stroke>() {
             @Override
             public Stroke transform(EdgeTransport input) {
-                if (shortestPathEdges.contains(input)) return new BasicStroke(6f);
-                else return new BasicStroke(1.5f);
+                if (shortestPathEdges.contains(input)) return PATH_STROKE;
+                else return EDGE_STROKE;
             }
         };
     }
@@ -129,14 +175,10 @@ public class GraphDecorator {
                 new Transformer<VertexTransport, Shape>() {
                     @Override
                     public Shape transform(VertexTransport input) {
-                        if (shortestPathStations.contains(input))
-                            return new Ellipse2D.Float(-5, -5, 10, 10);
+                        if (shortestPathStations.contains(input)) return LARGE_SHAPE;
                         else {
-                            if (scale > 15) return new Ellipse2D.Float(-5, -5, 10, 10);
-                            else {
-                                int value = scale / 3;
-                                return new Ellipse2D.Float(-value, -value, value * 2, value * 2);
-                            }
+                            if (scale > 15) return LARGE_SHAPE;
+                            else return SHAPES[Math.max(0, scale / 3)];
                         }
                     }
                 };
@@ -168,21 +210,19 @@ public class GraphDecorator {
     /**
      * Sets the shortest path of the graph.
      *
-     * @param shortestPath the list of edges in the shortest path of the graph.
+     * @param shortestPath the list of legs in the shortest path of the graph.
      */
-    public void setShortestPath(List<EdgeTransport> shortestPath) {
+    public void setShortestPath(List<PathLeg> shortestPath) {
         if (shortestPath != null) {
-            this.shortestPathEdges = shortestPath;
-            shortestPathStations.clear();
-            for (EdgeTransport edgeTransport : shortestPath) {
-                VertexTransport station1 = edgeTransport.getStartingStation();
-                VertexTransport station2 = edgeTransport.getEndingStation();
-                shortestPathStations.add(station1);
-                shortestPathStations.add(station2);
+            Set<EdgeTransport> edges = new HashSet<>();
+            Set<VertexTransport> stations = new HashSet<>();
+            for (PathLeg leg : shortestPath) {
+                edges.add(leg.getEdge());
+                stations.add(leg.getFrom());
+                stations.add(leg.getTo());
             }
-            Set<VertexTransport> set = new HashSet<>(shortestPathStations);
-            shortestPathStations.clear();
-            shortestPathStations.addAll(set);
+            shortestPathEdges = edges;
+            shortestPathStations = stations;
         }
     }
 
@@ -1,17 +1,23 @@
 package hubertmap.view;
 
 import edu.uci.ics.jung.algorithms.layout.Layout;
+import edu.uci.ics.jung.visualization.MultiLayerTransformer;
+import edu.uci.ics.jung.visualization.VisualizationServer;
 import edu.uci.ics.jung.visualization.VisualizationViewer;
 import edu.uci.ics.jung.visualization.decorators.EdgeShape;
 import hubertmap.model.transport.EdgeTransport;
 import hubertmap.model.transport.VertexTransport;
 import java.awt.*;
 import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import javax.swing.*;
 
 /**
  * The GraphPanel class constructs a new JPanel instance for graph visualization and initializes its
- * components.
+ * components. Vertices outside of the network, such as addresses, are drawn as markers over the
+ * graph, so they can be added and removed without changing the graph or its layout.
  */
 class GraphPanel extends JPanel {
 
@@ -33,6 +39,15 @@ class GraphPanel extends JPanel {
     /** The decorator used to customize the appearance of the graph. */
     GraphDecorator decorator;
 
+    /** The radius of a marker, in pixels. */
+    private static final int MARKER_RADIUS = 6;
+
+    /** The filter skipping the vertices and edges that don't need to be drawn. */
+    private ViewportFilter filter;
+
+    /** The markers shown over the graph, with their location in the layout. */
+    private final Map<VertexTransport, Point2D> markers = new LinkedHashMap<>();
+
     /**
      * Constructs a new GraphPanel instance with the specified GraphView.
      *
@@ -64,6 +79,34 @@ class GraphPanel extends JPanel {
         vv.getRenderContext().setEdgeDrawPaintTransformer(decorator.edgeColor());
         vv.setPreferredSize(new Dimension(panelWidth, panelHeight));
 
+        filter = new ViewportFilter(layout, decorator);
+        vv.getRenderContext().setVertexIncludePredicate(filter.vertices());
+        vv.getRenderContext().setEdgeIncludePredicate(filter.edges());
+        vv.addPreRenderPaintable(
+                new VisualizationServer.Paintable() {
+                    @Override
+                    public void paint(Graphics g) {
+                        filter.update(visibleArea());
+                    }
+
+                    @Override
+                    public boolean useTransform() {
+                        return false;
+                    }
+                });
+        vv.addPostRenderPaintable(
+                new VisualizationServer.Paintable() {
+                    @Override
+                    public void paint(Graphics g) {
+                        paintMarkers((Graphics2D) g);
+                    }
+
+                    @Override
+                    public boolean useTransform() {
+                        return false;
+                    }
+                });
+
         this.add(vv);
     }
 
@@ -72,22 +115,83 @@ class GraphPanel extends JPanel {
      * location.
      */
     private void setUpCoords() {
+        for (VertexTransport station : graphView.getVertices()) {
+            layout.setLocation(station, locate(station));
+        }
+    }
+
+    /**
+     * Returns the location in the layout of a vertex, based on the panel dimensions and the bounds
+     * of the stations.
+     *
+     * @param vertex the vertex
+     * @return the location of the vertex in the layout
+     */
+    private Point2D locate(VertexTransport vertex) {
         double minimumLongitude = graphView.getMinimumLongitude();
-        double maximumLongitude = graphView.getMaximumLongitude();
-        double minimumLatitude = graphView.getMinimumLatitude();
         double maximumLatitude = graphView.getMaximumLatitude();
 
-        double longitudeDiff = maximumLongitude - minimumLongitude;
-        double latitudeDiff = maximumLatitude - minimumLatitude;
+        double longitudeScale = panelWidth / (graphView.getMaximumLongitude() - minimumLongitude);
+        double latitudeScale = panelHeight / (maximumLatitude - graphView.getMinimumLatitude());
 
-        double longitudeScale = panelWidth / longitudeDiff;
-        double latitudeScale = panelHeight / latitudeDiff;
+        int x = (int) Math.round((vertex.getX() - minimumLongitude) * longitudeScale);
+        int y = (int) Math.round((maximumLatitude - vertex.getY()) * latitudeScale);
+        return new Point2D.Double(x, y);
+    }
 
-        for (VertexTransport station : graphView.getVertices()) {
-            int stationx = (int) Math.round((station.getX() - minimumLongitude) * longitudeScale);
-            int stationy = (int) Math.round((maximumLatitude - station.getY()) * latitudeScale);
-            layout.setLocation(station, new Point2D.Double(stationx, stationy));
+    /**
+     * Returns the part of the layout shown by the viewer at its current zoom and position.
+     *
+     * @return the visible part of the layout, or null if the viewer isn't shown yet
+     */
+    private Rectangle2D visibleArea() {
+        if (vv.getWidth() == 0 || vv.getHeight() == 0) return null;
+        MultiLayerTransformer transformer = vv.getRenderContext().getMultiLayerTransformer();
+        return transformer
+                .inverseTransform(new Rectangle(0, 0, vv.getWidth(), vv.getHeight()))
+                .getBounds2D();
+    }
+
+    /**
+     * Shows a marker for a vertex outside of the network. The zoom and the position of the view are
+     * kept.
+     *
+     * @param vertex the vertex to show
+     */
+    public void addMarker(VertexTransport vertex) {
+        markers.put(vertex, locate(vertex));
+        vv.repaint();
+    }
+
+    /**
+     * Removes the marker of a vertex, if it is shown.
+     *
+     * @param vertex the vertex to remove
+     */
+    public void removeMarker(VertexTransport vertex) {
+        if (markers.remove(vertex) != null) vv.repaint();
+    }
+
+    /**
+     * Draws the markers at the current zoom and position of the view. The markers keep the same
+     * size whatever the zoom.
+     *
+     * @param g the graphics of the viewer
+     */
+    private void paintMarkers(Graphics2D g) {
+        if (markers.isEmpty()) return;
+        MultiLayerTransformer transformer = vv.getRenderContext().getMultiLayerTransformer();
+        Color color = g.getColor();
+        for (Point2D location : markers.values()) {
+            Point2D p = transformer.transform(location);
+            int x = (int) Math.round(p.getX());
+            int y = (int) Math.round(p.getY());
+            g.setColor(Color.RED);
+            g.fillOval(x - MARKER_RADIUS, y - MARKER_RADIUS, 2 * MARKER_RADIUS, 2 * MARKER_RADIUS);
+            g.setColor(Color.BLACK);
+            g.drawOval(x - MARKER_RADIUS, y - MARKER_RADIUS, 2 * MARKER_RADIUS, 2 * MARKER_RADIUS);
         }
+        g.setColor(color);
     }
 
     /**
@@ -0,0 +1,34 @@
+package hubertmap.view;
+
+import hubertmap.model.routing.PathLeg;
+import hubertmap.model.transport.VertexTransport;
+import java.util.List;
+
+/**
+ * The MapListener interface receives the changes shown on the map one at a time, so the map can be
+ * updated in place without rebuilding its panels. Its methods are called on the Event Dispatch
+ * Thread.
+ */
+public interface MapListener {
+
+    /**
+     * Called when a vertex outside of the network, such as an address, is shown on the map.
+     *
+     * @param vertex the vertex shown
+     */
+    void vertexAdded(VertexTransport vertex);
+
+    /**
+     * Called when a vertex outside of the network is no longer shown on the map.
+     *
+     * @param vertex the vertex removed
+     */
+    void vertexRemoved(VertexTransport vertex);
+
+    /**
+     * Called when a path is highlighted on the map.
+     *
+     * @param path the legs of the path, or null to keep the current one
+     */
+    void pathHighlighted(List<PathLeg> path);
+}
@@ -2,31 +2,28 @@ package hubertmap.view;
 
 import hubertmap.controller.Controller;
 import hubertmap.model.Time;
-import hubertmap.model.transport.Line;
+import hubertmap.model.transport.Departure;
 import hubertmap.model.transport.Station;
 import java.awt.*;
 import java.time.LocalTime;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map.Entry;
-import java.util.SortedSet;
 import javax.swing.*;
 
 /**
  * The SchedulesPanel class displays the schedules of a given station in a table format. It allows
- * the user to select the departure or arrival station by clicking on a button. The schedules are
- * sorted by time, with duplicates removed.
+ * the user to select the departure or arrival station by clicking on a button. The next departures
+ * are listed by time, with their terminus.
  */
 public class SchedulesPanel extends JPanel {
 
+    /** The number of departures displayed. */
+    private static final int DEPARTURES = 15;
+
     /**
-     * Creates a new SchedulesPanel with the schedules of the given station and lines.
+     * Creates a new SchedulesPanel with the next departures from the given station.
      *
      * @param v the station whose schedules will be displayed
-     * @param lines the lines that serve the station
      */
-    public SchedulesPanel(Station v, HashMap<String, Line> lines) {
+    public SchedulesPanel(Station v) {
         GridBagConstraints c = new GridBagConstraints();
         this.setLayout(new GridBagLayout());
         this.setLayout(new BoxLayout(this, BoxLayout.Y_AXIS));
@@ -73,53 +70,17 @@ public class SchedulesPanel extends JPanel {
         JPanel PlanPanel = new JPanel();
         PlanPanel.setLayout(new GridLayout(0, 2, 2, 2));
 
-        ArrayList<String[]> data = new ArrayList<>();
-        for (Entry<String, SortedSet<Time>> entry : v.getSchedules().entrySet()) {
-            if (entry.getValue() != null)
-                for (Time time : entry.getValue()) {
-                    Line line = lines.get(entry.getKey());
-                    Station terminalStation = line.getTerminalStationArrival();
-                    data.add(new String[] {terminalStation.getName(), time.toString()});
-                }
-        }
-
-        HashSet<String> set = new HashSet<>();
-        int i = 0;
-        while (i < data.size()) {
-            String[] element = data.get(i);
-            if (set.contains(element[1])) {
-                data.remove(i);
-            } else {
-                set.add(element[1]);
-                i++;
-            }
-        }
-
-        int startIndex = 0;
-        int endIndex = getRowTime(data) - 5;
-        if (endIndex < startIndex) {
-            endIndex = startIndex;
-        }
-
-        data.subList(startIndex, endIndex).clear();
-
-        startIndex = getRowTime(data) + 10;
-        endIndex = data.size();
-        if (endIndex < startIndex) {
-            endIndex = startIndex;
-        }
-
-        data.subList(startIndex, endIndex).clear();
-
-        for (String[] strings : data) {
+        LocalTime now = LocalTime.now();
+        Time from = new Time(now.getHour(), now.getMinute(), now.getSecond());
+        for (Departure next : Controller.getDepartures(v, from, DEPARTURES)) {
             JPanel way = new JPanel(new FlowLayout(FlowLayout.LEFT));
 
             JPanel time = new JPanel();
 
-            JLabel wayL = new JLabel(strings[0]);
+            JLabel wayL = new JLabel(next.getTerminus().getName());
             wayL.setPreferredSize(new Dimension(110, 15));
 
-            JLabel timeL = new JLabel(strings[1]);
+            JLabel timeL = new JLabel(next.getTime().toString());
             timeL.setPreferredSize(new Dimension(60, 15));
 
             way.add(wayL);
@@ -133,26 +94,4 @@ public class SchedulesPanel extends JPanel {
         scrollPane.setPreferredSize(new Dimension(180, 450));
         this.add(scrollPane, c);
     }
-
-    /**
-     * Returns the index of the first row in the given JTable that has a time after the current
-     * time. If there is no such row, returns -1.
-     *
-     * @param table the JTable to search
-     * @return the index of the first row with a time after the current time, or -1 if there is no
-     *     such row
-     */
-    private int getRowTime(ArrayList<String[]> data) {
-        LocalTime currentTime = LocalTime.now();
-
-        for (int i = 0; i < data.size(); i++) {
-            String timeString = (String) data.get(i)[1];
-            LocalTime rowTime = LocalTime.parse(timeString);
-
-            if (rowTime.isAfter(currentTime)) {
-                return i;
-            }
-        }
-        return -1;
-    }
 }
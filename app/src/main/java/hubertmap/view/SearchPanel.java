@@ -1,21 +1,20 @@
 package hubertmap.view;
 
 import hubertmap.controller.Controller;
+import hubertmap.model.routing.PathLeg;
+import hubertmap.model.transport.StationSearchIndex;
 import hubertmap.model.transport.VertexTransport;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.awt.geom.Point2D;
-import java.text.Normalizer;
 import java.time.Instant;
 import java.time.LocalTime;
 import java.time.ZoneId;
-import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Collection;
-import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import javax.swing.*;
 import javax.swing.JButton;
 import javax.swing.JPanel;
@@ -31,31 +30,34 @@ import javax.swing.text.DateFormatter;
  */
 public class SearchPanel extends JPanel {
 
+    /** The number of names suggested for an unknown station */
+    private static final int SUGGESTIONS = 3;
+
     /** TextArea with autocompletion to search start station */
     TextAreaDemo textAreaStationStart;
 
     /** TextArea with autocompletion to search end station */
     TextAreaDemo textAreaStationEnd;
 
-    /** HashMap to store station names with accents */
-    private HashMap<String, String> actualStationsNames;
-
-    /** A List object to hold names of station for search. */
-    private List<String> stationsNames;
+    /** The index of the station names, shared by both text areas */
+    private final StationSearchIndex index;
 
     /** Start time of travel */
     private LocalTime time;
 
-    SearchPanel(GraphData graphView) {
+    /** The last search started, the only one whose path is shown */
+    private CompletableFuture<List<PathLeg>> pendingSearch;
+
+    SearchPanel(StationSearchIndex index) {
 
-        setData(graphView.getVertices());
+        this.index = index;
 
         this.setLayout(new BoxLayout(this, BoxLayout.Y_AXIS));
         this.setBorder(BorderFactory.createEtchedBorder(EtchedBorder.RAISED));
 
-        textAreaStationStart = new TextAreaDemo(stationsNames);
+        textAreaStationStart = new TextAreaDemo(index);
         textAreaStationStart.setText("departure : station or coordinates");
-        textAreaStationEnd = new TextAreaDemo(stationsNames);
+        textAreaStationEnd = new TextAreaDemo(index);
         textAreaStationEnd.setText("arrival : station or coordinates");
 
         JPanel startPanel = new JPanel();
@@ -114,38 +116,10 @@ public class SearchPanel extends JPanel {
         return spinner;
     }
 
-    /**
-     * Convert Collection of station to ArrayList and initialise stationsNames list.
-     *
-     * @param stations Collection of station used for search
-     */
-    private void setData(Collection<VertexTransport> stations) {
-        stationsNames = new ArrayList<>();
-        actualStationsNames = new HashMap<>();
-        for (VertexTransport station : stations) {
-            String n1 = station.getName().toLowerCase();
-            String n2 = stripAccents(n1);
-            stationsNames.add(n1);
-            if (!(n1.equals(n2))) {
-                stationsNames.add(n2);
-                actualStationsNames.put(n2, n1);
-            }
-        }
-        Collections.sort(stationsNames);
-    }
-
-    /**
-     * @param s a character string
-     * @return s with accents replaced with ascii characters
-     */
-    private String stripAccents(String s) {
-        s = Normalizer.normalize(s, Normalizer.Form.NFD);
-        s = s.replaceAll("[\\p{InCombiningDiacriticalMarks}]", "");
-        return s;
-    }
-
     /**
      * Returns an ActionListener that executes a search for the shortest path between two stations.
+     * The search runs in the background, its path is shown on the Event Dispatch Thread unless a
+     * newer search was started in the meantime.
      *
      * @return ActionListener that executes a search for the shortest path
      */
@@ -153,54 +127,58 @@ public class SearchPanel extends JPanel {
         return new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                Controller.deleteUserPoints();
-
                 String stringStart = textAreaStationStart.getValue();
                 String stringEnd = textAreaStationEnd.getValue();
 
-                String station1Name = getCoordsFromString(stringStart);
-                String station2Name = getCoordsFromString(stringEnd);
+                VertexTransport start = getVertexFromString(stringStart);
+                VertexTransport end = getVertexFromString(stringEnd);
+                if (start == null || end == null) return;
+
+                // a newer search makes the result of the previous one useless
+                if (pendingSearch != null) pendingSearch.cancel(false);
+                LocalTime departure = time;
+                CompletableFuture<List<PathLeg>> search = Controller.searchShortestPath(start, end);
+                pendingSearch = search;
+                search.whenComplete(
+                        (path, error) ->
+                                SwingUtilities.invokeLater(
+                                        () -> publish(search, departure, path, error)));
+            }
 
-                Controller.setShortestPath(time, station1Name, station2Name);
+            private void publish(
+                    CompletableFuture<List<PathLeg>> search,
+                    LocalTime departure,
+                    List<PathLeg> path,
+                    Throwable error) {
+                if (search != pendingSearch) return;
+                pendingSearch = null;
+                if (error == null) {
+                    Controller.setShortestPath(departure, path);
+                } else if (!(error instanceof CancellationException)) {
+                    Throwable cause =
+                            error instanceof CompletionException ? error.getCause() : error;
+                    System.out.println("Erreur lors de la recherche : " + cause);
+                }
             }
 
-            private String getCoordsFromString(String stringStart) {
-                String station1Name;
-                Point2D.Float coords1 = parseCoordinates(stringStart);
-                if (coords1 != null)
-                    station1Name = Controller.createPoint(coords1.getX(), coords1.getY());
-                else {
-                    String s1 = actualStationsNames.get(stringStart);
-                    if (s1 != null) {
-                        station1Name = s1;
-                    } else station1Name = stringStart;
+            private VertexTransport getVertexFromString(String string) {
+                VertexTransport vertex = Controller.findVertex(string);
+                if (vertex == null) {
+                    List<String> names = index.search(string, SUGGESTIONS);
+                    System.out.println(
+                            "Station inconnue : "
+                                    + string
+                                    + (names.isEmpty()
+                                            ? ""
+                                            : ", vouliez-vous dire : "
+                                                    + String.join(", ", names)
+                                                    + " ?"));
                 }
-                return station1Name;
+                return vertex;
             }
         };
     }
 
-    /**
-     * Parses a string containing latitude and longitude coordinates in the format
-     * "latitude,longitude" and returns a Point2D.Float object representing the coordinates.
-     *
-     * @param str to parse
-     * @return Point2D.Float with latitude and longitude
-     */
-    private Point2D.Float parseCoordinates(String str) {
-        String[] parts = str.split(",");
-        if (parts.length != 2) {
-            return null;
-        }
-        try {
-            float latitude = Float.parseFloat(parts[0].trim());
-            float longitude = Float.parseFloat(parts[1].trim());
-            return new Point2D.Float(latitude, longitude);
-        } catch (NumberFormatException e) {
-            return null;
-        }
-    }
-
     /**
      * Sets the name of the departure station to be displayed in the text area.
      *
@@ -208,9 +186,9 @@ public class SearchPanel extends JPanel {
      */
     public void setDeparture(String name) {
         textAreaStationStart.setText(name);
-        String end = stripAccents(textAreaStationEnd.getValue().toLowerCase());
+        String end = StationSearchIndex.normalize(textAreaStationEnd.getValue());
 
-        if (end.equals(stripAccents(name.toLowerCase()))) {
+        if (end.equals(StationSearchIndex.normalize(name))) {
             setArrival("arrival : station or coordinates");
         }
     }
@@ -223,9 +201,9 @@ public class SearchPanel extends JPanel {
     public void setArrival(String name) {
         textAreaStationEnd.setText(name);
 
-        String start = stripAccents(textAreaStationStart.getValue().toLowerCase());
+        String start = StationSearchIndex.normalize(textAreaStationStart.getValue());
 
-        if (start.equals(stripAccents(name.toLowerCase()))) {
+        if (start.equals(StationSearchIndex.normalize(name))) {
             setDeparture("departure : station or coordinates");
         }
     }
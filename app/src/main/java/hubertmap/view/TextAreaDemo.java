@@ -35,6 +35,7 @@ package hubertmap.view;
  * TextAreaDemo.java requires no other files.
  */
 
+import hubertmap.model.transport.StationSearchIndex;
 import java.awt.event.*;
 import java.awt.event.ActionEvent;
 import java.util.*;
@@ -43,7 +44,7 @@ import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 import javax.swing.text.BadLocationException;
 
-/** A class that creates a text area with auto-complete functionality based on a list of words. */
+/** A class that creates a text area with auto-complete functionality based on station names. */
 public class TextAreaDemo extends JPanel implements DocumentListener {
 
     /** the text area where the user types */
@@ -58,18 +59,18 @@ public class TextAreaDemo extends JPanel implements DocumentListener {
         COMPLETION
     };
 
-    /** a list of words to use for autocomplete */
-    private List<String> words;
+    /** the index of the names to use for autocomplete */
+    private StationSearchIndex index;
 
     /** the current mode */
     private Mode mode = Mode.INSERT;
 
     /**
-     * Constructs a TextAreaDemo object with a list of words for auto-completion.
+     * Constructs a TextAreaDemo object with an index of names for auto-completion.
      *
-     * @param data A list of words for auto-completion
+     * @param index The index of the names for auto-completion
      */
-    public TextAreaDemo(List<String> data) {
+    public TextAreaDemo(StationSearchIndex index) {
 
         initComponents();
 
@@ -81,7 +82,7 @@ public class TextAreaDemo extends JPanel implements DocumentListener {
         im.put(KeyStroke.getKeyStroke("TAB"), COMMIT_ACTION);
         am.put(COMMIT_ACTION, new CommitAction());
 
-        words = data;
+        this.index = index;
 
         textArea.addFocusListener(
                 new FocusListener() {
@@ -129,16 +130,19 @@ public class TextAreaDemo extends JPanel implements DocumentListener {
         }
 
         String prefix = content.substring(w + 1).toLowerCase();
-        int n = Collections.binarySearch(words, prefix);
-        if (n < 0 && -n <= words.size()) {
-            String match = words.get(-n - 1);
-            if (match.startsWith(prefix)) {
-                // A completion is found
-                String completion = match.substring(pos - w);
-                // We cannot modify Document from within notification,
-                // so we submit a task that does the change later
-                SwingUtilities.invokeLater(new CompletionTask(completion, pos + 1));
-            }
+        List<String> matches = index.complete(prefix, 1);
+        String match = matches.isEmpty() ? null : matches.get(0);
+        // the name may be typed without accents, it only has to start like the prefix once
+        // normalized
+        if (match != null
+                && match.length() > prefix.length()
+                && StationSearchIndex.normalize(match.substring(0, prefix.length()))
+                        .equals(StationSearchIndex.normalize(prefix))) {
+            // A completion is found
+            String completion = match.substring(pos - w);
+            // We cannot modify Document from within notification,
+            // so we submit a task that does the change later
+            SwingUtilities.invokeLater(new CompletionTask(completion, pos + 1));
         } else {
             // Nothing found
             mode = Mode.INSERT;
@@ -211,11 +215,11 @@ public class TextAreaDemo extends JPanel implements DocumentListener {
     }
 
     /**
-     * Updates words with new data
+     * Updates the index of the names used for autocomplete
      *
-     * @param data the list of strings used to set in words
+     * @param index the index of the names
      */
-    public void setData(List<String> data) {
-        words = data;
+    public void setIndex(StationSearchIndex index) {
+        this.index = index;
     }
 }
@@ -1,10 +1,9 @@
 package hubertmap.view;
 
-import edu.uci.ics.jung.graph.util.Pair;
 import hubertmap.controller.Controller;
 import hubertmap.model.Time;
-import hubertmap.model.transport.EdgeTransport;
-import hubertmap.model.transport.Line;
+import hubertmap.model.routing.Leg;
+import hubertmap.model.routing.PathLeg;
 import hubertmap.model.transport.Station;
 import hubertmap.model.transport.VertexTransport;
 import java.awt.BorderLayout;
@@ -15,8 +14,6 @@ import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.time.LocalTime;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import javax.imageio.ImageIO;
 import javax.swing.BorderFactory;
@@ -28,9 +25,10 @@ import javax.swing.border.EtchedBorder;
 
 /**
  * The View class represents the graphical user interface of the application, and contains a Panel
- * instance for displaying the main content of the GUI.
+ * instance for displaying the main content of the GUI. The panels are built once, the changes of
+ * the map are then applied in place through {@link MapListener}.
  */
-public class View {
+public class View implements MapListener {
 
     /** The Panel instance that displays the main content of the GUI. */
     private JPanel panel;
@@ -43,14 +41,10 @@ public class View {
     private SchedulesPanel schedulesPanel;
     private JPanel generalPanel;
 
-    private HashMap<String, Line> lines;
-
     private JFrame frame;
 
     private SearchPanel searchPanel;
 
-    private Time currentTime;
-
     /**
      * Constructs a new View instance and initializes its components. Creates a JFrame window and
      * adds the Panel to it.
@@ -89,11 +83,9 @@ public class View {
         graphPanel = new GraphPanel(graphView);
         graphPanel.setBorder(BorderFactory.createEtchedBorder(EtchedBorder.RAISED));
 
-        this.lines = graphView.getLines();
-
         leftPanel = new JPanel(new BorderLayout());
 
-        searchPanel = new SearchPanel(graphView);
+        searchPanel = new SearchPanel(Controller.getSearchIndex());
 
         leftPanel.add(searchPanel, BorderLayout.NORTH);
 
@@ -108,14 +100,29 @@ public class View {
      * Sets the list of edges in the View that make up the shortest path
      *
      * @param time start time of travel
-     * @param shortestPath List of edges to set in View
+     * @param shortestPath List of legs to set in View
      */
-    public void setShortestPath(LocalTime time, List<EdgeTransport> shortestPath) {
-        graphPanel.getDecorator().setShortestPath(shortestPath);
-        graphPanel.repaint();
+    public void setShortestPath(LocalTime time, List<PathLeg> shortestPath) {
+        pathHighlighted(shortestPath);
         setPathDetails(time, shortestPath);
     }
 
+    @Override
+    public void vertexAdded(VertexTransport vertex) {
+        graphPanel.addMarker(vertex);
+    }
+
+    @Override
+    public void vertexRemoved(VertexTransport vertex) {
+        graphPanel.removeMarker(vertex);
+    }
+
+    @Override
+    public void pathHighlighted(List<PathLeg> path) {
+        graphPanel.getDecorator().setShortestPath(path);
+        graphPanel.repaint();
+    }
+
     /**
      * Sets the name of the departure station to be displayed in the text area.
      *
@@ -145,7 +152,7 @@ public class View {
 
         searchPanel.setText(v.getName());
 
-        schedulesPanel = new SchedulesPanel(v, lines);
+        schedulesPanel = new SchedulesPanel(v);
         leftPanel.add(schedulesPanel);
 
         leftPanel.revalidate();
@@ -157,7 +164,7 @@ public class View {
      * @param time start time of travel
      * @param shortestPath shortes path to output
      */
-    public void setPathDetails(LocalTime time, List<EdgeTransport> shortestPath) {
+    public void setPathDetails(LocalTime time, List<PathLeg> shortestPath) {
         if (generalPanel != null) leftPanel.remove(generalPanel);
         if (schedulesPanel != null) leftPanel.remove(schedulesPanel);
 
@@ -165,19 +172,9 @@ public class View {
         generalPanel.setLayout(new BoxLayout(generalPanel, BoxLayout.Y_AXIS));
         generalPanel.setLayout(new GridLayout(0, 1, 5, 5));
 
-        List<CustomPair> segments = getSegments(shortestPath);
-
-        currentTime = new Time(time.getHour(), time.getMinute(), time.getSecond()); // TODO
-
-        for (int i = 0; i < segments.size(); i += 2) {
-            JPanel pathPanel =
-                    createPathPanel(
-                            shortestPath,
-                            segments.get(i).getFirst(),
-                            segments.get(i).getSecond(),
-                            segments.get(i + 1).getSecond());
-
-            generalPanel.add(pathPanel);
+        Time departure = new Time(time.getHour(), time.getMinute(), time.getSecond());
+        for (Leg leg : Controller.getItinerary(shortestPath, departure)) {
+            generalPanel.add(createPathPanel(leg));
         }
 
         leftPanel.add(generalPanel);
@@ -188,25 +185,10 @@ public class View {
     /**
      * Creates a panel with details of path between 2 stations
      *
-     * @param shortestPath
-     * @param line line number of given path
-     * @param vertexTransport first station of path
-     * @param vertexTransport2 last station of path
+     * @param leg the part of the path on one line
      */
-    private JPanel createPathPanel(
-            List<EdgeTransport> shortestPath,
-            String lineName,
-            VertexTransport vertexTransport,
-            VertexTransport vertexTransport2) {
-
-        Pair<Time> time = null;
-        if (currentTime != null) {
-            time =
-                    Controller.getTimes(
-                            shortestPath, vertexTransport, vertexTransport2, currentTime);
-            if (time != null) currentTime = time.getSecond();
-            else currentTime = null;
-        }
+    private JPanel createPathPanel(Leg leg) {
+        String lineName = leg.getLineName();
 
         JPanel sectionPanel = new JPanel();
         sectionPanel.setLayout(new BoxLayout(sectionPanel, BoxLayout.X_AXIS));
@@ -219,20 +201,20 @@ public class View {
         startPanel.setLayout(new BorderLayout());
         startPanel.setPreferredSize(new Dimension(240, 20));
         String startLabelText = "";
-        if (time != null) {
-            startLabelText = time.getFirst().toString() + " - ";
+        if (leg.isTimed()) {
+            startLabelText = leg.getDeparture().toString() + " - ";
         }
-        JLabel startLabel = new JLabel(startLabelText + vertexTransport);
+        JLabel startLabel = new JLabel(startLabelText + leg.getFrom());
         startPanel.add(startLabel, BorderLayout.NORTH);
 
         JPanel finishPanel = new JPanel();
         finishPanel.setLayout(new BorderLayout());
         finishPanel.setPreferredSize(new Dimension(240, 20));
         String finishLabelText = "";
-        if (time != null) {
-            finishLabelText = time.getSecond().toString() + " - ";
+        if (leg.isTimed()) {
+            finishLabelText = leg.getArrival().toString() + " - ";
         }
-        JLabel finishLabel = new JLabel(finishLabelText + vertexTransport2);
+        JLabel finishLabel = new JLabel(finishLabelText + leg.getTo());
         finishPanel.add(finishLabel, BorderLayout.SOUTH);
 
         JPanel linePanel = new JPanel();
@@ -253,77 +235,4 @@ public class View {
 
         return sectionPanel;
     }
-
-    /**
-     * Divides EdgeTransport into an array of line - station values
-     *
-     * @param shortestPath list to divide
-     * @return array of line - station values
-     */
-    private List<CustomPair> getSegments(List<EdgeTransport> shortestPath) {
-        String currentLine = shortestPath.get(0).getLineName();
-        String lastStationOnSameLine = null;
-        VertexTransport lastStation = null;
-        ArrayList<String[]> segments = new ArrayList<>();
-        List<CustomPair> edges = new ArrayList<>();
-        for (int i = 0; i < shortestPath.size(); i++) {
-            EdgeTransport edge = shortestPath.get(i);
-            if (!edge.getLineName().equals("CHANGE")) {
-
-                if (i == 0) {
-                    segments.add(
-                            new String[] {edge.getLineName(), edge.getStartingStation().getName()});
-                    edges.add(new CustomPair(edge.getLineName(), edge.getStartingStation()));
-                }
-
-                if (!edge.getLineName().equals(currentLine)) {
-                    segments.add(new String[] {currentLine, lastStationOnSameLine});
-                    edges.add(new CustomPair(currentLine, lastStation));
-                    segments.add(
-                            new String[] {edge.getLineName(), edge.getStartingStation().getName()});
-                    edges.add(new CustomPair(edge.getLineName(), edge.getStartingStation()));
-                    currentLine = edge.getLineName();
-                }
-                lastStationOnSameLine = edge.getEndingStation().getName();
-                lastStation = edge.getEndingStation();
-            }
-        }
-
-        segments.add(new String[] {currentLine, lastStationOnSameLine});
-        edges.add(new CustomPair(currentLine, lastStation));
-
-        return edges;
-    }
-
-    /**
-     * Updates view with new data
-     *
-     * @param graphView GraphData to set in view
-     */
-    public void updateView(GraphData graphView) {
-        frame.getContentPane().remove(panel);
-        panel = createPanel(graphView);
-        frame.getContentPane().add(panel);
-        frame.pack();
-        frame.setVisible(true);
-        frame.requestFocusInWindow();
-    }
-}
-
-class CustomPair {
-    private String first;
-    private VertexTransport second;
-
-    public CustomPair(String first, VertexTransport second) {
-        this.first = first;
-        this.second = second;
-    }
-
-    public String getFirst() {
-        return first;
-    }
-
-    public VertexTransport getSecond() {
-        return second;
-    }
 }
@@ -0,0 +1,133 @@
+package hubertmap.view;
+
+import edu.uci.ics.jung.algorithms.layout.Layout;
+import edu.uci.ics.jung.graph.Graph;
+import edu.uci.ics.jung.graph.util.Context;
+import hubertmap.model.transport.EdgeTransport;
+import hubertmap.model.transport.Station;
+import hubertmap.model.transport.VertexTransport;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.apache.commons.collections15.Predicate;
+
+/**
+ * The ViewportFilter class chooses the vertices and edges handed to the renderer. Those outside of
+ * the visible part of the layout are skipped, as are the edges without a color. When zoomed out,
+ * the stations served by a single line are hidden and the edges linking the same two stations are
+ * drawn once. The shortest path is always drawn.
+ */
+final class ViewportFilter {
+
+    /** Below this scale, the map is drawn with less details. */
+    static final int DETAIL_SCALE = 3;
+
+    /** The margin around the visible part, so that labels and large vertices aren't cut. */
+    private static final double MARGIN = 50;
+
+    private final Layout<VertexTransport, EdgeTransport> layout;
+    private final GraphDecorator decorator;
+
+    /** The edges drawn by another edge of the same line between the same stations. */
+    private final Set<EdgeTransport> sameLineEdges = new HashSet<>();
+
+    /** The edges drawn by another edge between the same stations, when zoomed out. */
+    private final Set<EdgeTransport> parallelEdges = new HashSet<>();
+
+    /** The visible part of the layout, or null to draw everything. */
+    private Rectangle2D visible;
+
+    private boolean detailed = true;
+
+    /**
+     * Constructs the filter of the vertices and edges of a layout.
+     *
+     * @param layout the layout with the graph and the location of its vertices
+     * @param decorator the decorator with the scale and the shortest path
+     */
+    ViewportFilter(Layout<VertexTransport, EdgeTransport> layout, GraphDecorator decorator) {
+        this.layout = layout;
+        this.decorator = decorator;
+        Set<Set<VertexTransport>> stationPairs = new HashSet<>();
+        Set<List<Object>> lines = new HashSet<>();
+        for (EdgeTransport edge : layout.getGraph().getEdges()) {
+            if (!decorator.isColored(edge)) continue;
+            VertexTransport start = edge.getStartingStation();
+            VertexTransport end = edge.getEndingStation();
+            if (start.equals(end)) continue;
+            Set<VertexTransport> stations = Set.of(start, end);
+            if (!lines.add(List.of(stations, edge.getLineName()))) sameLineEdges.add(edge);
+            if (!stationPairs.add(stations)) parallelEdges.add(edge);
+        }
+    }
+
+    /**
+     * Sets the visible part of the layout before a repaint.
+     *
+     * @param visible the visible part of the layout, or null to draw everything
+     */
+    void update(Rectangle2D visible) {
+        if (visible != null) {
+            visible =
+                    new Rectangle2D.Double(
+                            visible.getX() - MARGIN,
+                            visible.getY() - MARGIN,
+                            visible.getWidth() + 2 * MARGIN,
+                            visible.getHeight() + 2 * MARGIN);
+        }
+        this.visible = visible;
+        this.detailed = decorator.getScale() >= DETAIL_SCALE;
+    }
+
+    /**
+     * Returns the predicate of the vertices to draw.
+     *
+     * @return a predicate that is true for the vertices to draw
+     */
+    Predicate<Context<Graph<VertexTransport, EdgeTransport>, VertexTransport>> vertices() {
+        return context -> includes(context.element);
+    }
+
+    /**
+     * Returns the predicate of the edges to draw.
+     *
+     * @return a predicate that is true for the edges to draw
+     */
+    Predicate<Context<Graph<VertexTransport, EdgeTransport>, EdgeTransport>> edges() {
+        return context -> includes(context.element);
+    }
+
+    /**
+     * Returns true if the vertex is drawn.
+     *
+     * @param vertex the vertex
+     * @return true if the vertex is drawn
+     */
+    boolean includes(VertexTransport vertex) {
+        if (decorator.shortestPathStations.contains(vertex)) return true;
+        if (!detailed && vertex instanceof Station && !((Station) vertex).isMultiLine()) {
+            return false;
+        }
+        return visible == null || visible.contains(layout.transform(vertex));
+    }
+
+    /**
+     * Returns true if the edge is drawn.
+     *
+     * @param edge the edge
+     * @return true if the edge is drawn
+     */
+    boolean includes(EdgeTransport edge) {
+        if (decorator.shortestPathEdges.contains(edge)) return true;
+        if (!decorator.isColored(edge) || sameLineEdges.contains(edge)) return false;
+        if (!detailed && parallelEdges.contains(edge)) return false;
+        if (visible == null) return true;
+        Point2D start = layout.transform(edge.getStartingStation());
+        Point2D end = layout.transform(edge.getEndingStation());
+        return visible.contains(start)
+                || visible.contains(end)
+                || visible.intersectsLine(start.getX(), start.getY(), end.getX(), end.getY());
+    }
+}
@@ -0,0 +1,28 @@
+package hubertmap.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class ServiceTimeTest {
+
+    @Test
+    void timesPastMidnightStayInTheServiceDay() {
+        int time = ServiceTime.plus(ServiceTime.of(23, 50, 0), 25 * 60);
+        assertEquals(24, ServiceTime.hour(time));
+        assertEquals(15, ServiceTime.minute(time));
+        assertEquals("24:15:00", ServiceTime.toString(time));
+        assertEquals(ServiceTime.of(0, 15, 0), ServiceTime.timeOfDay(time));
+    }
+
+    @Test
+    void timeIsAViewOfThePackedValue() {
+        Time t = new Time(ServiceTime.of(9, 41, 27));
+        assertEquals(9, t.getHour());
+        assertEquals(41, t.getMinute());
+        assertEquals(27, t.getSeconde());
+        t.increaseWithADurationJourney(new DurationJourney(15 * 3600));
+        assertEquals("00:41:27", t.toString());
+        assertEquals(ServiceTime.of(0, 41, 27), t.toSeconds());
+    }
+}
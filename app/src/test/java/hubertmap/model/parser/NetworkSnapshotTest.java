@@ -0,0 +1,147 @@
+package hubertmap.model.parser;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import hubertmap.model.DurationJourney;
+import hubertmap.model.Time;
+import hubertmap.model.transport.Line;
+import hubertmap.model.transport.ScheduleStore;
+import hubertmap.model.transport.Station;
+import hubertmap.model.transport.VertexTransport;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class NetworkSnapshotTest {
+
+    private static final File MAP_DATA =
+            new File("src/test/java/hubertmap/model/parser/resources/map_data_test1.csv");
+
+    private Parser parser;
+    private File file;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        parser = new Parser(false);
+        parser.parseStations(MAP_DATA);
+        Line line = parser.getDataLine().keySet().iterator().next();
+        line.addStart(new Time(9, 10, 0));
+        line.getTerminalStationDeparture().addSchedule(line, new Time(9, 10, 0));
+        file = Files.createTempFile("network", ".bin").toFile();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    void snapshotRestoresTheParsedNetwork() throws Exception {
+        NetworkSnapshot.write(
+                file, 42, parser.getNetwork(), parser.getStations(), parser.getDataLine());
+        NetworkSnapshot snapshot = NetworkSnapshot.read(file, 42);
+        assertNotNull(snapshot);
+
+        List<Station> stations = snapshot.getStations();
+        assertEquals(parser.getStations().toString(), stations.toString());
+        for (int i = 0; i < stations.size(); i++) {
+            Station expected = parser.getStations().get(i);
+            assertEquals(expected.getAllLines(), stations.get(i).getAllLines());
+            ScheduleStore schedules = stations.get(i).getSchedules();
+            assertEquals(expected.getSchedules().getLines(), schedules.getLines());
+            for (int id = 0; id < schedules.getLines().size(); id++) {
+                assertArrayEquals(expected.getSchedules().times(id), schedules.times(id));
+            }
+            assertEquals(expected.isMultiLine(), stations.get(i).isMultiLine());
+            assertEquals(expected.getX(), stations.get(i).getX());
+        }
+        assertEquals(
+                parser.getNetwork().getGraph().getEdgeCount(),
+                snapshot.getNetwork().getGraph().getEdgeCount());
+        assertEquals(describe(parser.getDataLine()), describe(snapshot.getDataLine()));
+        assertSameNamedStations(snapshot);
+    }
+
+    @Test
+    void snapshotKeepsTheStationFoundByEveryName() throws Exception {
+        // La Motte-Picquet - Grenelle has a platform on lines 8, 6 and 10
+        parser = new Parser(false);
+        parser.parseStations(
+                new File("src/test/java/hubertmap/model/parser/resources/map_data_test3.csv"));
+        NetworkSnapshot.write(
+                file, 42, parser.getNetwork(), parser.getStations(), parser.getDataLine());
+        assertSameNamedStations(NetworkSnapshot.read(file, 42));
+
+        for (Station station : parser.getStations()) {
+            if (!station.getName().equals("La Motte-Picquet - Grenelle")) continue;
+            parser.getNetwork().nameStation(station);
+            NetworkSnapshot.write(
+                    file, 42, parser.getNetwork(), parser.getStations(), parser.getDataLine());
+            assertSameNamedStations(NetworkSnapshot.read(file, 42));
+        }
+    }
+
+    /** Checks that every name gives the same station in the parsed and the loaded network. */
+    private void assertSameNamedStations(NetworkSnapshot snapshot) {
+        for (Station station : parser.getStations()) {
+            String name = station.getName().toLowerCase();
+            assertEquals(
+                    indexOf(parser.getStations(), parser.getNetwork().getStation(name)),
+                    indexOf(snapshot.getStations(), snapshot.getNetwork().getStation(name)),
+                    name);
+        }
+    }
+
+    /** Returns the position of a station in a list, stations being compared by identity. */
+    private static int indexOf(List<Station> stations, VertexTransport station) {
+        for (int i = 0; i < stations.size(); i++) {
+            if (stations.get(i) == station) return i;
+        }
+        return -1;
+    }
+
+    /** Returns the name, terminus, stations, starts and durations of every line, sorted. */
+    private static List<String> describe(Map<Line, ArrayList<DurationJourney>> dataLine) {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<Line, ArrayList<DurationJourney>> entry : dataLine.entrySet()) {
+            Line line = entry.getKey();
+            StringBuilder text = new StringBuilder(line.getName());
+            text.append(" from ").append(line.getTerminalStationDeparture().getName());
+            Station arrival = line.getTerminalStationArrival();
+            text.append(" to ").append(arrival == null ? null : arrival.getName());
+            text.append(" stations");
+            for (Station station : line.getAllStations()) {
+                text.append(' ').append(station.getName()).append('/').append(station.getX());
+            }
+            text.append(" starts");
+            for (Time start : line.starts) text.append(' ').append(start.toSeconds());
+            text.append(" durations");
+            for (DurationJourney duration : entry.getValue()) {
+                text.append(' ').append(duration.toSeconds());
+            }
+            lines.add(text.toString());
+        }
+        Collections.sort(lines);
+        return lines;
+    }
+
+    @Test
+    void snapshotOfOtherDataIsIgnored() throws Exception {
+        NetworkSnapshot.write(
+                file, 42, parser.getNetwork(), parser.getStations(), parser.getDataLine());
+        assertNull(NetworkSnapshot.read(file, 43));
+    }
+
+    @Test
+    void checksumDependsOnTheFiles() throws Exception {
+        File other = new File("src/test/java/hubertmap/model/parser/resources/map_data_test2.csv");
+        assertEquals(NetworkSnapshot.checksum(MAP_DATA), NetworkSnapshot.checksum(MAP_DATA));
+        assertNotEquals(NetworkSnapshot.checksum(MAP_DATA), NetworkSnapshot.checksum(other));
+    }
+}
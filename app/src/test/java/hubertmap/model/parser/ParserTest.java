@@ -150,7 +150,11 @@ class ParserTest {
         durationJourneys.add(new DurationJourney("4", "14"));
         durationJourneys.add(new DurationJourney("2", "58"));
         durationJourneys.add(new DurationJourney("3", "18"));
-        parser.getDataLine().put(new Line("8 variant 1", lourmelStation), durationJourneys);
+        Line line = new Line("8 variant 1", lourmelStation);
+        for (Station station : parser.getStations()) {
+            line.addStationsIfNotAlreadyExist(station);
+        }
+        parser.getDataLine().put(line, durationJourneys);
 
         try {
             parser.parseLines(
@@ -171,5 +175,9 @@ class ParserTest {
                         .contains(
                                 "[(minutes : 0, secondes : 41), (minutes : 0, secondes : 25),"
                                         + " (minutes : 0, secondes : 31)]"));
+
+        // the schedules are filled from the trips the network keeps for its searches
+        assertEquals(4, parser.getNetwork().getTrips().getPatterns().get(0).size());
+        assertEquals(4, lourmelStation.getSchedules().size(0));
     }
 }
@@ -0,0 +1,57 @@
+package hubertmap.model.parser;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TimetableReaderTest {
+
+    private File file;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        file = Files.createTempFile("timetables", ".csv").toFile();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    void rowsKeepFileOrderAcrossChunks() throws Exception {
+        // big enough to be cut in several chunks, with windows line breaks
+        StringBuilder csv = new StringBuilder();
+        int rows = 20000;
+        for (int i = 0; i < rows; i++) {
+            csv.append(i % 3 == 0 ? "7B;Louis Blanc;" : "8;Félix Faure;")
+                    .append(i % 1440 / 60)
+                    .append(':')
+                    .append(String.format("%02d", i % 60))
+                    .append(';')
+                    .append(i % 2 + 1)
+                    .append("\r\n");
+        }
+        Files.write(file.toPath(), csv.toString().getBytes(StandardCharsets.UTF_8));
+
+        List<TimetableReader.Chunk> chunks = TimetableReader.read(file);
+        assertTrue(chunks.size() > 1);
+        int i = 0;
+        for (TimetableReader.Chunk chunk : chunks) {
+            for (int row = 0; row < chunk.size(); row++, i++) {
+                TimetableReader.Route route = chunk.route(row);
+                String line = i % 3 == 0 ? "7B" : "8";
+                assertEquals(line + " variant " + (i % 2 + 1), route.getLineName());
+                assertEquals(i % 3 == 0 ? "Louis Blanc" : "Félix Faure", route.getTerminusName());
+                assertEquals(i % 1440 / 60 * 60 + i % 60, chunk.minutes(row));
+            }
+        }
+        assertEquals(rows, i);
+    }
+}
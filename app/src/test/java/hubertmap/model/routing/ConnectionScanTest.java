@@ -0,0 +1,49 @@
+package hubertmap.model.routing;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import hubertmap.model.Time;
+import hubertmap.model.transport.Network;
+import hubertmap.model.transport.TestNetwork;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** Runs on the network of {@link TestNetwork}. */
+class ConnectionScanTest {
+
+    private Network network;
+
+    @BeforeEach
+    public void setup() {
+        network = new TestNetwork().network;
+    }
+
+    @Test
+    void earliestArrivalWaitsForNextDeparture() {
+        Journey journey = network.earliestArrival("A", "C", new Time(8, 5, 0));
+
+        assertEquals("08:10:00", journey.getLegs().get(0).getDeparture().toString());
+        assertEquals("08:12:00", journey.getArrival().toString());
+        assertEquals(1, journey.getLegs().size());
+        assertEquals(0, journey.getTransfers());
+    }
+
+    @Test
+    void earliestArrivalMissesTooShortChanges() {
+        Journey journey = network.earliestArrival("A", "D", new Time(8, 0, 0));
+
+        // arrival at B at 08:01, the change ends at 08:03 so the 08:02 departure is missed
+        assertEquals(3, journey.getLegs().size());
+        assertEquals(Leg.CHANGE, journey.getLegs().get(1).getLineName());
+        assertEquals("08:04:00", journey.getLegs().get(2).getDeparture().toString());
+        assertEquals("08:09:00", journey.getArrival().toString());
+        assertEquals(1, journey.getTransfers());
+    }
+
+    @Test
+    void earliestArrivalUnreachable() {
+        assertNull(network.earliestArrival("A", "C", new Time(9, 0, 0)));
+        assertNull(network.earliestArrival("A", "Z", new Time(8, 0, 0)));
+        assertTrue(network.earliestArrival("B", "B", new Time(8, 0, 0)).getLegs().isEmpty());
+    }
+}
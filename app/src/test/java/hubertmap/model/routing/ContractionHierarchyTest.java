@@ -0,0 +1,105 @@
+package hubertmap.model.routing;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import hubertmap.model.DurationJourney;
+import hubertmap.model.transport.EdgeTransport;
+import hubertmap.model.transport.Network;
+import hubertmap.model.transport.Station;
+import hubertmap.model.transport.VertexTransport;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** A grid of 10 x 10 stations linked to their right and lower neighbours with random durations. */
+class ContractionHierarchyTest {
+
+    private static final int SIDE = 10;
+
+    private Network network;
+    private CsrGraph graph;
+
+    @BeforeEach
+    public void setup() {
+        Random random = new Random(11);
+        Station[][] grid = new Station[SIDE][SIDE];
+        for (int i = 0; i < SIDE; i++) {
+            for (int j = 0; j < SIDE; j++) {
+                grid[i][j] = new Station("S" + i + "-" + j, "1", (float) i, (float) j);
+            }
+        }
+        List<EdgeTransport> edges = new ArrayList<>();
+        for (int i = 0; i < SIDE; i++) {
+            for (int j = 0; j < SIDE; j++) {
+                if (i + 1 < SIDE) {
+                    edges.add(edge(grid[i][j], grid[i + 1][j], 30 + random.nextInt(300)));
+                }
+                if (j + 1 < SIDE) {
+                    edges.add(edge(grid[i][j], grid[i][j + 1], 30 + random.nextInt(300)));
+                }
+            }
+        }
+        network = new Network(edges);
+        graph = new CsrGraph(network.getGraph());
+    }
+
+    private static EdgeTransport edge(Station a, Station b, int seconds) {
+        return new EdgeTransport(a, b, new DurationJourney(seconds), 1.0f, "1");
+    }
+
+    private static float cost(List<PathLeg> path) {
+        float cost = 0;
+        for (PathLeg leg : path) {
+            cost += leg.getEdge().estimateWeight();
+        }
+        return cost;
+    }
+
+    private void assertSameCosts(ContractionHierarchy hierarchy) {
+        CsrDijkstra dijkstra = new CsrDijkstra(graph);
+        ChDijkstra search = new ChDijkstra(hierarchy);
+        for (int s = 0; s < graph.size(); s++) {
+            for (int t = 0; t < graph.size(); t++) {
+                VertexTransport from = graph.vertex(s);
+                VertexTransport to = graph.vertex(t);
+                List<PathLeg> path = search.shortestPath(from, to);
+                assertEquals(cost(dijkstra.shortestPath(from, to)), cost(path));
+
+                VertexTransport current = from;
+                for (PathLeg leg : path) {
+                    assertSame(current, leg.getFrom());
+                    current = leg.getTo();
+                }
+                assertSame(to, current);
+            }
+        }
+    }
+
+    @Test
+    void hierarchyGivesShortestPaths() {
+        assertSameCosts(ContractionHierarchy.build(graph));
+    }
+
+    @Test
+    void savedHierarchyIsReloaded() throws Exception {
+        File file = Files.createTempFile("hierarchy", ".ch").toFile();
+        try {
+            ContractionHierarchy.build(graph).write(file);
+            ContractionHierarchy hierarchy =
+                    ContractionHierarchy.read(file, new CsrGraph(network.getGraph()));
+            assertNotNull(hierarchy);
+            assertSameCosts(hierarchy);
+
+            Station a = new Station("A", "2", 20f, 20f);
+            Station b = new Station("B", "2", 21f, 20f);
+            network.addEdge(edge(a, b, 60));
+            assertNull(ContractionHierarchy.read(file, new CsrGraph(network.getGraph())));
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package hubertmap.model.routing;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import edu.uci.ics.jung.algorithms.shortestpath.DijkstraShortestPath;
+import hubertmap.model.transport.EdgeTransport;
+import hubertmap.model.transport.Network;
+import hubertmap.model.transport.TestNetwork;
+import hubertmap.model.transport.VertexTransport;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** Runs on the network of {@link TestNetwork}, the paths being those of the JUNG Dijkstra. */
+class CsrDijkstraTest {
+
+    private TestNetwork test;
+    private Network network;
+    private CsrGraph graph;
+
+    @BeforeEach
+    public void setup() {
+        test = new TestNetwork();
+        network = test.network;
+        graph = new CsrGraph(network.getGraph());
+    }
+
+    private static float cost(List<PathLeg> path) {
+        float cost = 0;
+        for (PathLeg leg : path) {
+            cost += leg.getEdge().estimateWeight();
+        }
+        return cost;
+    }
+
+    @Test
+    void everyEdgeGivesAnArcInEachDirection() {
+        assertEquals(network.getGraph().getVertexCount(), graph.size());
+        // the vertices are numbered by name, then by line
+        List<VertexTransport> order = new ArrayList<>();
+        for (int v = 0; v < graph.size(); v++) {
+            order.add(graph.vertex(v));
+        }
+        assertEquals(List.of(test.a, test.b1, test.b2, test.c, test.d), order);
+
+        int arcs = 0;
+        for (int v = 0; v < graph.size(); v++) {
+            arcs += graph.arcEnd(v) - graph.arcStart(v);
+        }
+        assertEquals(2 * network.getGraph().getEdgeCount(), arcs);
+        for (EdgeTransport edge : network.getGraph().getEdges()) {
+            int start = graph.idOf(edge.getStartingStation());
+            int end = graph.idOf(edge.getEndingStation());
+            assertTrue(hasArc(start, end, edge), edge.toString());
+            assertTrue(hasArc(end, start, edge), edge.toString());
+        }
+    }
+
+    /** Returns true if an arc of the edge goes from a vertex to another with the edge weight. */
+    private boolean hasArc(int from, int to, EdgeTransport edge) {
+        for (int arc = graph.arcStart(from); arc < graph.arcEnd(from); arc++) {
+            if (graph.arcTarget(arc) == to
+                    && graph.arcEdge(arc) == edge
+                    && graph.arcWeight(arc) == edge.estimateWeight()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    void pathsCostTheSameAsTheJungDijkstra() {
+        DijkstraShortestPath<VertexTransport, EdgeTransport> jung =
+                new DijkstraShortestPath<>(network.getGraph(), EdgeTransport::estimateWeight);
+        CsrDijkstra dijkstra = new CsrDijkstra(graph);
+        CsrDijkstra astar = new CsrDijkstra(graph, LowerBounds.build(graph, 2));
+
+        for (VertexTransport from : network.getGraph().getVertices()) {
+            for (VertexTransport to : network.getGraph().getVertices()) {
+                float expected = jung.getDistance(from, to).floatValue();
+                String message = from + " > " + to;
+                assertEquals(expected, cost(dijkstra.shortestPath(from, to)), 1e-3f, message);
+                assertEquals(expected, cost(astar.shortestPath(from, to)), 1e-3f, message);
+            }
+        }
+    }
+
+    @Test
+    void pathsUnpackToTheEdgesOfTheNetwork() {
+        CsrDijkstra search = new CsrDijkstra(graph);
+
+        List<PathLeg> forward = search.shortestPath(test.a, test.d);
+        assertEquals(3, forward.size());
+        assertSame(test.ab, forward.get(0).getEdge());
+        assertSame(test.change, forward.get(1).getEdge());
+        assertSame(test.bd, forward.get(2).getEdge());
+        assertSame(test.a, forward.get(0).getFrom());
+        assertSame(test.d, forward.get(2).getTo());
+
+        // the same edges travelled against their direction
+        List<PathLeg> backward = search.shortestPath(test.d, test.a);
+        assertEquals(3, backward.size());
+        assertSame(test.bd, backward.get(0).getEdge());
+        assertSame(test.d, backward.get(0).getFrom());
+        assertSame(test.b2, backward.get(0).getTo());
+        assertSame(test.ab, backward.get(2).getEdge());
+        assertSame(test.a, backward.get(2).getTo());
+
+        for (List<PathLeg> path : List.of(forward, backward)) {
+            for (int i = 1; i < path.size(); i++) {
+                assertSame(path.get(i - 1).getTo(), path.get(i).getFrom());
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package hubertmap.model.routing;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import hubertmap.model.Time;
+import hubertmap.model.transport.Network;
+import hubertmap.model.transport.Station;
+import hubertmap.model.transport.TestNetwork;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** Runs on the network of {@link TestNetwork}. */
+class IsochroneTest {
+
+    private Network network;
+    private TestNetwork test;
+    private Station a;
+
+    @BeforeEach
+    public void setup() {
+        test = new TestNetwork();
+        network = test.network;
+        a = test.a;
+    }
+
+    /** Returns the name and the arrival time of the stations reached, the earliest first. */
+    private List<String> arrivals(Isochrone isochrone) {
+        List<String> result = new ArrayList<>();
+        for (Map.Entry<Station, Time> entry : isochrone.getArrivals().entrySet()) {
+            result.add(entry.getKey().getName() + " " + entry.getValue());
+        }
+        return result;
+    }
+
+    @Test
+    void stationsAreReachedWithinTheBudget() {
+        assertEquals(
+                List.of("A 08:00:00", "B 08:01:00", "C 08:02:00", "D 08:09:00"),
+                arrivals(network.isochrone(a, new Time(8, 0, 0), 600)));
+        // the 08:04 train leaves B within 5 minutes but arrives at D after them
+        assertEquals(
+                List.of("A 08:00:00", "B 08:01:00", "C 08:02:00"),
+                arrivals(network.isochrone(a, new Time(8, 0, 0), 300)));
+    }
+
+    @Test
+    void stationsAreGivenOnceByTheirEarliestPlatform() {
+        Map<Station, Time> arrivals = network.isochrone(a, new Time(8, 0, 0), 600).getArrivals();
+
+        // B is reached on line 1 at 08:01, its platform of line 2 only by changing at 08:03
+        assertEquals(new Time(8, 1, 0).toString(), arrivals.get(test.b1).toString());
+        assertFalse(arrivals.containsKey(test.b2));
+    }
+
+    @Test
+    void pointsReachTheStationsOnFoot() {
+        // 0.001 degree from B takes 80 seconds on foot, the 08:01 train to C is missed
+        Isochrone isochrone =
+                network.isochrone(network.createPoint(0, 0.999), new Time(8, 0, 0), 600);
+
+        // both platforms of B are reached at 08:01:20, B is given once
+        assertEquals(List.of("B 08:01:20", "D 08:07:00"), arrivals(isochrone));
+    }
+
+    @Test
+    void rasterWalksFromTheStationsForTheRestOfTheBudget() {
+        Isochrone isochrone = network.isochrone(a, new Time(8, 0, 0), 600);
+
+        // the cells are 0.004 degree wide around A, 320 seconds on foot
+        assertArrayEquals(
+                new int[] {320, 0, 320}, isochrone.raster(-0.006f, -0.002f, 0.006f, 0.002f, 3, 1));
+        assertArrayEquals(
+                new int[] {Isochrone.UNREACHABLE, 0, Isochrone.UNREACHABLE},
+                network.isochrone(a, new Time(8, 0, 0), 300)
+                        .raster(-0.006f, -0.002f, 0.006f, 0.002f, 3, 1));
+    }
+}
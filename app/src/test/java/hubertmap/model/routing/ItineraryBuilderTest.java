@@ -0,0 +1,53 @@
+package hubertmap.model.routing;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import hubertmap.model.Time;
+import hubertmap.model.transport.Network;
+import hubertmap.model.transport.TestNetwork;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** Runs on the network of {@link TestNetwork}. */
+class ItineraryBuilderTest {
+
+    private Network network;
+    private List<PathLeg> path;
+
+    @BeforeEach
+    public void setup() {
+        TestNetwork test = new TestNetwork();
+        network = test.network;
+        path =
+                List.of(
+                        new PathLeg(test.ab, test.a, test.b1),
+                        new PathLeg(test.change, test.b1, test.b2),
+                        new PathLeg(test.bd, test.b2, test.d));
+    }
+
+    @Test
+    void legsAreTimedOneAfterTheOther() {
+        List<Leg> legs = network.getItinerary(path, new Time(7, 59, 0));
+
+        assertEquals(2, legs.size());
+        assertEquals("A", legs.get(0).getFrom().getName());
+        assertEquals("B", legs.get(0).getTo().getName());
+        assertEquals("1 variant 1", legs.get(0).getLine().getName());
+        assertEquals("08:00:00", legs.get(0).getDeparture().toString());
+        assertEquals("08:01:15", legs.get(0).getArrival().toString());
+        assertEquals("2", legs.get(1).getLineName());
+        assertEquals("08:02:00", legs.get(1).getDeparture().toString());
+        assertEquals("08:07:15", legs.get(1).getArrival().toString());
+    }
+
+    @Test
+    void legsAfterAMissedRideHaveNoTimes() {
+        List<Leg> legs = network.getItinerary(path, new Time(8, 5, 0));
+
+        assertEquals("08:10:00", legs.get(0).getDeparture().toString());
+        assertFalse(legs.get(1).isTimed());
+        assertNull(legs.get(1).getDeparture());
+        assertEquals("D", legs.get(1).getTo().getName());
+    }
+}
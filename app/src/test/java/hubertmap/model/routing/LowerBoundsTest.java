@@ -0,0 +1,82 @@
+package hubertmap.model.routing;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import hubertmap.model.DurationJourney;
+import hubertmap.model.transport.EdgeTransport;
+import hubertmap.model.transport.Network;
+import hubertmap.model.transport.Station;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** A grid of 12 x 12 stations a few hundred metres apart, with random durations. */
+class LowerBoundsTest {
+
+    private static final int SIDE = 12;
+
+    private CsrGraph graph;
+
+    @BeforeEach
+    public void setup() {
+        Random random = new Random(5);
+        Station[][] grid = new Station[SIDE][SIDE];
+        for (int i = 0; i < SIDE; i++) {
+            for (int j = 0; j < SIDE; j++) {
+                grid[i][j] =
+                        new Station("S" + i + "-" + j, "1", 2.3f + i * 0.005f, 48.8f + j * 0.005f);
+            }
+        }
+        List<EdgeTransport> edges = new ArrayList<>();
+        for (int i = 0; i < SIDE; i++) {
+            for (int j = 0; j < SIDE; j++) {
+                if (i + 1 < SIDE) edges.add(edge(grid[i][j], grid[i + 1][j], random));
+                if (j + 1 < SIDE) edges.add(edge(grid[i][j], grid[i][j + 1], random));
+            }
+        }
+        graph = new CsrGraph(new Network(edges).getGraph());
+    }
+
+    private static EdgeTransport edge(Station a, Station b, Random random) {
+        return new EdgeTransport(a, b, new DurationJourney(40 + random.nextInt(80)), 5.0f, "1");
+    }
+
+    private static float cost(List<PathLeg> path) {
+        float cost = 0;
+        for (PathLeg leg : path) {
+            cost += leg.getEdge().estimateWeight();
+        }
+        return cost;
+    }
+
+    @Test
+    void boundsNeverOverestimate() {
+        LowerBounds bounds = LowerBounds.build(graph, 4);
+        CsrDijkstra search = new CsrDijkstra(graph);
+        for (int s = 0; s < graph.size(); s++) {
+            float[] weights = search.weightsFrom(s);
+            for (int t = 0; t < graph.size(); t++) {
+                assertTrue(bounds.bound(s, t) <= weights[t]);
+            }
+        }
+    }
+
+    @Test
+    void guidedSearchFindsSamePathsWithFewerVertices() {
+        CsrDijkstra plain = new CsrDijkstra(graph);
+        CsrDijkstra guided = new CsrDijkstra(graph, LowerBounds.build(graph, 4));
+        long plainSettled = 0;
+        long guidedSettled = 0;
+        for (int s = 0; s < graph.size(); s += 7) {
+            for (int t = 0; t < graph.size(); t += 3) {
+                float expected = cost(plain.shortestPath(graph.vertex(s), graph.vertex(t)));
+                plainSettled += plain.getSettledCount();
+                assertEquals(expected, cost(guided.shortestPath(graph.vertex(s), graph.vertex(t))));
+                guidedSettled += guided.getSettledCount();
+            }
+        }
+        assertTrue(guidedSettled < plainSettled);
+    }
+}
@@ -0,0 +1,122 @@
+package hubertmap.model.routing;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import hubertmap.model.DurationJourney;
+import hubertmap.model.Time;
+import hubertmap.model.transport.EdgeTransport;
+import hubertmap.model.transport.Line;
+import hubertmap.model.transport.Network;
+import hubertmap.model.transport.Station;
+import hubertmap.model.transport.TestNetwork;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** Runs on the network of {@link TestNetwork}, the results being those of the connection scan. */
+class RaptorTest {
+
+    private TestNetwork test;
+    private Network network;
+
+    @BeforeEach
+    public void setup() {
+        test = new TestNetwork();
+        network = test.network;
+    }
+
+    /**
+     * Returns the test network with a slow line 3 going from A to D without change, leaving A at
+     * 08:00 and arriving at D at 08:20.
+     */
+    private Network withSlowLine() {
+        Station a3 = new Station("A", "3 variant 1", 0.0f, 0.0f);
+        Station d3 = new Station("D", "3 variant 1", 1.0f, 1.0f);
+        Network slow =
+                test.copy(
+                        edges -> {
+                            List<EdgeTransport> all = new ArrayList<>(edges);
+                            all.add(
+                                    new EdgeTransport(
+                                            a3,
+                                            d3,
+                                            new DurationJourney(1200),
+                                            1.0f,
+                                            "3 variant 1"));
+                            return new Network(all);
+                        });
+        Map<Line, ArrayList<DurationJourney>> dataLine = new HashMap<>(slow.getDataLine());
+        ArrayList<DurationJourney> durations = new ArrayList<>();
+        durations.add(new DurationJourney(1200));
+        dataLine.put(TestNetwork.createLine("3 variant 1", List.of(a3, d3), 8 * 60), durations);
+        slow.setDataLine(dataLine);
+        return slow;
+    }
+
+    @Test
+    void fastestJourneyIsTheEarliestArrival() {
+        String[][] trips = {{"A", "B"}, {"A", "C"}, {"A", "D"}, {"B", "D"}, {"B", "C"}};
+        for (String[] trip : trips) {
+            for (Time departure :
+                    List.of(new Time(7, 55, 0), new Time(8, 0, 0), new Time(8, 3, 0))) {
+                List<Journey> journeys = network.paretoJourneys(trip[0], trip[1], departure, 4);
+                Journey earliest = network.earliestArrival(trip[0], trip[1], departure);
+                String message = trip[0] + " > " + trip[1] + " at " + departure;
+                if (earliest == null) {
+                    // no train leaves A for D after 08:03
+                    assertTrue(journeys.isEmpty(), message);
+                    continue;
+                }
+
+                Journey fastest = journeys.get(journeys.size() - 1);
+                assertEquals(
+                        earliest.getArrival().toString(), fastest.getArrival().toString(), message);
+                assertEquals(earliest.getTransfers(), fastest.getTransfers(), message);
+            }
+        }
+    }
+
+    @Test
+    void paretoJourneysTradeChangesForTime() {
+        List<Journey> journeys = withSlowLine().paretoJourneys("A", "D", new Time(8, 0, 0), 4);
+
+        assertEquals(2, journeys.size());
+        assertEquals(0, journeys.get(0).getTransfers());
+        assertEquals("08:20:00", journeys.get(0).getArrival().toString());
+        // the change at B takes 2 minutes, the 08:02 train is missed
+        assertEquals(1, journeys.get(1).getTransfers());
+        assertEquals("08:09:00", journeys.get(1).getArrival().toString());
+        assertEquals("2", journeys.get(1).getLegs().get(2).getLineName());
+    }
+
+    @Test
+    void paretoJourneysBoundedByRounds() {
+        List<Journey> journeys = withSlowLine().paretoJourneys("A", "D", new Time(8, 0, 0), 1);
+
+        assertEquals(1, journeys.size());
+        assertEquals("08:20:00", journeys.get(0).getArrival().toString());
+        assertTrue(network.paretoJourneys("A", "D", new Time(8, 0, 0), 1).isEmpty());
+    }
+
+    @Test
+    void paretoJourneysReuseTheirArrays() {
+        // a query with fewer rounds after a longer one doesn't see its results
+        assertEquals(1, network.paretoJourneys("A", "D", new Time(8, 0, 0), 4).size());
+        assertTrue(network.paretoJourneys("A", "D", new Time(8, 0, 0), 1).isEmpty());
+        assertEquals(
+                "08:09:00",
+                network.paretoJourneys("A", "D", new Time(8, 0, 0), 2)
+                        .get(0)
+                        .getArrival()
+                        .toString());
+    }
+
+    @Test
+    void paretoJourneysUnknownStation() {
+        assertNull(network.paretoJourneys("A", "Z", new Time(8, 0, 0), 4));
+        assertTrue(network.paretoJourneys("A", "D", new Time(9, 0, 0), 4).isEmpty());
+    }
+}
@@ -0,0 +1,66 @@
+package hubertmap.model.routing;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import hubertmap.model.Time;
+import hubertmap.model.transport.Network;
+import hubertmap.model.transport.Station;
+import hubertmap.model.transport.TestNetwork;
+import hubertmap.model.transport.VertexTransport;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** Runs on the network of {@link TestNetwork}. */
+class TravelTimeMatrixTest {
+
+    private Network network;
+    private Station a;
+    private Station b1;
+    private Station c;
+    private Station d;
+
+    @BeforeEach
+    public void setup() {
+        TestNetwork test = new TestNetwork();
+        network = test.network;
+        a = test.a;
+        b1 = test.b1;
+        c = test.c;
+        d = test.d;
+    }
+
+    @Test
+    void estimatedTimesUseEveryPlatformOfTheStations() {
+        // every edge weighs its duration plus 20 seconds
+        int[] times = network.travelTimes(List.of(a, b1, d), List.of(a, c, d), null);
+
+        assertArrayEquals(new int[] {0, 160, 540, 80, 80, 320, 540, 540, 0}, times);
+    }
+
+    @Test
+    void timesFollowTheTimetables() {
+        int[] times = network.travelTimes(List.of(a, b1, d), List.of(a, c, d), new Time(8, 0, 0));
+
+        // the change at B misses the 08:02 departure of line 2, the lines only go one way
+        int unreachable = TravelTimeMatrix.UNREACHABLE;
+        assertArrayEquals(
+                new int[] {0, 120, 540, unreachable, 120, 420, unreachable, unreachable, 0}, times);
+        assertEquals(
+                "08:09:00",
+                network.earliestArrival("A", "D", new Time(8, 0, 0)).getArrival().toString());
+    }
+
+    @Test
+    void pointsAreLinkedOnFoot() {
+        VertexTransport atA = network.createPoint(0, 0);
+        VertexTransport atC = network.createPoint(0, 2);
+
+        // the points are on A and C, the coordinates being in degrees they are far apart on foot
+        assertArrayEquals(
+                new int[] {120, 60},
+                network.travelTimes(List.of(atA), List.of(atC, b1), new Time(8, 0, 0)));
+        // walking legs of no length are estimated at 20 seconds like the other edges
+        assertArrayEquals(new int[] {200}, network.travelTimes(List.of(atA), List.of(atC), null));
+    }
+}
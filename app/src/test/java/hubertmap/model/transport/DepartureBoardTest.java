@@ -0,0 +1,70 @@
+package hubertmap.model.transport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import hubertmap.model.DurationJourney;
+import hubertmap.model.Time;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** Two variants of line 1 leave A, one towards B and one towards C. */
+class DepartureBoardTest {
+
+    private Network network;
+    private Station a;
+
+    private Line createLine(String name, Station from, Station to, int... minutes) {
+        Line line = new Line(name, from);
+        line.addStationsIfNotAlreadyExist(from);
+        line.addStationsIfNotAlreadyExist(to);
+        line.setTerminalStationArrival(to);
+        for (int minute : minutes) {
+            from.addSchedule(line, minute * 60);
+        }
+        return line;
+    }
+
+    @BeforeEach
+    public void setup() {
+        a = new Station("A", "1 variant 1", 0.0f, 0.0f);
+        a.addLine("1 variant 2");
+        Station b = new Station("B", "1 variant 1", 0.0f, 1.0f);
+        Station c = new Station("C", "1 variant 2", 1.0f, 0.0f);
+        network = new Network();
+        Map<Line, ArrayList<DurationJourney>> dataLine = new HashMap<>();
+        dataLine.put(createLine("1 variant 1", a, b, 600, 610, 620), new ArrayList<>());
+        dataLine.put(createLine("1 variant 2", a, c, 605, 610, 1430), new ArrayList<>());
+        network.setDataLine(dataLine);
+    }
+
+    private static List<String> times(List<Departure> departures) {
+        List<String> times = new ArrayList<>();
+        for (Departure departure : departures) {
+            times.add(departure.getTime() + " " + departure.getTerminus().getName());
+        }
+        return times;
+    }
+
+    @Test
+    void departuresOfAllLinesAreMergedByTime() {
+        List<Departure> departures = network.departures(a, new Time(10, 0, 0), 4);
+
+        assertEquals(
+                List.of("10:05:00 C", "10:10:00 B", "10:10:00 C", "10:20:00 B"), times(departures));
+    }
+
+    @Test
+    void departuresGoOnWithTheNextDay() {
+        assertEquals(
+                List.of("23:50:00 C", "10:00:00 B", "10:05:00 C"),
+                times(network.departures(a, new Time(23, 0, 0), 3)));
+        // a full day later, the 10:10 train comes again
+        assertEquals(
+                List.of("10:20:00 B", "10:00:00 B", "10:10:00 B"),
+                times(network.departures(a, new Time(10, 10, 0), 5, "B")));
+    }
+}
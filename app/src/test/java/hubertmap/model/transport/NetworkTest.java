@@ -3,8 +3,12 @@ package hubertmap.model.transport;
 import static org.junit.jupiter.api.Assertions.*;
 
 import hubertmap.model.DurationJourney;
+import hubertmap.model.routing.PathLeg;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.junit.jupiter.api.Test;
 
 class NetworkTest {
@@ -58,4 +62,133 @@ class NetworkTest {
         List<EdgeTransport> path = g.shortestPath(a, a);
         assertTrue(path.isEmpty());
     }
+
+    @Test
+    void routeDoesNotModifyEdgesTest() {
+        Station a = new Station("A", "", 0.0f, 0.0f);
+        Station b = new Station("B", "", 0.0f, 0.0f);
+        Station c = new Station("C", "", 0.0f, 0.0f);
+        EdgeTransport ab = new EdgeTransport(a, b, new DurationJourney(10), 10.0f, "");
+        EdgeTransport bc = new EdgeTransport(b, c, new DurationJourney(10), 10.0f, "");
+        ArrayList<EdgeTransport> edges = new ArrayList<>();
+        edges.add(ab);
+        edges.add(bc);
+        Network g = new Network(edges);
+
+        List<PathLeg> path = g.route(c, a);
+
+        assertEquals(2, path.size());
+        assertSame(c, path.get(0).getFrom());
+        assertSame(b, path.get(0).getTo());
+        assertSame(a, path.get(1).getTo());
+        assertSame(a, ab.getStartingStation());
+        assertSame(b, bc.getStartingStation());
+    }
+
+    @Test
+    void concurrentRoutesTest() throws Exception {
+        ArrayList<Station> line = new ArrayList<>();
+        ArrayList<EdgeTransport> edges = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            line.add(new Station("S" + i, "", 0.0f, 0.0f));
+            if (i > 0) {
+                edges.add(
+                        new EdgeTransport(
+                                line.get(i - 1), line.get(i), new DurationJourney(10), 1.0f, ""));
+            }
+        }
+        Network g = new Network(edges);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            boolean forward = i % 2 == 0;
+            results.add(
+                    executor.submit(
+                            () -> {
+                                Station from = line.get(forward ? 0 : 49);
+                                Station to = line.get(forward ? 49 : 0);
+                                List<PathLeg> path = g.route(from, to);
+                                VertexTransport current = from;
+                                for (PathLeg leg : path) {
+                                    if (leg.getFrom() != current) return false;
+                                    current = leg.getTo();
+                                }
+                                return path.size() == 49 && current == to;
+                            }));
+        }
+        for (Future<Boolean> result : results) {
+            assertTrue(result.get());
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    void pointsDoNotModifyGraphTest() {
+        ArrayList<Station> stations = new ArrayList<>();
+        ArrayList<EdgeTransport> edges = new ArrayList<>();
+        stations.add(new Station("S0", "1", 48.85f, 2.35f));
+        for (int i = 1; i < 20; i++) {
+            stations.add(new Station("S" + i, "1", 48.85f + i * 0.01f, 2.35f));
+            edges.add(
+                    new EdgeTransport(
+                            stations.get(i - 1),
+                            stations.get(i),
+                            new DurationJourney(60),
+                            10.0f,
+                            "1"));
+        }
+        Network network = new Network(edges);
+
+        Point start = network.createPoint(48.85f, 2.351f);
+        Point end = network.createPoint(49.03f, 2.351f);
+        List<PathLeg> path = network.route(start, end);
+
+        assertEquals(20, network.getGraph().getVertexCount());
+        assertEquals(19, network.getGraph().getEdgeCount());
+        assertSame(start, path.get(0).getFrom());
+        assertSame(stations.get(0), path.get(0).getTo());
+        assertSame(stations.get(18), path.get(path.size() - 1).getFrom());
+        assertSame(end, path.get(path.size() - 1).getTo());
+        assertEquals(20, path.size());
+
+        List<PathLeg> toStation = network.route(start, stations.get(3));
+        assertSame(start, toStation.get(0).getFrom());
+        assertSame(stations.get(3), toStation.get(toStation.size() - 1).getTo());
+    }
+
+    @Test
+    void closePointsAreLinkedOnFootTest() {
+        ArrayList<EdgeTransport> edges = new ArrayList<>();
+        Station a = new Station("A", "1", 48.85f, 2.35f);
+        Station b = new Station("B", "1", 48.95f, 2.35f);
+        edges.add(new EdgeTransport(a, b, new DurationJourney(600), 100.0f, "1"));
+        Network network = new Network(edges);
+
+        Point start = network.createPoint(48.90f, 2.35f);
+        Point end = network.createPoint(48.901f, 2.35f);
+        List<PathLeg> path = network.route(start, end);
+
+        assertEquals(1, path.size());
+        assertSame(start, path.get(0).getFrom());
+        assertSame(end, path.get(0).getTo());
+        assertEquals(2, network.getGraph().getVertexCount());
+    }
+
+    @Test
+    void verticesAreFoundByTheirExactNameTest() {
+        ArrayList<EdgeTransport> edges = new ArrayList<>();
+        Station lourmel = new Station("Lourmel", "8", 48.84f, 2.28f);
+        Station boucicaut = new Station("Boucicaut", "8", 48.84f, 2.29f);
+        edges.add(new EdgeTransport(lourmel, boucicaut, new DurationJourney(60), 6.0f, "8"));
+        Network network = new Network(edges);
+
+        assertSame(lourmel, network.findVertex("LOURMEL"));
+        assertSame(boucicaut, network.findVertex("boucicaut"));
+        // a typing mistake isn't routed to the closest name
+        assertNull(network.findVertex("Boucicot"));
+        assertNull(network.findVertex("lour"));
+        assertNull(network.findVertex("Nation"));
+        assertTrue(network.findVertex("48.84, 2.28") instanceof Point);
+    }
 }
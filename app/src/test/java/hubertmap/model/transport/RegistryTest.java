@@ -0,0 +1,61 @@
+package hubertmap.model.transport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class RegistryTest {
+
+    private Registry registry;
+
+    @BeforeEach
+    public void setup() {
+        registry = new Registry();
+    }
+
+    @Test
+    void stationsGetDenseIdsAndAreFoundByLine() {
+        Station bastille1 = new Station("Bastille", "1 variant 1", 2.369f, 48.853f);
+        Station bastille5 = new Station("Bastille", "5 variant 2", 2.369f, 48.853f);
+        Station nation = new Station("Nation", "1 variant 1", 2.395f, 48.848f);
+
+        assertEquals(0, registry.add(bastille1));
+        assertEquals(1, registry.add(bastille5));
+        assertEquals(2, registry.add(nation));
+        assertEquals(1, registry.add(bastille5));
+
+        assertEquals(3, registry.getStationCount());
+        assertSame(nation, registry.getStation(nation.getId()));
+        assertSame(bastille5, registry.getStation("Bastille", "5"));
+        assertNull(registry.getStation("Nation", "5"));
+        assertEquals(List.of(bastille1, bastille5), registry.getStations("Bastille"));
+        assertTrue(registry.getStations("Lourmel").isEmpty());
+    }
+
+    @Test
+    void stationsKeepTheIdOfTheirRegistry() {
+        Station lourmel = new Station("Lourmel", "8 variant 1", 2.282f, 48.838f);
+        registry.add(new Station("Boucicaut", "8 variant 1", 2.287f, 48.841f));
+        assertEquals(1, registry.add(lourmel));
+
+        Registry other = new Registry();
+        assertThrows(IllegalArgumentException.class, () -> other.add(lourmel));
+        assertEquals(1, lourmel.getId());
+        assertEquals(0, other.getStationCount());
+    }
+
+    @Test
+    void namesAndLinesAreShared() {
+        String name = new String("Lourmel");
+        assertSame(name, registry.intern(name));
+        assertSame(name, registry.intern(new String("Lourmel")));
+
+        Line line = new Line("8 variant 1", new Station(name, "8 variant 1", null, null));
+        registry.add(line);
+        registry.add(new Line("8 variant 1", null));
+        assertSame(line, registry.getLine("8 variant 1"));
+        assertNull(registry.getLine("8 variant 2"));
+    }
+}
@@ -0,0 +1,36 @@
+package hubertmap.model.transport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class ScheduleStoreTest {
+
+    @Test
+    void timesAreSortedWithoutDuplicates() {
+        ScheduleStore schedules = new ScheduleStore();
+        schedules.addLine("8 variant 1");
+        schedules.add("8 variant 2", 600);
+        schedules.add("8 variant 1", 900);
+        schedules.add("8 variant 1", 300);
+        schedules.add("8 variant 1", 900);
+
+        assertEquals(0, schedules.idOf("8 variant 1"));
+        assertEquals(1, schedules.idOf("8 variant 2"));
+        assertEquals(-1, schedules.idOf("9 variant 1"));
+        assertArrayEquals(new int[] {300, 900}, schedules.times(0));
+        assertArrayEquals(new int[] {600}, schedules.times(1));
+    }
+
+    @Test
+    void nextDepartureIsStrictlyAfter() {
+        ScheduleStore schedules = new ScheduleStore();
+        for (int time = 3600; time < 7200; time += 600) {
+            schedules.add("1 variant 1", time);
+        }
+        assertEquals(3600, schedules.nextDeparture(0, 0));
+        assertEquals(4200, schedules.nextDeparture(0, 3600));
+        assertEquals(4200, schedules.nextDeparture(0, 3601));
+        assertEquals(-1, schedules.nextDeparture(0, 6600));
+    }
+}
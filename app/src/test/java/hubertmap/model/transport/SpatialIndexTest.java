@@ -0,0 +1,68 @@
+package hubertmap.model.transport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+class SpatialIndexTest {
+
+    private final Random random = new Random(7);
+
+    private List<Station> randomStations(int count) {
+        List<Station> stations = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            float x = 2.2f + random.nextFloat() * 0.3f;
+            float y = 48.8f + random.nextFloat() * 0.1f;
+            stations.add(new Station("S" + i, "1", x, y));
+        }
+        return stations;
+    }
+
+    private List<Station> byDistance(List<Station> stations, float x, float y) {
+        return stations.stream()
+                .sorted(
+                        Comparator.comparingDouble(
+                                s -> SpatialIndex.distance(x, y, s.getX(), s.getY())))
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    void nearestMatchesBruteForce() {
+        List<Station> stations = randomStations(500);
+        SpatialIndex index = new SpatialIndex(stations);
+        for (int q = 0; q < 200; q++) {
+            // some queries fall outside the indexed area
+            float x = 2.1f + random.nextFloat() * 0.5f;
+            float y = 48.7f + random.nextFloat() * 0.3f;
+            assertEquals(byDistance(stations, x, y).subList(0, 5), index.nearest(x, y, 5));
+        }
+        assertEquals(500, index.nearest(0, 0, 1000).size());
+    }
+
+    @Test
+    void withinMatchesBruteForce() {
+        List<Station> stations = randomStations(500);
+        SpatialIndex index = new SpatialIndex(stations);
+        for (int q = 0; q < 200; q++) {
+            float x = 2.2f + random.nextFloat() * 0.3f;
+            float y = 48.8f + random.nextFloat() * 0.1f;
+            List<Station> expected =
+                    byDistance(stations, x, y).stream()
+                            .filter(s -> SpatialIndex.distance(x, y, s.getX(), s.getY()) <= 10)
+                            .collect(Collectors.toList());
+            assertEquals(expected, index.within(x, y, 10));
+        }
+    }
+
+    @Test
+    void emptyIndexFindsNothing() {
+        SpatialIndex index = new SpatialIndex(new ArrayList<Station>());
+        assertTrue(index.nearest(2.3f, 48.8f, 3).isEmpty());
+        assertTrue(index.within(2.3f, 48.8f, 10).isEmpty());
+    }
+}
@@ -0,0 +1,65 @@
+package hubertmap.model.transport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class StationSearchIndexTest {
+
+    private StationSearchIndex index;
+
+    @BeforeEach
+    public void setup() {
+        index =
+                new StationSearchIndex(
+                        List.of(
+                                "châtelet",
+                                "châtelet les halles",
+                                "gare de lyon",
+                                "saint-lazare",
+                                "saint-michel",
+                                "lourmel",
+                                "louvre - rivoli",
+                                "lourmel"));
+    }
+
+    @Test
+    void namesAreNormalized() {
+        assertEquals("chatelet les halles", StationSearchIndex.normalize("Châtelet-Les  Halles"));
+        assertEquals("louvre rivoli", StationSearchIndex.normalize(" Louvre - Rivoli "));
+        assertEquals(7, index.size());
+        assertEquals("saint-lazare", index.find("Saint Lazare"));
+        assertEquals("châtelet", index.find("chatelet"));
+        assertNull(index.find("chate"));
+    }
+
+    @Test
+    void prefixesAreRankedAndMatchWords() {
+        assertEquals(List.of("châtelet", "châtelet les halles"), index.complete("chat", 5));
+        assertEquals(List.of("saint-lazare"), index.complete("saint l", 5));
+        assertEquals(List.of("lourmel", "louvre - rivoli"), index.complete("lou", 5));
+        // names starting with the prefix come before the names with a word starting with it
+        assertEquals(
+                List.of(
+                        "lourmel",
+                        "louvre - rivoli",
+                        "gare de lyon",
+                        "saint-lazare",
+                        "châtelet les halles"),
+                index.complete("l", 5));
+        assertEquals(List.of("lourmel"), index.complete("l", 1));
+        assertTrue(index.complete("nation", 5).isEmpty());
+        assertTrue(index.complete(" - ", 5).isEmpty());
+    }
+
+    @Test
+    void misspelledNamesAreFound() {
+        assertEquals("saint-michel", index.search("sain michl", 1).get(0));
+        assertEquals("gare de lyon", index.search("gare de lion", 1).get(0));
+        // names sharing too few trigrams aren't suggested
+        assertEquals(List.of("lourmel"), index.search("lour", 2));
+        assertTrue(index.search("xyz", 5).isEmpty());
+    }
+}
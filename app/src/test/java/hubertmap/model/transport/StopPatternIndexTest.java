@@ -0,0 +1,40 @@
+package hubertmap.model.transport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import hubertmap.model.DurationJourney;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class StopPatternIndexTest {
+
+    @Test
+    void positionsAndRideTimesFollowTheLine() {
+        Station a = new Station("A", "1 variant 1", 0.0f, 0.0f);
+        Station b = new Station("B", "1 variant 1", 0.0f, 1.0f);
+        Station c = new Station("C", "1 variant 1", 0.0f, 2.0f);
+        Station d = new Station("D", "1 variant 1", 0.0f, 3.0f);
+        Line line = new Line("1 variant 1", a);
+        for (Station station : List.of(a, b, c, d)) {
+            line.addStationsIfNotAlreadyExist(station);
+        }
+        // the duration to D is unknown, D is not part of the pattern
+        ArrayList<DurationJourney> durations = new ArrayList<>();
+        durations.add(new DurationJourney(60));
+        durations.add(new DurationJourney(90));
+
+        StopPatternIndex.StopPattern pattern =
+                new StopPatternIndex(Map.of(line, durations)).get("1 variant 1");
+
+        assertEquals(3, pattern.size());
+        assertEquals(2, pattern.position(c));
+        assertEquals(-1, pattern.position(d));
+        assertEquals(150, pattern.offset(2));
+        assertTrue(pattern.isBefore(a, c));
+        assertFalse(pattern.isBefore(c, b));
+        assertEquals(90, pattern.rideSeconds(b, c));
+        assertEquals(-1, pattern.rideSeconds(c, a));
+    }
+}
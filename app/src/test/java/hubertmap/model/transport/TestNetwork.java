@@ -0,0 +1,89 @@
+package hubertmap.model.transport;
+
+import hubertmap.model.DurationJourney;
+import hubertmap.model.Time;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The network shared by the routing tests. Line 1 goes from A to C through B and leaves A at 08:00
+ * and 08:10, line 2 goes from B to D and leaves B at 08:02 and 08:04. A ride between two stations
+ * lasts 1 minute on line 1 and 5 minutes on line 2, changing at B between the two lines takes 2
+ * minutes.
+ */
+public final class TestNetwork {
+
+    public final Station a = new Station("A", "1 variant 1", 0.0f, 0.0f);
+    public final Station b1 = new Station("B", "1 variant 1", 0.0f, 1.0f);
+    public final Station c = new Station("C", "1 variant 1", 0.0f, 2.0f);
+    public final Station b2 = new Station("B", "2 variant 1", 0.0f, 1.0f);
+    public final Station d = new Station("D", "2 variant 1", 1.0f, 1.0f);
+
+    public final EdgeTransport ab =
+            new EdgeTransport(a, b1, new DurationJourney(60), 1.0f, "1 variant 1");
+    public final EdgeTransport bc =
+            new EdgeTransport(b1, c, new DurationJourney(60), 1.0f, "1 variant 1");
+    public final EdgeTransport change =
+            new EdgeTransport(b1, b2, new DurationJourney(120), 5, "CHANGE");
+    public final EdgeTransport bd =
+            new EdgeTransport(b2, d, new DurationJourney(300), 1.0f, "2 variant 1");
+
+    public final Network network = new Network(List.of(ab, bc, change, bd));
+
+    /** Builds the lines of the network and registers its stations. */
+    public TestNetwork() {
+        Map<Line, ArrayList<DurationJourney>> dataLine = new HashMap<>();
+        ArrayList<DurationJourney> line1 = new ArrayList<>();
+        line1.add(new DurationJourney(60));
+        line1.add(new DurationJourney(60));
+        dataLine.put(createLine("1 variant 1", List.of(a, b1, c), 8 * 60, 8 * 60 + 10), line1);
+        ArrayList<DurationJourney> line2 = new ArrayList<>();
+        line2.add(new DurationJourney(300));
+        dataLine.put(createLine("2 variant 1", List.of(b2, d), 8 * 60 + 2, 8 * 60 + 4), line2);
+        network.setDataLine(dataLine);
+        for (Station station : List.of(a, b1, c, b2, d)) {
+            network.getRegistry().add(station);
+        }
+    }
+
+    /**
+     * Returns a copy of the network built by the given constructor, for the tests that override
+     * some methods of the network in a subclass.
+     *
+     * @param constructor the constructor of the network from its edges
+     * @return the network, with the lines and registry of this one
+     */
+    public Network copy(Function<List<EdgeTransport>, Network> constructor) {
+        Network copy = constructor.apply(List.of(ab, bc, change, bd));
+        copy.setDataLine(network.getDataLine());
+        copy.setRegistry(network.getRegistry());
+        return copy;
+    }
+
+    /**
+     * Returns a line through the given stations, leaving its first station at the given times,
+     * which are also added to the schedules of its stations.
+     *
+     * @param name the name of the line variant
+     * @param stations the stations of the line, in order
+     * @param startMinutes the departure times from the first station in minutes since midnight
+     * @return the line
+     */
+    public static Line createLine(String name, List<Station> stations, int... startMinutes) {
+        Line line = new Line(name, stations.get(0));
+        for (Station station : stations) {
+            line.addStationsIfNotAlreadyExist(station);
+        }
+        line.setTerminalStationArrival(stations.get(stations.size() - 1));
+        for (int minutes : startMinutes) {
+            line.addStart(new Time(minutes * 60));
+            for (Station station : stations) {
+                station.addSchedule(line, minutes * 60);
+            }
+        }
+        return line;
+    }
+}
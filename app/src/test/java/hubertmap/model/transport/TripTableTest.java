@@ -0,0 +1,73 @@
+package hubertmap.model.transport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import hubertmap.model.DurationJourney;
+import hubertmap.model.Time;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TripTableTest {
+
+    private TripTable table;
+
+    private Line createLine(String name, List<Station> stations, Time... starts) {
+        Line line = new Line(name, stations.get(0));
+        for (Station station : stations) {
+            line.addStationsIfNotAlreadyExist(station);
+        }
+        for (Time start : starts) {
+            line.addStart(start);
+        }
+        return line;
+    }
+
+    @BeforeEach
+    public void setup() {
+        Station a = new Station("A", "1 variant 1", 0.0f, 0.0f);
+        Station b = new Station("B", "1 variant 1", 0.0f, 1.0f);
+        Station c = new Station("C", "1 variant 1", 0.0f, 2.0f);
+        ArrayList<DurationJourney> durations = new ArrayList<>();
+        durations.add(new DurationJourney(60));
+        durations.add(new DurationJourney(600));
+
+        Map<Line, ArrayList<DurationJourney>> dataLine = new HashMap<>();
+        dataLine.put(
+                createLine(
+                        "1 variant 1",
+                        List.of(a, b, c),
+                        new Time(23, 55, 0),
+                        new Time(8, 0, 0),
+                        new Time(8, 10, 0)),
+                durations);
+        dataLine.put(createLine("2 variant 1", List.of(b, c)), new ArrayList<>());
+        table = new TripTable(new StopPatternIndex(dataLine));
+    }
+
+    @Test
+    void tripsAreSortedAndKeepCountingPastMidnight() {
+        TripTable.PatternTrips trips = table.get("1 variant 1");
+
+        assertEquals(3, table.getTripCount());
+        assertEquals(3, trips.size());
+        assertEquals(8 * 3600 + 60, trips.arrival(0, 1));
+        assertEquals(8 * 3600 + 600 + 660, trips.departure(1, 2));
+        assertEquals(24 * 3600 + 6 * 60, trips.arrival(2, 2));
+        assertSame(trips, table.ofTrip(trips.tripId(2)));
+        assertEquals(0, table.get("2 variant 1").size());
+    }
+
+    @Test
+    void nextTripLeavesAtOrAfterTheTime() {
+        TripTable.PatternTrips trips = table.get("1 variant 1");
+
+        assertEquals(0, trips.nextTrip(1, 8 * 3600 + 60));
+        assertEquals(1, trips.nextTrip(1, 8 * 3600 + 61));
+        assertEquals(2, trips.nextTrip(0, 9 * 3600));
+        assertEquals(-1, trips.nextTrip(0, 23 * 3600 + 56 * 60));
+    }
+}
@@ -0,0 +1,118 @@
+package hubertmap.server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import hubertmap.model.transport.Network;
+import hubertmap.model.transport.TestNetwork;
+import hubertmap.model.transport.VertexTransport;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** Runs on the network of {@link TestNetwork}. */
+class BatchRouterTest {
+
+    private TestNetwork test;
+    private Network network;
+
+    @BeforeEach
+    public void setup() {
+        test = new TestNetwork();
+        network = test.network;
+    }
+
+    private String run(BatchRouter.Format format, int threads, String input) throws IOException {
+        StringWriter output = new StringWriter();
+        BatchRouter.Report report =
+                new BatchRouter(network, threads, format).run(new StringReader(input), output);
+        return output + "" + report.getTrips() + " " + report.getFailures();
+    }
+
+    @Test
+    void tripsAreWrittenAsCsvAndFailuresDontStopTheRun() throws IOException {
+        assertEquals(
+                "origin;destination;departure;arrival;status;legs\n"
+                        + "A;D;08:00:00;08:07:15;ok;1 A > B | 2 B > D\n"
+                        + "A;Z;;;station inconnue;\n"
+                        + "A;D;;;ligne invalide;\n"
+                        + "A;D;;;horaire invalide;\n"
+                        + "A;A;;;ok;\n"
+                        + "5 3",
+                run(
+                        BatchRouter.Format.CSV,
+                        1,
+                        "# origin;destination;time\n"
+                                + "A;D;07:59\n"
+                                + "A;Z;07:59\n"
+                                + "A;D;07:59;08:00\n"
+                                + "\n"
+                                + "A;D;8h\n"
+                                + "A;A;07:59\n"));
+    }
+
+    @Test
+    void tripsWithoutTimesAreFailures() throws IOException {
+        // the last train leaves B at 08:04, the ride to D can't be caught at 09:00
+        assertEquals(
+                "origin;destination;departure;arrival;status;legs\n"
+                        + "A;D;;;sans horaire;1 A > B | 2 B > D\n"
+                        + "1 1",
+                run(BatchRouter.Format.CSV, 1, "A;D;09:00\n"));
+    }
+
+    @Test
+    void unexpectedErrorsAreWrittenWithTheirTrip() throws IOException {
+        network =
+                test.copy(
+                        edges ->
+                                new Network(edges) {
+                                    @Override
+                                    public VertexTransport findVertex(String text) {
+                                        if (text.equals("bug")) {
+                                            throw new IllegalStateException("bug");
+                                        }
+                                        return super.findVertex(text);
+                                    }
+                                });
+
+        assertEquals(
+                "origin;destination;departure;arrival;status;legs\n"
+                        + "bug;D;;;erreur : java.lang.IllegalStateException: bug;\n"
+                        + "A;D;08:00:00;08:07:15;ok;1 A > B | 2 B > D\n"
+                        + "2 1",
+                run(BatchRouter.Format.CSV, 1, "bug;D;07:59\nA;D;07:59\n"));
+    }
+
+    @Test
+    void tripsAreWrittenAsJsonLines() throws IOException {
+        assertEquals(
+                "{\"origin\":\"a\",\"destination\":\"b\",\"departure\":\"08:00:00\","
+                        + "\"arrival\":\"08:01:15\",\"status\":\"ok\",\"legs\":["
+                        + "{\"line\":\"1\",\"from\":\"A\",\"to\":\"B\","
+                        + "\"departure\":\"08:00:00\",\"arrival\":\"08:01:15\"}]}\n"
+                        + "1 0",
+                run(BatchRouter.Format.JSON, 1, "a;b;07:59:30"));
+    }
+
+    @Test
+    void parallelChunksKeepTheOrderOfTheInput() throws IOException {
+        StringBuilder input = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        expected.append("origin;destination;departure;arrival;status;legs\n");
+        for (int i = 0; i < 3000; i++) {
+            // unknown stations make every line of the output different
+            if (i % 7 == 0) {
+                input.append("A;D;07:59\n");
+                expected.append("A;D;08:00:00;08:07:15;ok;1 A > B | 2 B > D\n");
+            } else {
+                input.append("X").append(i).append(";D;07:59\n");
+                expected.append("X").append(i).append(";D;;;station inconnue;\n");
+            }
+        }
+        expected.append("3000 2571");
+
+        assertEquals(expected.toString(), run(BatchRouter.Format.CSV, 3, input.toString()));
+    }
+}
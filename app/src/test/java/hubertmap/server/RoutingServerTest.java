@@ -0,0 +1,231 @@
+package hubertmap.server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import hubertmap.model.DurationJourney;
+import hubertmap.model.transport.EdgeTransport;
+import hubertmap.model.transport.Network;
+import hubertmap.model.transport.Station;
+import hubertmap.model.transport.TestNetwork;
+import hubertmap.model.transport.VertexTransport;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** Runs on the network of {@link TestNetwork}. */
+class RoutingServerTest {
+
+    private static final String ROUTE = "/route?from=A&to=D&time=07:59";
+
+    private static final String ROUTE_ANSWER =
+            "200 {\"legs\":["
+                    + "{\"line\":\"1\",\"from\":\"A\",\"to\":\"B\","
+                    + "\"departure\":\"08:00:00\",\"arrival\":\"08:01:15\"},"
+                    + "{\"line\":\"2\",\"from\":\"B\",\"to\":\"D\","
+                    + "\"departure\":\"08:02:00\",\"arrival\":\"08:07:15\"}]}";
+
+    private TestNetwork test;
+    private RoutingServer server;
+
+    /** Counted down when a query looks up the station A. */
+    private final CountDownLatch started = new CountDownLatch(1);
+
+    /** Holds the queries looking up the station A until it is counted down. */
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    public void setup() throws IOException {
+        test = new TestNetwork();
+        server = new RoutingServer(test.network, 0, 1, 4);
+        server.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    /** Returns the status and the body of the answer to a query, separated by a space. */
+    private String get(String query) throws IOException {
+        return get(server, query);
+    }
+
+    /**
+     * Returns the status and the body of the answer of a server to a query, separated by a space,
+     * with the delay given by the Retry-After header before the body if there is one.
+     */
+    private static String get(RoutingServer server, String query) throws IOException {
+        URL url = new URL("http://localhost:" + server.getPort() + query);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        int status = connection.getResponseCode();
+        String retryAfter = connection.getHeaderField("Retry-After");
+        try (InputStream in =
+                status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            return status
+                    + (retryAfter == null ? "" : " Retry-After: " + retryAfter)
+                    + " "
+                    + new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Returns a server with one worker whose queries from A wait for {@link #release}, so that the
+     * queries can be held while they are answered.
+     */
+    private RoutingServer heldServer(int queueSize) throws IOException {
+        Network network =
+                test.copy(
+                        edges ->
+                                new Network(edges) {
+                                    @Override
+                                    public VertexTransport findVertex(String text) {
+                                        if (text.equals("A")) {
+                                            started.countDown();
+                                            try {
+                                                release.await();
+                                            } catch (InterruptedException e) {
+                                                Thread.currentThread().interrupt();
+                                            }
+                                        }
+                                        return super.findVertex(text);
+                                    }
+                                });
+        RoutingServer held = new RoutingServer(network, 0, 1, queueSize);
+        held.start();
+        return held;
+    }
+
+    @Test
+    void serverIsReadyAfterWarmUpAndStops() throws IOException {
+        assertTrue(server.isReady());
+        assertEquals("200 {\"ready\":true}", get("/health/ready"));
+        server.stop(0);
+        assertFalse(server.isReady());
+    }
+
+    @Test
+    void routesAreTimed() throws IOException {
+        assertEquals(ROUTE_ANSWER, get("/route?from=a&to=D&time=07:59"));
+        assertEquals(
+                "404 {\"error\":\"Station inconnue : Z\"}", get("/route?from=A&to=Z&time=07:59"));
+        assertEquals("400 {\"error\":\"Paramètre manquant : to\"}", get("/route?from=A"));
+        assertEquals(
+                "400 {\"error\":\"Horaire invalide : 8h\"}", get("/route?from=A&to=D&time=8h"));
+    }
+
+    @Test
+    void departuresOfAllTheLinesOfAStation() throws IOException {
+        assertEquals(
+                "200 [{\"line\":\"2 variant 1\",\"terminus\":\"D\",\"time\":\"08:02:00\"},"
+                        + "{\"line\":\"2 variant 1\",\"terminus\":\"D\",\"time\":\"08:04:00\"},"
+                        + "{\"line\":\"1 variant 1\",\"terminus\":\"C\",\"time\":\"08:10:00\"}]",
+                get("/departures?station=B&time=08:01&limit=3"));
+    }
+
+    @Test
+    void nearestStations() throws IOException {
+        assertEquals(
+                "200 [{\"name\":\"D\",\"x\":1.0,\"y\":1.0}]", get("/nearest?x=0.9&y=0.9&limit=1"));
+        assertEquals("400 {\"error\":\"Coordonnée invalide : x\"}", get("/nearest?x=a&y=0"));
+    }
+
+    @Test
+    void queriesAreRefusedWhenTheQueueIsFull() throws Exception {
+        RoutingServer held = heldServer(1);
+        ExecutorService clients = Executors.newFixedThreadPool(3);
+        try {
+            Future<String> running = clients.submit(() -> get(held, ROUTE));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            // the worker is busy, one of the next two queries waits in the queue
+            CompletionService<String> next = new ExecutorCompletionService<>(clients);
+            next.submit(() -> get(held, ROUTE));
+            next.submit(() -> get(held, ROUTE));
+
+            assertEquals(
+                    "503 Retry-After: 1 {\"error\":\"Serveur surchargé\"}",
+                    next.poll(10, TimeUnit.SECONDS).get());
+            release.countDown();
+            assertEquals(ROUTE_ANSWER, running.get(10, TimeUnit.SECONDS));
+            assertEquals(ROUTE_ANSWER, next.poll(10, TimeUnit.SECONDS).get());
+        } finally {
+            release.countDown();
+            clients.shutdownNow();
+            held.stop(0);
+        }
+    }
+
+    @Test
+    void stopAnswersTheRunningQueriesAndRefusesTheNewOnes() throws Exception {
+        RoutingServer held = heldServer(4);
+        int port = held.getPort();
+        ExecutorService clients = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> running = clients.submit(() -> get(held, ROUTE));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            Future<?> stopping = clients.submit(() -> held.stop(10));
+
+            // the port is closed at once, while the running query is still held
+            long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            boolean refused = false;
+            while (!refused && System.nanoTime() < end) {
+                try {
+                    new Socket(InetAddress.getLoopbackAddress(), port).close();
+                    Thread.sleep(10);
+                } catch (ConnectException e) {
+                    refused = true;
+                }
+            }
+            assertTrue(refused);
+            assertFalse(running.isDone());
+
+            release.countDown();
+            assertEquals(ROUTE_ANSWER, running.get(10, TimeUnit.SECONDS));
+            stopping.get(10, TimeUnit.SECONDS);
+            assertFalse(held.isReady());
+        } finally {
+            release.countDown();
+            clients.shutdownNow();
+            held.stop(0);
+        }
+    }
+
+    @Test
+    void unknownStationsAreAnsweredWithSuggestions() throws IOException {
+        Station lourmel = new Station("Lourmel", "8", 48.84f, 2.28f);
+        Station boucicaut = new Station("Boucicaut", "8", 48.84f, 2.29f);
+        Network network =
+                new Network(
+                        List.of(
+                                new EdgeTransport(
+                                        lourmel, boucicaut, new DurationJourney(60), 6.0f, "8")));
+        RoutingServer named = new RoutingServer(network, 0, 1, 4);
+        named.start();
+        try {
+            // the closest name is suggested, not routed
+            assertEquals(
+                    "404 {\"error\":\"Station inconnue : Lourmell\",\"suggestions\":[\"Lourmel\"]}",
+                    get(named, "/route?from=Lourmell&to=Boucicaut&time=08:00"));
+            assertEquals(
+                    "404 {\"error\":\"Station inconnue : Nation\"}",
+                    get(named, "/departures?station=Nation"));
+        } finally {
+            named.stop(0);
+        }
+    }
+}